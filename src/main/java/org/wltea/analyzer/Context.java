@@ -35,11 +35,16 @@ public class Context{
      * 词元结果集，为每次游标的移动，存储切分出来的词元
      */
 	private IKSortedLinkSet lexemeSet;
+	/*
+	 * 分词使用的词典实例
+	 */
+	private Dictionary dictionary;
 
     
-    Context(char[] segmentBuff , boolean isMaxWordLength){
+    Context(char[] segmentBuff , boolean isMaxWordLength , Dictionary dictionary){
     	this.isMaxWordLength = isMaxWordLength;
     	this.segmentBuff = segmentBuff;
+    	this.dictionary = dictionary;
     	this.buffLocker = new HashSet<ISegmenter>(4);
     	this.lexemeSet = new IKSortedLinkSet();
 	}
@@ -109,6 +114,18 @@ public class Context{
 		return this.buffLocker.size() > 0;
 	}
 
+	/**
+	 * 获取分词使用的词典实例
+	 * @return Dictionary
+	 */
+	public Dictionary getDictionary() {
+		return dictionary;
+	}
+
+	void setDictionary(Dictionary dictionary) {
+		this.dictionary = dictionary;
+	}
+
 	public int getAvailable() {
 		return available;
 	}
@@ -140,7 +157,7 @@ public class Context{
 	 * @param lexeme
 	 */
 	public void addLexeme(Lexeme lexeme){
-		if(!Dictionary.isStopWord(segmentBuff , lexeme.getBegin() , lexeme.getLength())){
+		if(!dictionary.containsStopWord(segmentBuff , lexeme.getBegin() , lexeme.getLength())){
 			this.lexemeSet.addLexeme(lexeme);
 		}
 	}
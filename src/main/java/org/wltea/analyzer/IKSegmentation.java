@@ -8,8 +8,11 @@ import java.io.Reader;
 import java.util.List;
 
 import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.dic.Dictionary;
 import org.wltea.analyzer.help.CharacterHelper;
 import org.wltea.analyzer.seg.ISegmenter;
+import org.wltea.analyzer.stats.IKEvents;
+import org.wltea.analyzer.stats.IKStatistics;
 
 /**
  * IK Analyzer v3.2
@@ -32,6 +35,16 @@ public final class IKSegmentation{
 	private Context context;
 	//分词处理器列表
 	private List<ISegmenter> segmenters;
+	//已切分的缓冲区计数，用于子分词器计时抽样
+	private int segmentedBuffers;
+	//抽样缓冲区上各子分词器的耗时
+	private long[] segmenterNanos;
+	//当前Reader开始分词的时刻（纳秒），为0表示不计时
+	private long readerBeginNanos;
+	//当前Reader已输出的词元数
+	private int readerLexemes;
+	//缓冲区末尾保留到下次读取的字符数（被缓冲区边界拆开的代理对高位）
+	private int heldChars;
     
 	/**
 	 * IK主分词器构造函数
@@ -48,10 +61,40 @@ public final class IKSegmentation{
 	 * @param isMaxWordLength 当为true时，分词器进行最大词长切分
 	 */
 	public IKSegmentation(Reader input , boolean isMaxWordLength){
+		this(input , isMaxWordLength , Dictionary.getInstance());
+	}
+	
+	/**
+	 * IK主分词器构造函数
+	 * @param input
+	 * @param isMaxWordLength 当为true时，分词器进行最大词长切分
+	 * @param dictionary 分词使用的词典实例
+	 */
+	public IKSegmentation(Reader input , boolean isMaxWordLength , Dictionary dictionary){
+		this(input , isMaxWordLength , dictionary , Configuration.loadSegmenter());
+	}
+	
+	/**
+	 * IK主分词器构造函数
+	 * @param input
+	 * @param isMaxWordLength 当为true时，分词器进行最大词长切分
+	 * @param dictionary 分词使用的词典实例
+	 * @param segmenters 子分词器列表，由本实例独占，参见Configuration.loadSegmenter
+	 */
+	public IKSegmentation(Reader input , boolean isMaxWordLength , Dictionary dictionary , List<ISegmenter> segmenters){
+		if(dictionary == null){
+			throw new IllegalArgumentException("parameter \"dictionary\" is null");
+		}
+		if(segmenters == null || segmenters.isEmpty()){
+			throw new IllegalArgumentException("parameter \"segmenters\" is empty");
+		}
 		this.input = input ;
 		segmentBuff = new char[BUFF_SIZE];
-		context = new Context(segmentBuff , isMaxWordLength);
-		segmenters = Configuration.loadSegmenter();
+		context = new Context(segmentBuff , isMaxWordLength , dictionary);
+		this.segmenters = segmenters;
+		segmenterNanos = new long[segmenters.size()];
+		//错开不同实例的抽样位置
+		segmentedBuffers = System.identityHashCode(this);
 	}
 	
 	/**
@@ -61,6 +104,11 @@ public final class IKSegmentation{
 	 */
 	public synchronized Lexeme next() throws IOException {
 		if(context.getResultSize() == 0){
+			if(context.getBuffOffset() == 0 && IKEvents.isEnabled()){
+				//开始读取新的Reader，对整个Reader的分词计时
+				readerBeginNanos = System.nanoTime();
+				readerLexemes = 0;
+			}
 			/*
 			 * 从reader中读取数据，填充buffer
 			 * 如果reader是分次读入buffer的，那么buffer要进行移位处理
@@ -68,10 +116,24 @@ public final class IKSegmentation{
 			 */
 			int available = fillBuffer(input);
 			
+            //统计开关在每个缓冲区只读取一次
+            boolean stats = IKStatistics.isEnabled();
             if(available <= 0){
+            	if(stats && context.getBuffOffset() > 0){
+            		IKStatistics.documentSegmented();
+            	}
+            	if(readerBeginNanos != 0){
+            		if(context.getBuffOffset() > 0){
+            			IKEvents.segmentationFinished(context.getBuffOffset() , readerLexemes , System.nanoTime() - readerBeginNanos);
+            		}
+            		readerBeginNanos = 0;
+            	}
             	context.resetContext();
                 return null;
             }else{
+            	//是否对本缓冲区的子分词器计时
+            	boolean timing = stats 
+            			&& (++segmentedBuffers & (IKStatistics.TIMING_SAMPLE_INTERVAL - 1)) == 0;
             	//分词处理
         		int buffIndex = 0;
         		for( ; buffIndex < available ;  buffIndex++){
@@ -80,17 +142,21 @@ public final class IKSegmentation{
         			//进行字符规格化（全角转半角，大写转小写处理）
         			segmentBuff[buffIndex] = CharacterHelper.regularize(segmentBuff[buffIndex]);
         			//遍历子分词器
-        			for(ISegmenter segmenter : segmenters){
-        				segmenter.nextLexeme(segmentBuff , context);
+        			if(timing){
+        				timedNextLexeme();
+        			}else{
+	        			for(ISegmenter segmenter : segmenters){
+	        				segmenter.nextLexeme(segmentBuff , context);
+	        			}
         			}
         			/*
         			 * 满足一下条件时，
-        			 * 1.available == BUFF_SIZE 表示buffer满载
+        			 * 1.available + heldChars == BUFF_SIZE 表示buffer满载
         			 * 2.buffIndex < available - 1 && buffIndex > available - BUFF_EXHAUST_CRITICAL表示当前指针处于临界区内
         			 * 3.!context.isBufferLocked()表示没有segmenter在占用buffer
         			 * 要中断当前循环（buffer要进行移位，并再读取数据的操作）
         			 */        			
-        			if(available == BUFF_SIZE
+        			if(available + heldChars == BUFF_SIZE
         					&& buffIndex < available - 1   
         					&& buffIndex > available - BUFF_EXHAUST_CRITICAL
         					&& !context.isBufferLocked()){
@@ -102,6 +168,9 @@ public final class IKSegmentation{
 				for(ISegmenter segmenter : segmenters){
 					segmenter.reset();
 				}
+				if(timing){
+					publishSegmenterTime();
+				}
         		//System.out.println(available + " : " +  buffIndex);
             	//记录最近一次分析的字符长度
         		context.setLastAnalyzed(buffIndex);
@@ -111,6 +180,10 @@ public final class IKSegmentation{
         		if(context.isMaxWordLength()){
         			context.excludeOverlap();
         		}
+				if(stats){
+					//在过滤交叠词元之后统计，与实际输出的词元数目一致
+					IKStatistics.bufferSegmented(buffIndex , context.getResultSize());
+				}
             	//读取词元池中的词元
             	return buildLexeme(context.firstLexeme());
             }
@@ -132,7 +205,7 @@ public final class IKSegmentation{
     		//首次读取reader
     		readCount = reader.read(segmentBuff);
     	}else{
-    		int offset = context.getAvailable() - context.getLastAnalyzed();
+    		int offset = context.getAvailable() + heldChars - context.getLastAnalyzed();
     		if(offset > 0){
     			//最近一次读取的>最近一次处理的，将未处理的字串拷贝到segmentBuff头部
     			System.arraycopy(segmentBuff , context.getLastAnalyzed() , this.segmentBuff , 0 , offset);
@@ -140,18 +213,49 @@ public final class IKSegmentation{
     		}
     		//继续读取reader ，以onceReadIn - onceAnalyzed为起始位置，继续填充segmentBuff剩余的部分
     		readCount += reader.read(segmentBuff , offset , BUFF_SIZE - offset);
+    		if(readCount > 0 && IKStatistics.isEnabled()){
+    			IKStatistics.bufferRefilled(offset);
+    		}
+    	}            	
+    	heldChars = 0;
+    	if(readCount == BUFF_SIZE && Character.isHighSurrogate(segmentBuff[readCount - 1])){
+    		//缓冲区满载且以代理对的高位结尾，保留该字符与下次读入的低位一起分析
+    		heldChars = 1;
+    		readCount--;
     	}            	
     	//记录最后一次从Reader中读入的可用字符长度
     	context.setAvailable(readCount);
     	return readCount;
     }	
 	
+    /**
+     * 遍历子分词器，并记录各子分词器的耗时
+     */
+    private void timedNextLexeme(){
+    	for(int i = 0 ; i < segmenterNanos.length ; i++){
+    		long begin = System.nanoTime();
+    		segmenters.get(i).nextLexeme(segmentBuff , context);
+    		segmenterNanos[i] += System.nanoTime() - begin;
+    	}
+    }
+    
+    /**
+     * 发布抽样缓冲区上各子分词器的耗时
+     */
+    private void publishSegmenterTime(){
+    	for(int i = 0 ; i < segmenterNanos.length ; i++){
+    		IKStatistics.segmenterTime(segmenters.get(i) , segmenterNanos[i]);
+    		segmenterNanos[i] = 0;
+    	}
+    }	
+	
     /**
      * 取出词元集合中的下一个词元
      * @return Lexeme
      */
     private Lexeme buildLexeme(Lexeme lexeme){
     	if(lexeme != null){
+    		readerLexemes++;
 			//生成lexeme的词元文本
 			lexeme.setLexemeText(String.valueOf(segmentBuff , lexeme.getBegin() , lexeme.getLength()));
 			return lexeme;
@@ -167,10 +271,24 @@ public final class IKSegmentation{
      */
 	public synchronized void reset(Reader input) {
 		this.input = input;
+		readerBeginNanos = 0;
+		heldChars = 0;
 		context.resetContext();
 		for(ISegmenter segmenter : segmenters){
 			segmenter.reset();
 		}
 	}
 
+    /**
+     * 重置分词器到初始状态，并切换分词使用的词典实例
+     * @param input
+     * @param dictionary 新的词典实例，为null时沿用当前词典
+     */
+	public synchronized void reset(Reader input , Dictionary dictionary) {
+		if(dictionary != null){
+			context.setDictionary(dictionary);
+		}
+		reset(input);
+	}
+
 }
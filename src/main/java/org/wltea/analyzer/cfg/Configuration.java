@@ -10,7 +10,6 @@ import java.util.InvalidPropertiesFormatException;
 import java.util.List;
 import java.util.Properties;
 
-import org.wltea.analyzer.dic.Dictionary;
 import org.wltea.analyzer.seg.CJKSegmenter;
 import org.wltea.analyzer.seg.ISegmenter;
 import org.wltea.analyzer.seg.LetterSegmenter;
@@ -31,6 +30,12 @@ public class Configuration {
 	private static final String EXT_DICT = "ext_dict";
 	//配置属性——扩展停止词典
 	private static final String EXT_STOP = "ext_stopwords";
+	//配置属性——字母分词器的链接符号
+	private static final String LETTER_CONNECTORS = "letter_connectors";
+	//配置属性——字母分词器的组合词元输出方式
+	private static final String LETTER_COMPOUND = "letter_compound";
+	//配置属性——中文分词器是否使用Aho-Corasick自动机
+	private static final String CJK_AUTOMATON = "cjk_automaton";
 	
 	private static final Configuration CFG = new Configuration();
 	
@@ -60,21 +65,7 @@ public class Configuration {
 	 * @return List<String> 相对类加载器的路径
 	 */
 	public static List<String> getExtDictionarys(){
-		List<String> extDictFiles = new ArrayList<String>(2);
-		String extDictCfg = CFG.props.getProperty(EXT_DICT);
-		if(extDictCfg != null){
-			//使用;分割多个扩展字典配置
-			String[] filePaths = extDictCfg.split(";");
-			if(filePaths != null){
-				for(String filePath : filePaths){
-					if(filePath != null && !"".equals(filePath.trim())){
-						extDictFiles.add(filePath.trim());
-						//System.out.println(filePath.trim());
-					}
-				}
-			}
-		}		
-		return extDictFiles;		
+		return splitDictionaryPaths(CFG.props.getProperty(EXT_DICT));
 	}
 	
 	/**
@@ -82,39 +73,105 @@ public class Configuration {
 	 * @return List<String> 相对类加载器的路径
 	 */
 	public static List<String> getExtStopWordDictionarys(){
-		List<String> extStopWordDictFiles = new ArrayList<String>(2);
-		String extStopWordDictCfg = CFG.props.getProperty(EXT_STOP);
-		if(extStopWordDictCfg != null){
+		return splitDictionaryPaths(CFG.props.getProperty(EXT_STOP));
+	}
+	
+	/**
+	 * 解析词典路径配置
+	 * 使用;分割多个词典配置
+	 * @param dictCfg 词典路径配置，可以为null
+	 * @return List<String> 词典路径列表
+	 */
+	public static List<String> splitDictionaryPaths(String dictCfg){
+		List<String> dictFiles = new ArrayList<String>(2);
+		if(dictCfg != null){
 			//使用;分割多个扩展字典配置
-			String[] filePaths = extStopWordDictCfg.split(";");
+			String[] filePaths = dictCfg.split(";");
 			if(filePaths != null){
 				for(String filePath : filePaths){
 					if(filePath != null && !"".equals(filePath.trim())){
-						extStopWordDictFiles.add(filePath.trim());
-						//System.out.println(filePath.trim());
+						dictFiles.add(filePath.trim());
 					}
 				}
 			}
 		}		
-		return extStopWordDictFiles;		
+		return dictFiles;		
 	}
 		
 	
+	/**
+	 * 获取字母分词器的链接符号配置
+	 * @return char[] 没有配置时返回null，使用默认的链接符号
+	 */
+	public static char[] getLetterConnectors(){
+		return parseLetterConnectors(CFG.props.getProperty(LETTER_CONNECTORS));
+	}
+	
+	/**
+	 * 获取字母分词器的组合词元输出方式配置
+	 * @return int LetterSegmenter.COMPOUND_AND_PARTS ，COMPOUND_ONLY 或 PARTS_ONLY
+	 */
+	public static int getLetterCompoundMode(){
+		return LetterSegmenter.parseCompoundMode(CFG.props.getProperty(LETTER_COMPOUND));
+	}
+	
+	/**
+	 * 获取中文分词器是否使用Aho-Corasick自动机的配置
+	 * @return boolean 没有配置时返回false，使用Hit队列
+	 */
+	public static boolean isCJKAutomaton(){
+		return Boolean.parseBoolean(CFG.props.getProperty(CJK_AUTOMATON));
+	}
+	
+	/**
+	 * 解析链接符号配置
+	 * 配置中的每个字符都作为链接符号，如 -_.@&
+	 * @param connectorCfg 链接符号配置，可以为null
+	 * @return char[] 没有配置时返回null
+	 */
+	public static char[] parseLetterConnectors(String connectorCfg){
+		if(connectorCfg == null || "".equals(connectorCfg.trim())){
+			return null;
+		}
+		return connectorCfg.trim().toCharArray();
+	}
+	
 	/**
 	 * 初始化子分词器实现
-	 * （目前暂时不考虑配置扩展）
+	 * 字母分词器使用IKAnalyzer.cfg.xml中的链接符号及组合词元配置
 	 * @return List<ISegmenter>
 	 */
 	public static List<ISegmenter> loadSegmenter(){
-		//初始化词典单例
-		Dictionary.getInstance();
+		return loadSegmenter(getLetterConnectors() , getLetterCompoundMode() , isCJKAutomaton());
+	}
+	
+	/**
+	 * 初始化子分词器实现
+	 * 子分词器带有分词状态，每个IKSegmentation实例需要独立的子分词器列表
+	 * @param letterConnectors 字母分词器的链接符号，为null时使用默认的链接符号
+	 * @param letterCompoundMode 字母分词器的组合词元输出方式
+	 * @return List<ISegmenter>
+	 */
+	public static List<ISegmenter> loadSegmenter(char[] letterConnectors , int letterCompoundMode){
+		return loadSegmenter(letterConnectors , letterCompoundMode , isCJKAutomaton());
+	}
+	
+	/**
+	 * 初始化子分词器实现
+	 * 子分词器带有分词状态，每个IKSegmentation实例需要独立的子分词器列表
+	 * @param letterConnectors 字母分词器的链接符号，为null时使用默认的链接符号
+	 * @param letterCompoundMode 字母分词器的组合词元输出方式
+	 * @param cjkAutomaton 中文分词器是否使用Aho-Corasick自动机
+	 * @return List<ISegmenter>
+	 */
+	public static List<ISegmenter> loadSegmenter(char[] letterConnectors , int letterCompoundMode , boolean cjkAutomaton){
 		List<ISegmenter> segmenters = new ArrayList<ISegmenter>(4);
 		//处理数量词的子分词器
 		segmenters.add(new QuantifierSegmenter());
 		//处理字母的子分词器
-		segmenters.add(new LetterSegmenter()); 
+		segmenters.add(new LetterSegmenter(letterConnectors , letterCompoundMode)); 
 		//处理中文词的子分词器
-		segmenters.add(new CJKSegmenter());
+		segmenters.add(new CJKSegmenter(cjkAutomaton));
 		return segmenters;
 	}
 }
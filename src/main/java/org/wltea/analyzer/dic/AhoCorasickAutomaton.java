@@ -0,0 +1,324 @@
+/**
+ * 
+ */
+package org.wltea.analyzer.dic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * IK Analyzer v3.2
+ * 主词典的Aho-Corasick自动机
+ * 词典树的每条路径展开为一个状态，状态按广度优先编号，子状态连续存放并按字符编码升序排列
+ * 每个状态记录失败链接（最长的、同时是词典前缀的真后缀）和输出链接（失败链上最近的词条状态），
+ * 逐字推进一个状态，即可得到以当前字符结尾的全部词条，不必同时维护多个前缀匹配
+ * 转移按词典共用的字符编码（DenseAlphabet）存放，每个输入字符只查询一次编码：
+ * 根状态的转移表按编码寻址，常用字符的表项集中在表的前部，其他状态在子状态的编码中查找；
+ * 尚未编码的字符不在任何词典中，直接回到根状态，不必沿失败链接查找
+ *
+ * 自动机在构建时复制词典树的结构，构建后只读，可以被多个线程共享
+ * 词典追加词条后，由Dictionary重新构建；叠加词典的每一层分别构建自动机，分词时同时推进
+ * 以低代理项开始的路径不会被分词器作为词条的起点，不展开
+ * @author 林良益
+ *
+ */
+public final class AhoCorasickAutomaton {
+
+	/**
+	 * 根状态，同时表示不存在的子状态
+	 */
+	public static final int ROOT = 0;
+
+	//状态标志——从根状态到当前状态的路径表示一个词
+	private static final byte FLAG_WORD = 1;
+	//状态标志——当前状态有子状态
+	private static final byte FLAG_PREFIX = 2;
+	//状态标志——当前状态或失败链上的某个状态有子状态
+	private static final byte FLAG_LIVE = 4;
+
+	//子状态数目小等于该值时顺序比较，否则二分查找
+	private static final int LINEAR_SEARCH_LIMIT = 8;
+
+	//全部词典共用的字符编码
+	private static final DenseAlphabet ALPHABET = DenseAlphabet.getInstance();
+
+	//按节点字符的编码升序
+	private static final Comparator<DictSegment> CODE_ORDER = new Comparator<DictSegment>(){
+		public int compare(DictSegment a , DictSegment b){
+			return ALPHABET.code(a.getNodeCharValue()) - ALPHABET.code(b.getNodeCharValue());
+		}
+	};
+
+	/*
+	 * 内存估算参数
+	 */
+	//数组对象头
+	private static final int BYTES_ARRAY_HEADER = 16;
+	//每个状态的字节数：子状态起始位置、字符编码、深度、失败链接、输出链接、标志
+	private static final int BYTES_STATE = 4 + 2 + 4 + 4 + 4 + 1;
+
+	//根状态的子状态，按字符编码寻址，长度为根状态子状态的最大编码+1
+	private final int[] rootStates;
+	//各状态第一个子状态的编号，长度为状态数目+1，子状态为[firstChild[s] , firstChild[s + 1])
+	private final int[] firstChild;
+	//进入各状态的字符的编码
+	private final char[] stateCodes;
+	//各状态的深度，即路径的长度
+	private final int[] depths;
+	//失败链接
+	private final int[] failures;
+	//输出链接，不存在时为ROOT
+	private final int[] outputs;
+	//状态标志
+	private final byte[] flags;
+	//状态数目（含根状态）
+	private final int stateCount;
+	//构建时词典的修改标记，用于判断自动机是否过期
+	private final long stamp;
+
+	/**
+	 * 由词典树构建自动机
+	 * @param root 词典树的根节点
+	 * @param stamp 构建时词典的修改标记
+	 */
+	AhoCorasickAutomaton(DictSegment root , long stamp){
+		this.stamp = stamp;
+		int capacity = 1024;
+		int[] first = new int[capacity + 1];
+		char[] codes = new char[capacity];
+		int[] depth = new int[capacity];
+		byte[] flag = new byte[capacity];
+		//各状态对应的词典树节点，展开后释放
+		List<DictSegment> nodes = new ArrayList<DictSegment>(capacity);
+		nodes.add(root);
+		int count = 1;
+
+		int maxRootCode = 0;
+
+		//STEP1 按广度优先展开词典树，共享的节点在不同的路径上展开为不同的状态
+		for(int s = 0 ; s < count ; s++){
+			DictSegment node = nodes.get(s);
+			nodes.set(s , null);
+			first[s] = count;
+			DictSegment[] children = node.sortedChildren();
+			for(DictSegment child : children){
+				//词典树中的字符都应有编码，逐个追加的词条可能带入新的字符
+				ALPHABET.codeOrAdd(child.getNodeCharValue());
+			}
+			if(children.length > 1){
+				//sortedChildren可能返回节点自身的数组，复制后排序
+				children = children.clone();
+				Arrays.sort(children , CODE_ORDER);
+			}
+			for(DictSegment child : children){
+				char nodeChar = child.getNodeCharValue();
+				if(s == ROOT && Character.isLowSurrogate(nodeChar)){
+					continue;
+				}
+				if(count == codes.length){
+					capacity = codes.length * 2;
+					first = grow(first , capacity + 1);
+					codes = grow(codes , capacity);
+					depth = grow(depth , capacity);
+					flag = grow(flag , capacity);
+				}
+				byte state = 0;
+				if(child.isWord()){
+					state |= FLAG_WORD;
+				}
+				if(child.hasNextNode()){
+					state |= FLAG_PREFIX;
+				}
+				int code = ALPHABET.code(nodeChar);
+				if(s == ROOT){
+					maxRootCode = code;
+				}
+				codes[count] = (char)code;
+				depth[count] = depth[s] + 1;
+				flag[count] = state;
+				nodes.add(child);
+				count++;
+			}
+		}
+		first[count] = count;
+		this.stateCount = count;
+		this.firstChild = grow(first , count + 1);
+		this.stateCodes = grow(codes , count);
+		this.depths = grow(depth , count);
+		this.flags = grow(flag , count);
+		this.failures = new int[count];
+		this.outputs = new int[count];
+
+		this.rootStates = new int[maxRootCode + 1];
+
+		//STEP2 按广度优先计算失败链接和输出链接，较浅的状态已经完成
+		for(int s = 0 ; s < count ; s++){
+			for(int t = firstChild[s] ; t < firstChild[s + 1] ; t++){
+				int f = ROOT;
+				if(s == ROOT){
+					rootStates[stateCodes[t]] = t;
+				}else{
+					f = nextByCode(failures[s] , stateCodes[t]);
+				}
+				failures[t] = f;
+				outputs[t] = (flags[f] & FLAG_WORD) != 0 ? f : outputs[f];
+				if((flags[t] & FLAG_PREFIX) != 0 || (flags[f] & FLAG_LIVE) != 0){
+					flags[t] |= FLAG_LIVE;
+				}
+			}
+		}
+	}
+
+	/**
+	 * 读入一个字符，沿失败链接转移到下一个状态
+	 * @param state 当前状态
+	 * @param input 输入字符
+	 * @return int 以input结尾的、最长的词典前缀对应的状态，不存在时为ROOT
+	 */
+	public int next(int state , char input){
+		int code = ALPHABET.code(input);
+		if(code == 0){
+			//不在词典中的字符
+			return ROOT;
+		}
+		return nextByCode(state , code);
+	}
+
+	/**
+	 * 查找子状态，不沿失败链接转移
+	 * @param state 当前状态
+	 * @param input 输入字符
+	 * @return int 子状态，不存在时为ROOT
+	 */
+	public int child(int state , char input){
+		int code = ALPHABET.code(input);
+		if(code == 0){
+			return ROOT;
+		}
+		return childByCode(state , code);
+	}
+
+	private int nextByCode(int state , int code){
+		while(state != ROOT){
+			int t = childByCode(state , code);
+			if(t != ROOT){
+				return t;
+			}
+			state = failures[state];
+		}
+		return code < rootStates.length ? rootStates[code] : ROOT;
+	}
+
+	private int childByCode(int state , int code){
+		if(state == ROOT){
+			return code < rootStates.length ? rootStates[code] : ROOT;
+		}
+		int low = firstChild[state];
+		int high = firstChild[state + 1] - 1;
+		if(high - low < LINEAR_SEARCH_LIMIT){
+			for(int i = low ; i <= high ; i++){
+				if(stateCodes[i] == code){
+					return i;
+				}
+			}
+			return ROOT;
+		}
+		while(low <= high){
+			int mid = (low + high) >>> 1;
+			int midCode = stateCodes[mid];
+			if(midCode < code){
+				low = mid + 1;
+			}else if(midCode > code){
+				high = mid - 1;
+			}else{
+				return mid;
+			}
+		}
+		return ROOT;
+	}
+
+	/**
+	 * 从根状态到当前状态的路径是否表示一个词
+	 */
+	public boolean isWord(int state){
+		return (flags[state] & FLAG_WORD) != 0;
+	}
+
+	/**
+	 * 当前状态是否有子状态，即路径是否为词的前缀
+	 */
+	public boolean isPrefix(int state){
+		return (flags[state] & FLAG_PREFIX) != 0;
+	}
+
+	/**
+	 * 当前状态或失败链上的某个状态是否有子状态
+	 * 为true时，以后的字符仍可能与已读入的字符组成词
+	 */
+	public boolean isLive(int state){
+		return (flags[state] & FLAG_LIVE) != 0;
+	}
+
+	/**
+	 * 状态的深度，即路径的长度
+	 */
+	public int getDepth(int state){
+		return depths[state];
+	}
+
+	/**
+	 * 失败链上最近的词条状态，即以相同字符结尾的、较短的词
+	 * @param state 当前状态
+	 * @return int 不存在时为ROOT
+	 */
+	public int getOutput(int state){
+		return outputs[state];
+	}
+
+	/**
+	 * 状态数目（含根状态）
+	 */
+	public int getStateCount(){
+		return stateCount;
+	}
+
+	/**
+	 * 根状态转移表的长度，即词条首字符的最大编码
+	 * 编码为全部词典共用，常用字符的编码较小
+	 */
+	public int getAlphabetSize(){
+		return rootStates.length - 1;
+	}
+
+	/**
+	 * 估算的堆内存占用
+	 * @return long 字节
+	 */
+	public long getEstimatedBytes(){
+		return (long)rootStates.length * 4 + (long)stateCount * BYTES_STATE + 4 + BYTES_ARRAY_HEADER * 7;
+	}
+
+	long getStamp(){
+		return stamp;
+	}
+
+	private static int[] grow(int[] array , int length){
+		int[] newArray = new int[length];
+		System.arraycopy(array , 0 , newArray , 0 , Math.min(array.length , length));
+		return newArray;
+	}
+
+	private static char[] grow(char[] array , int length){
+		char[] newArray = new char[length];
+		System.arraycopy(array , 0 , newArray , 0 , Math.min(array.length , length));
+		return newArray;
+	}
+
+	private static byte[] grow(byte[] array , int length){
+		byte[] newArray = new byte[length];
+		System.arraycopy(array , 0 , newArray , 0 , Math.min(array.length , length));
+		return newArray;
+	}
+}
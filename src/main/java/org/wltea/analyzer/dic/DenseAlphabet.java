@@ -0,0 +1,126 @@
+/**
+ * 
+ */
+package org.wltea.analyzer.dic;
+
+import java.util.Arrays;
+
+/**
+ * IK Analyzer v3.2
+ * 词典字符的紧凑编码
+ * 词典只用到几千个不同的字符，编码为1 , 2 , 3 ...，0表示尚未编码的字符
+ * 按编码寻址的表只需要字符数目的长度，如词典树根节点的子节点表、自动机根状态的转移表
+ *
+ * 全部词典共用一个编码表，已分配的编码不再改变，新的字符追加编码：
+ * 批量构建词典时按字符的出现次数从多到少追加，常用字符的编码较小，表项集中在表的前部；
+ * 追加、删除词条时遇到的新字符依次追加
+ *
+ * 字符到编码的映射为两级页表：高8位选择页，低8位选择页内的编码，
+ * 不含词典字符的页共享同一个全0的页，中文词典通常只占用几十个页
+ * 查询编码不加锁；追加编码先于引用该编码的表发布，检索线程先读取表再查询编码
+ * @author 林良益
+ *
+ */
+final class DenseAlphabet {
+
+	//页内的字符位数
+	private static final int PAGE_BITS = 8;
+	//页的大小
+	private static final int PAGE_SIZE = 1 << PAGE_BITS;
+	//页内偏移的掩码
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+	//不含词典字符的页
+	private static final char[] EMPTY_PAGE = new char[PAGE_SIZE];
+	//编码上限，0不使用
+	private static final int MAX_CODE = Character.MAX_VALUE;
+
+	//全部词典共用的编码表
+	private static final DenseAlphabet INSTANCE = new DenseAlphabet();
+
+	//字符到编码的页表
+	private final char[][] pages = new char[(Character.MAX_VALUE + 1) >> PAGE_BITS][];
+	//已分配的编码数目
+	private volatile int size;
+
+	private DenseAlphabet(){
+		Arrays.fill(pages , EMPTY_PAGE);
+	}
+
+	/**
+	 * 全部词典共用的编码表
+	 */
+	static DenseAlphabet getInstance(){
+		return INSTANCE;
+	}
+
+	/**
+	 * 字符的编码
+	 * @param c
+	 * @return int 尚未编码的字符返回0
+	 */
+	int code(char c){
+		return pages[c >>> PAGE_BITS][c & PAGE_MASK];
+	}
+
+	/**
+	 * 字符的编码，尚未编码时追加
+	 * @param c
+	 * @return int
+	 */
+	int codeOrAdd(char c){
+		int code = code(c);
+		if(code != 0){
+			return code;
+		}
+		synchronized(this){
+			return add(c);
+		}
+	}
+
+	/**
+	 * 按字符的出现次数从多到少，为尚未编码的字符追加编码
+	 * @param counts 各字符的出现次数，长度为Character.MAX_VALUE + 1，次数为0的字符不编码
+	 */
+	synchronized void addAll(int[] counts){
+		//出现次数从多到少，次数相同时按字符顺序，排序键为 次数（高位） + 字符（低位）
+		long[] keys = new long[counts.length];
+		int count = 0;
+		for(int c = 0 ; c < counts.length ; c++){
+			if(counts[c] > 0 && code((char)c) == 0){
+				keys[count++] = ((long)(Integer.MAX_VALUE - counts[c]) << 16) | c;
+			}
+		}
+		Arrays.sort(keys , 0 , count);
+		for(int i = 0 ; i < count ; i++){
+			add((char)(keys[i] & 0xFFFF));
+		}
+	}
+
+	/**
+	 * 追加编码，调用者持有锁
+	 */
+	private int add(char c){
+		int code = code(c);
+		if(code != 0){
+			return code;
+		}
+		if(size == MAX_CODE){
+			throw new IllegalStateException("词典字符超过编码上限 : " + MAX_CODE);
+		}
+		int page = c >>> PAGE_BITS;
+		if(pages[page] == EMPTY_PAGE){
+			pages[page] = new char[PAGE_SIZE];
+		}
+		code = size + 1;
+		pages[page][c & PAGE_MASK] = (char)code;
+		size = code;
+		return code;
+	}
+
+	/**
+	 * 已编码的字符数目，即最大的编码
+	 */
+	int size(){
+		return size;
+	}
+}
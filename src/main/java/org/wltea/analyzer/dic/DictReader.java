@@ -0,0 +1,371 @@
+/**
+ * 
+ */
+package org.wltea.analyzer.dic;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * IK Analyzer v3.2
+ * 词典文件的流式读取器
+ * 从输入流按块读取字节，直接解码到可重用的字符缓冲区，读取词条时不创建对象
+ * 按文件头识别词典格式：
+ *   文本词典为UTF-8编码，每行一个词条，读取时去除首尾的空白字符（小等于空格的字符，与String.trim一致），
+ *   跳过空行、以#开始的注释行以及文件开头的BOM，不合法的UTF-8字节序列解码为U+FFFD
+ *   以MAGIC开始的为按前缀压缩的词典，格式见DictionaryCompressor
+ *   以上两种格式均可以再用gzip压缩，读取时自动解压
+ *
+ * 读取器不是线程安全的，读取完毕后由close()关闭输入流
+ * @author 林良益
+ *
+ */
+final class DictReader {
+
+	/**
+	 * 压缩词典的文件头
+	 */
+	static final byte[] MAGIC = {'I' , 'K' , 'D' , 'C'};
+	/**
+	 * 压缩词典的格式版本，版本2在文件头之后记录词典版本
+	 */
+	static final int VERSION = 2;
+	/**
+	 * 压缩词典每个分块的最大词条数
+	 */
+	static final int BLOCK_SIZE = 16;
+
+	//字节缓冲区大小
+	private static final int BUFFER_SIZE = 64 * 1024;
+	//注释行的开始字符
+	private static final char COMMENT = '#';
+	//不合法字节序列的替换字符
+	private static final char REPLACEMENT = '\uFFFD';
+
+	//输入流，gzip压缩的词典为解压流
+	private InputStream input;
+	//字节缓冲区
+	private final byte[] bytes = new byte[BUFFER_SIZE];
+	//下一个读取的字节位置
+	private int position;
+	//缓冲区中有效字节的结束位置
+	private int limit;
+	//当前词条的字符缓冲区
+	private char[] word = new char[64];
+	//是否已经识别过文件头
+	private boolean started;
+	//是否为按前缀压缩的词典
+	private boolean frontCoded;
+	//压缩词典当前分块中尚未读取的词条数，读到结束标记后为-1
+	private int blockRemaining;
+	//压缩词典上一个词条的长度，即缓冲区中可以共享的前缀
+	private int wordLength;
+	//压缩词典记录的词典版本
+	private long dictVersion;
+
+	DictReader(InputStream input){
+		this.input = input;
+	}
+
+	/**
+	 * 读取下一个词条
+	 * @return int 词条长度，词条存放在getWord()的[0 , 长度)中；没有更多词条时返回-1
+	 * @throws IOException
+	 */
+	int next() throws IOException{
+		if(!started){
+			start();
+		}
+		if(frontCoded){
+			return nextFrontCoded();
+		}
+		for(;;){
+			int length = readLine();
+			if(length < 0){
+				return -1;
+			}
+			if(length > 0 && word[0] != COMMENT){
+				return length;
+			}
+		}
+	}
+
+	/**
+	 * 当前词条的字符缓冲区，下一次调用next()时被覆盖
+	 * @return char[]
+	 */
+	char[] getWord(){
+		return word;
+	}
+
+	/**
+	 * 压缩词典记录的词典版本，即已经合并到词典中的变更日志版本，在读取第一个词条后有效
+	 * @return long 文本词典及未记录版本的压缩词典返回0
+	 */
+	long getDictVersion(){
+		return dictVersion;
+	}
+
+	/**
+	 * 关闭输入流
+	 * @throws IOException
+	 */
+	void close() throws IOException{
+		input.close();
+	}
+
+	/**
+	 * 识别文件头，gzip压缩的词典改为从解压流读取，并跳过文本词典的BOM
+	 */
+	private void start() throws IOException{
+		started = true;
+		int available = fill(MAGIC.length);
+		if(available >= 2 && (bytes[0] & 0xFF) == 0x1F && (bytes[1] & 0xFF) == 0x8B){
+			//已读取的字节放回解压流之前，缓冲区随后被解压的字节覆盖，需要复制
+			byte[] head = new byte[limit];
+			System.arraycopy(bytes , 0 , head , 0 , limit);
+			input = new GZIPInputStream(new SequenceInputStream(new ByteArrayInputStream(head) , input) , BUFFER_SIZE);
+			position = 0;
+			limit = 0;
+			available = fill(MAGIC.length);
+		}
+		if(available >= MAGIC.length && bytes[0] == MAGIC[0] && bytes[1] == MAGIC[1]
+				&& bytes[2] == MAGIC[2] && bytes[3] == MAGIC[3]){
+			position += MAGIC.length;
+			int version = read();
+			if(version < 1 || version > VERSION){
+				throw new IOException("Unsupported compressed dictionary version : " + version);
+			}
+			if(version >= 2){
+				dictVersion = readVarLong();
+			}
+			frontCoded = true;
+		}else if(available >= 3 && (bytes[0] & 0xFF) == 0xEF && (bytes[1] & 0xFF) == 0xBB && (bytes[2] & 0xFF) == 0xBF){
+			//UTF-8编码的BOM
+			position += 3;
+		}
+	}
+
+	/**
+	 * 读取压缩词典的下一个词条，缓冲区中保留上一个词条，只需写入后缀
+	 * @return int 词条长度；读到结束标记时返回-1
+	 */
+	private int nextFrontCoded() throws IOException{
+		if(blockRemaining < 0){
+			return -1;
+		}
+		boolean blockStart = false;
+		if(blockRemaining == 0){
+			blockRemaining = readVarint();
+			if(blockRemaining == 0){
+				blockRemaining = -1;
+				return -1;
+			}
+			blockStart = true;
+		}
+		int shared = readVarint();
+		int suffix = readVarint();
+		//每块的第一个词条不共享前缀
+		if(shared > wordLength || (blockStart && shared != 0) || suffix > Integer.MAX_VALUE - shared
+				|| shared + suffix == 0){
+			throw new IOException("Corrupted compressed dictionary");
+		}
+		int length = shared + suffix;
+		ensureCapacity(length);
+		for(int i = shared ; i < length ; i++){
+			int c = readVarint();
+			if(c > Character.MAX_VALUE){
+				throw new IOException("Corrupted compressed dictionary");
+			}
+			word[i] = (char)c;
+		}
+		wordLength = length;
+		blockRemaining--;
+		return length;
+	}
+
+	/**
+	 * 读取变长编码的非负整数，每字节7位，低位在前，最高位为1表示后续还有字节
+	 */
+	private int readVarint() throws IOException{
+		int value = 0;
+		for(int shift = 0 ; shift < 32 ; shift += 7){
+			int b = read();
+			if(b < 0){
+				throw new EOFException("Truncated compressed dictionary");
+			}
+			value |= (b & 0x7F) << shift;
+			if((b & 0x80) == 0){
+				if(value < 0){
+					break;
+				}
+				return value;
+			}
+		}
+		throw new IOException("Corrupted compressed dictionary");
+	}
+
+	/**
+	 * 读取变长编码的非负长整数
+	 */
+	private long readVarLong() throws IOException{
+		long value = 0;
+		for(int shift = 0 ; shift < 64 ; shift += 7){
+			int b = read();
+			if(b < 0){
+				throw new EOFException("Truncated compressed dictionary");
+			}
+			value |= (long)(b & 0x7F) << shift;
+			if((b & 0x80) == 0){
+				if(value < 0){
+					break;
+				}
+				return value;
+			}
+		}
+		throw new IOException("Corrupted compressed dictionary");
+	}
+
+	/**
+	 * 读取一行，去除首尾的空白字符
+	 * @return int 去除空白后的长度，已到输入流结尾时返回-1
+	 */
+	private int readLine() throws IOException{
+		int b = read();
+		if(b < 0){
+			return -1;
+		}
+		//length为已写入的字符数，end为最后一个非空白字符之后的位置
+		int length = 0;
+		int end = 0;
+		while(b >= 0 && b != '\n'){
+			if(b == '\r'){
+				//\r\n作为一个换行
+				int next = read();
+				if(next >= 0 && next != '\n'){
+					unread();
+				}
+				break;
+			}
+			int c = decode(b);
+			if(c > Character.MAX_VALUE){
+				//辅助平面的字符，写入代理对
+				ensureCapacity(length + 2);
+				word[length++] = (char)(Character.MIN_HIGH_SURROGATE + ((c - Character.MIN_SUPPLEMENTARY_CODE_POINT) >>> 10));
+				word[length++] = (char)(Character.MIN_LOW_SURROGATE + (c & 0x3FF));
+				end = length;
+			}else if(c > ' '){
+				ensureCapacity(length + 1);
+				word[length++] = (char)c;
+				end = length;
+			}else if(length > 0){
+				//词条中间的空白字符，行首的空白字符直接跳过
+				ensureCapacity(length + 1);
+				word[length++] = (char)c;
+			}
+			b = read();
+		}
+		return end;
+	}
+
+	/**
+	 * 以b开始解码一个UTF-8字符
+	 * @param b 第一个字节
+	 * @return int 码位，不合法的字节序列返回REPLACEMENT
+	 */
+	private int decode(int b) throws IOException{
+		if(b < 0x80){
+			return b;
+		}
+		int count;
+		int c;
+		int min;
+		if(b < 0xC2){
+			//后续字节或者超长编码
+			return REPLACEMENT;
+		}else if(b < 0xE0){
+			count = 1;
+			c = b & 0x1F;
+			min = 0x80;
+		}else if(b < 0xF0){
+			count = 2;
+			c = b & 0x0F;
+			min = 0x800;
+		}else if(b < 0xF5){
+			count = 3;
+			c = b & 0x07;
+			min = 0x10000;
+		}else{
+			return REPLACEMENT;
+		}
+		for(int i = 0 ; i < count ; i++){
+			int next = read();
+			if((next & 0xC0) != 0x80){
+				//不是后续字节，留给下一个字符
+				if(next >= 0){
+					unread();
+				}
+				return REPLACEMENT;
+			}
+			c = (c << 6) | (next & 0x3F);
+		}
+		if(c < min || c > Character.MAX_CODE_POINT
+				|| (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE)){
+			return REPLACEMENT;
+		}
+		return c;
+	}
+
+	/**
+	 * 读取一个字节
+	 * @return int 已到输入流结尾时返回-1
+	 */
+	private int read() throws IOException{
+		if(position == limit){
+			int n = input.read(bytes , 0 , bytes.length);
+			while(n == 0){
+				n = input.read(bytes , 0 , bytes.length);
+			}
+			if(n < 0){
+				return -1;
+			}
+			position = 0;
+			limit = n;
+		}
+		return bytes[position++] & 0xFF;
+	}
+
+	/**
+	 * 读取字节，直到缓冲区中至少有count个未读取的字节或已到输入流结尾，只在识别文件头时使用
+	 * @return int 缓冲区中未读取的字节数
+	 */
+	private int fill(int count) throws IOException{
+		while(limit - position < count){
+			int n = input.read(bytes , limit , bytes.length - limit);
+			if(n < 0){
+				break;
+			}
+			limit += n;
+		}
+		return limit - position;
+	}
+
+	/**
+	 * 退回刚读取的一个字节，只能在read()返回字节后调用
+	 */
+	private void unread(){
+		position--;
+	}
+
+	private void ensureCapacity(int capacity){
+		if(capacity > word.length){
+			char[] newWord = new char[Math.max(capacity , word.length * 2)];
+			System.arraycopy(word , 0 , newWord , 0 , word.length);
+			word = newWord;
+		}
+	}
+}
@@ -3,60 +3,131 @@
  */
 package org.wltea.analyzer.dic;
 
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.Map;
-
+import java.util.Set;
 
 /**
  * IK Analyzer v3.2
  * 字典子片断 字典匹配核心类
- * 该类采用 数组 结合 HashMap，实现词典存储，词语匹配
+ * 该类采用 数组 结合 开放寻址的散列表，实现词典存储，词语匹配
+ * 
+ * 当下属的页节点小等于3时，按字符顺序存放在长度恰好的数组中，顺序比较
+ * 当下属的页节点大于3时，子节点及其字符存放在线性探测的散列表中
+ * 当下属的页节点大于4096时（如主词典的根节点），子节点存放在按字符编码（DenseAlphabet）直接寻址的数组中
+ * 检索时不创建对象，也不对字符装箱
+ * 
+ * 批量构建的词典树中，等价的子树（节点字符、词条状态及子节点均相同）只保留一份，
+ * 多个父节点共享同一个节点，词典树成为有向无环图（DAWG），如"…公司"、"…大学"的后缀
+ * 共享的节点不能直接修改，追加词条时复制后替换，复制出的节点只属于一个父节点
  * 
- * 当下属的页节点小等于3时，采用数组存储
- * 当下属的页节点大于3时，采用HashMap存储
+ * 删除词条时只清除词条结束节点的词条状态（update()），节点保留在词典树中（墓碑）
+ * 压缩时删除不含词条的子树，子节点减少的节点复制为较小的存储结构后替换，检索时仍然不加锁
+ * 
+ * 已发布的词典树（如Dictionary的主词典）通过update()持久化更新：只复制从根节点到词条结束节点的路径，
+ * 原有的节点不再修改，新的根节点整体发布后，检索线程看到的是更新前或更新后的完整词典树
+ * fillSegment原地修改，只用于尚未发布的词典树（如批量构建器中乱序的词条）
  * @author 林良益
  *
  */
 public class DictSegment {
 	
-	//公用字典表，存储汉字
-	private static final Map<Character , Character> charMap = new HashMap<Character , Character>(16 , 0.95f);
-	
 	//数组大小上限
-	private static final int ARRAY_LENGTH_LIMIT = 3;
+	static final int ARRAY_LENGTH_LIMIT = 3;
+	//散列表大小上限，超过后按字符直接寻址
+	private static final int HASH_SIZE_LIMIT = 4096;
+	//直接寻址数组扩容时预留的编码数目
+	private static final int DIRECT_RESERVE = 256;
 	
-	//当前节点上存储的字符
-	private Character nodeChar;
+	//全部词典共用的字符编码
+	private static final DenseAlphabet ALPHABET = DenseAlphabet.getInstance();
 	
-	//Map存储结构
-	private Map<Character , DictSegment> childrenMap;
+	//没有子节点
+	private static final DictSegment[] NO_CHILDREN = new DictSegment[0];
 	
-	//数组方式存储结构
-	private DictSegment[] childrenArray;
+	//按节点字符升序
+	private static final Comparator<DictSegment> NODE_ORDER = new Comparator<DictSegment>(){
+		public int compare(DictSegment a , DictSegment b){
+			return a.nodeChar - b.nodeChar;
+		}
+	};
 	
-	//当前节点存储的Segment数目
-	//storeSize <=ARRAY_LENGTH_LIMIT ，使用数组存储， storeSize >ARRAY_LENGTH_LIMIT ,则使用Map存储
-	private int storeSize = 0;
+	/*
+	 * 内存估算参数（64位JVM，开启压缩指针）
+	 */
+	//DictSegment对象：对象头 + 字符、状态、父节点数目 + 2个数组引用
+	private static final int BYTES_SEGMENT = 24;
+	//数组对象头
+	private static final int BYTES_ARRAY_HEADER = 16;
+	
+	//当前节点上存储的字符
+	private final char nodeChar;
+	
+	//子节点存储结构，没有子节点时为null
+	//子节点数目小等于ARRAY_LENGTH_LIMIT时为按字符升序的数组，小等于HASH_SIZE_LIMIT时为散列表的槽位，长度为2的幂
+	//否则为按字符编码直接寻址的数组，长度为奇数（散列表的长度为偶数）
+	//数组和散列表更新时整体替换，直接寻址的数组原地更新（编码超出长度时扩容后替换），检索时不加锁
+	private volatile DictSegment[] children;
+	
+	//散列表槽位中子节点的字符，与children一一对应，只在使用散列表时创建
+	//先于children写入，检索时读取children之后再读取
+	private char[] childChars;
 	
 	//当前DictSegment状态 ,默认 0 , 1表示从根节点到当前节点的路径表示一个词
-	private int nodeState = 0;	
+	private byte nodeState = 0;	
+	
+	//引用当前节点的父节点数目，最多记录到2，大于1时为共享的节点
+	private byte parents;
 	
 	public DictSegment(Character nodeChar){
 		if(nodeChar == null){
 			throw new IllegalArgumentException("参数为空异常，字符不能为空");
 		}
+		this.nodeChar = nodeChar.charValue();
+	}
+	
+	/**
+	 * 创建子节点已经全部确定的节点，由DictSegmentBuilder批量构建词典树时使用
+	 * 创建后仍然可以通过fillSegment追加词条
+	 * @param nodeChar 节点字符
+	 * @param word 从根节点到当前节点的路径是否表示一个词
+	 * @param segmentArray 按字符升序排列的子节点，可以为null
+	 * @param size 子节点数目
+	 */
+	DictSegment(char nodeChar , boolean word , DictSegment[] segmentArray , int size){
 		this.nodeChar = nodeChar;
+		if(word){
+			this.nodeState = 1;
+		}
+		if(size > HASH_SIZE_LIMIT){
+			this.children = directArray(segmentArray , size , 0);
+		}else if(size > ARRAY_LENGTH_LIMIT){
+			int capacity = hashCapacity(size);
+			DictSegment[] newArray = new DictSegment[capacity];
+			char[] newChars = new char[capacity];
+			for(int i = 0 ; i < size ; i++){
+				put(newArray , newChars , segmentArray[i]);
+			}
+			this.childChars = newChars;
+			this.children = newArray;
+		}else if(size > 0){
+			DictSegment[] newArray = new DictSegment[size];
+			System.arraycopy(segmentArray , 0 , newArray , 0 , size);
+			this.children = newArray;
+		}
 	}
 
 	public Character getNodeChar() {
-		return nodeChar;
+		return Character.valueOf(nodeChar);
 	}
 	
 	/*
 	 * 判断是否有下一个节点
 	 */
 	public boolean hasNextNode(){
-		return  this.storeSize > 0;
+		return  this.children != null;
 	}
 	
 	/**
@@ -98,54 +169,75 @@ public class DictSegment {
 			//否则要将HIT状态重置
 			searchHit.setUnmatch();
 		}
-		//设置hit的当前处理位置
-		searchHit.setEnd(begin);
 		
-		Character keyChar = new Character(charArray[begin]);
-		DictSegment ds = null;
-		
-		//引用实例变量为本地变量，避免查询时遇到更新的同步问题
-		DictSegment[] segmentArray = this.childrenArray;
-		Map<Character , DictSegment> segmentMap = this.childrenMap;		
-		
-		//STEP1 在节点中查找keyChar对应的DictSegment
-		if(segmentArray != null){
-			//在数组中查找
-			for(DictSegment seg : segmentArray){
-				if(seg != null && seg.nodeChar.equals(keyChar)){
-					//找到匹配的段
-					ds = seg;
-				}
+		DictSegment ds = this;
+		int last = begin + length - 1;
+		for(int i = begin ; ; i++){
+			//设置hit的当前处理位置
+			searchHit.setEnd(i);
+			//STEP1 在节点中查找当前字符对应的DictSegment
+			ds = ds.lookforChild(charArray[i]);
+			if(ds == null || i >= last){
+				break;
 			}
-		}else if(segmentMap != null){
-			//在map中查找
-			ds = (DictSegment)segmentMap.get(keyChar);
+			//词未匹配完，继续往下搜索
 		}
 		
-		//STEP2 找到DictSegment，判断词的匹配状态，是否继续递归，还是返回结果
-		if(ds != null){			
-			if(length > 1){
-				//词未匹配完，继续往下搜索
-				return ds.match(charArray, begin + 1 , length - 1 , searchHit);
-			}else if (length == 1){
+		//STEP2 找到最后一个char对应的DictSegment，判断词的匹配状态
+		if(ds != null && length > 0){
+			if(ds.nodeState == 1){
+				//添加HIT状态为完全匹配
+				searchHit.setMatch();
+			}
+			if(ds.hasNextNode()){
+				//添加HIT状态为前缀匹配
+				searchHit.setPrefix();
+				//记录当前位置的DictSegment
+				searchHit.setMatchedDictSegment(ds);
+			}
+		}
+		//STEP3 没有找到DictSegment， HIT保持不匹配
+		return searchHit;		
+	}
 				
-				//搜索最后一个char
-				if(ds.nodeState == 1){
-					//添加HIT状态为完全匹配
-					searchHit.setMatch();
-				}
-				if(ds.hasNextNode()){
-					//添加HIT状态为前缀匹配
-					searchHit.setPrefix();
-					//记录当前位置的DictSegment
-					searchHit.setMatchedDictSegment(ds);
+	/**
+	 * 在子节点中查找keyChar对应的segment
+	 * @param keyChar
+	 * @return DictSegment 没有找到时返回null
+	 */
+	DictSegment lookforChild(char keyChar){
+		//引用实例变量为本地变量，避免查询时遇到更新的同步问题
+		DictSegment[] segmentArray = this.children;
+		if(segmentArray == null){
+			return null;
+		}
+		if(isDirect(segmentArray)){
+			//按字符编码直接寻址，编码先于数组发布，尚未编码的字符为0
+			int code = ALPHABET.code(keyChar);
+			return code < segmentArray.length ? segmentArray[code] : null;
+		}
+		char[] chars = this.childChars;
+		if(chars != null && chars.length == segmentArray.length){
+			//在散列表中查找
+			//同一容量的散列表只会追加槽位，读到较新的chars时仍然与segmentArray一致
+			int mask = chars.length - 1;
+			int i = hash(keyChar) & mask;
+			DictSegment segment;
+			while((segment = segmentArray[i]) != null){
+				if(chars[i] == keyChar){
+					return segment;
 				}
-				return searchHit;
+				i = (i + 1) & mask;
 			}
-			
+			return null;
 		}
-		//STEP3 没有找到DictSegment， 将HIT设置为不匹配
-		return searchHit;		
+		//在数组中查找，检索时遇到散列表扩容也顺序比较
+		for(DictSegment segment : segmentArray){
+			if(segment != null && segment.nodeChar == keyChar){
+				return segment;
+			}
+		}
+		return null;
 	}
 
 	/**
@@ -158,22 +250,19 @@ public class DictSegment {
 	
 	/**
 	 * 加载填充词典片段
+	 * 原地修改节点，只能用于尚未发布的词典树；已发布的词典树（如Dictionary的主词典）
+	 * 通过Dictionary.addWords()持久化更新，否则检索线程可能看到修改到一半的节点
 	 * @param charArray
 	 * @param begin
 	 * @param length
 	 */
 	public synchronized void fillSegment(char[] charArray , int begin , int length){
-		//获取字典表中的汉字对象
-		Character beginChar = new Character(charArray[begin]);
-		Character keyChar = charMap.get(beginChar);
-		//字典中没有该字，则将其添加入字典
-		if(keyChar == null){
-			charMap.put(beginChar, beginChar);
-			keyChar = beginChar;
+		//搜索当前节点的存储，查询对应keyChar的segment，如果没有则创建
+		DictSegment ds = lookforSegment(charArray[begin]);
+		if(ds.parents > 1){
+			//共享的节点复制后替换，不影响其他父节点下的词条
+			ds = replaceChild(ds.copy());
 		}
-		
-		//搜索当前节点的存储，查询对应keyChar的keyChar，如果没有则创建
-		DictSegment ds = lookforSegment(keyChar);
 		//处理keyChar对应的segment
 		if(length > 1){
 			//词元还没有完全加入词典树
@@ -185,110 +274,409 @@ public class DictSegment {
 
 	}
 	
+	/**
+	 * 持久化更新词条：复制从当前节点到词条结束节点的路径，设置结束节点的词条状态，原有的节点不变
+	 * 路径上缺少的节点新建，删除不存在的词条时不复制节点
+	 * 同一批更新中复制或新建的节点尚未发布，记录在fresh中，再次经过时直接修改，
+	 * 一批词条的公共路径（如根节点）只复制一次
+	 * @param charArray
+	 * @param begin
+	 * @param length 词条长度，为0时当前节点即为词条结束节点
+	 * @param word 设置为词条（追加）或清除词条状态（删除）
+	 * @param fresh 本批更新中复制或新建的节点
+	 * @return DictSegment 更新后的当前节点，当前节点属于fresh时即为当前节点
+	 */
+	DictSegment update(char[] charArray , int begin , int length , boolean word , Set<DictSegment> fresh){
+		DictSegment ds = this;
+		if(!fresh.contains(ds)){
+			ds = ds.copy();
+			fresh.add(ds);
+		}
+		if(length == 0){
+			ds.nodeState = (byte)(word ? 1 : 0);
+			return ds;
+		}
+		DictSegment child = ds.lookforChild(charArray[begin]);
+		if(child == null){
+			if(!word){
+				return ds;
+			}
+			child = ds.lookforSegment(charArray[begin]);
+			fresh.add(child);
+		}
+		DictSegment newChild = child.update(charArray , begin + 1 , length - 1 , word , fresh);
+		if(newChild != child){
+			ds.replaceChild(newChild);
+		}
+		return ds;
+	}
+	
+	/**
+	 * 压缩以当前节点为根的词典树，删除不含词条的子树
+	 * 子树有变化的节点按剩余的子节点复制（数目减少后改用数组或散列表），不修改原有的节点，
+	 * 检索线程看到的是压缩前或压缩后的完整词典树
+	 * 压缩期间不能同时追加或删除词条
+	 * @return DictSegment 压缩后的根节点，没有变化时返回当前节点
+	 */
+	DictSegment compact(){
+		DictSegment root = this.compact(new IdentityHashMap<DictSegment , DictSegment>());
+		if(root == null){
+			//词典中已没有词条
+			root = new DictSegment(this.nodeChar , false , null , 0);
+		}
+		return root;
+	}
+	
+	/**
+	 * 压缩子树
+	 * @param compacted 共享节点的压缩结果，共享的节点只压缩一次，各父节点引用同一个结果
+	 * @return DictSegment 子树没有变化时返回当前节点，子树中没有词条时返回null，否则返回复制的节点
+	 */
+	private DictSegment compact(Map<DictSegment , DictSegment> compacted){
+		if(this.parents > 1 && compacted.containsKey(this)){
+			return compacted.get(this);
+		}
+		DictSegment[] segmentArray = this.sortedChildren();
+		//有子节点变化时，复制剩余的子节点
+		DictSegment[] survivors = null;
+		int size = 0;
+		for(int i = 0 ; i < segmentArray.length ; i++){
+			DictSegment segment = segmentArray[i];
+			DictSegment result = segment.compact(compacted);
+			if(result != segment && survivors == null){
+				survivors = new DictSegment[segmentArray.length];
+				System.arraycopy(segmentArray , 0 , survivors , 0 , i);
+				size = i;
+			}
+			if(survivors != null && result != null){
+				survivors[size++] = result;
+			}
+		}
+		DictSegment ds = this;
+		if(survivors == null){
+			if(this.nodeState != 1 && segmentArray.length == 0){
+				ds = null;
+			}
+		}else if(this.nodeState != 1 && size == 0){
+			ds = null;
+		}else{
+			ds = new DictSegment(this.nodeChar , this.nodeState == 1 , survivors , size);
+			//替换当前节点，父节点数目不变
+			ds.parents = this.parents;
+		}
+		if(this.parents > 1){
+			compacted.put(this , ds);
+		}
+		return ds;
+	}
+	
 	/**
 	 * 查找本节点下对应的keyChar的segment
 	 * 如果没有找到，则创建新的segment
+	 * 新的存储结构复制后整体替换，不影响正在检索的线程
 	 * @param keyChar
 	 * @return
 	 */
-	private DictSegment lookforSegment(Character keyChar){
+	private DictSegment lookforSegment(char keyChar){
+		DictSegment ds = lookforChild(keyChar);
+		if(ds != null){
+			return ds;
+		}
+		//构造新的segment
+		ds = new DictSegment(keyChar , false , null , 0);
+		ds.parents = 1;
+		DictSegment[] segmentArray = this.children;
+		int size = this.childCount();
 		
-		DictSegment ds = null;
+		if(size < ARRAY_LENGTH_LIMIT){
+			//数组容量未满，按字符顺序插入数组
+			DictSegment[] newArray = new DictSegment[size + 1];
+			int index = 0;
+			while(index < size && segmentArray[index].nodeChar < keyChar){
+				index++;
+			}
+			if(size > 0){
+				System.arraycopy(segmentArray , 0 , newArray , 0 , index);
+				System.arraycopy(segmentArray , index , newArray , index + 1 , size - index);
+			}
+			newArray[index] = ds;
+			this.children = newArray;
 
-		if(this.storeSize <= ARRAY_LENGTH_LIMIT){
-			//获取数组容器，如果数组未创建则创建数组
-			DictSegment[] segmentArray = getChildrenArray();			
-			//搜寻数组
-			for(DictSegment segment : segmentArray){
-				if(segment != null && segment.nodeChar.equals(keyChar)){
-					//在数组中找到与keyChar对应的segment
-					ds =  segment;
-					break;
+		}else if(isDirect(segmentArray)){
+			int code = ALPHABET.codeOrAdd(keyChar);
+			if(code < segmentArray.length){
+				//直接寻址的数组原地写入，重新发布以保证检索线程看到完整的新节点
+				segmentArray[code] = ds;
+				this.children = segmentArray;
+			}else{
+				//新字符的编码超出数组长度，扩容后替换
+				DictSegment[] newArray = new DictSegment[directLength(code)];
+				System.arraycopy(segmentArray , 0 , newArray , 0 , segmentArray.length);
+				newArray[code] = ds;
+				this.children = newArray;
+			}
+
+		}else if(size >= HASH_SIZE_LIMIT){
+			//散列表迁移到直接寻址的数组
+			DictSegment[] newArray = directArray(segmentArray , segmentArray.length , ALPHABET.codeOrAdd(keyChar));
+			newArray[ALPHABET.code(keyChar)] = ds;
+			this.childChars = null;
+			this.children = newArray;
+
+		}else{
+			//切换或者继续使用散列表
+			int capacity = hashCapacity(size + 1);
+			DictSegment[] newArray = new DictSegment[capacity];
+			char[] newChars = new char[capacity];
+			if(size > ARRAY_LENGTH_LIMIT && segmentArray.length == capacity){
+				//容量不变，复制原有槽位
+				System.arraycopy(segmentArray , 0 , newArray , 0 , capacity);
+				System.arraycopy(this.childChars , 0 , newChars , 0 , capacity);
+			}else{
+				//数组迁移到散列表，或者散列表扩容
+				for(DictSegment segment : segmentArray){
+					if(segment != null){
+						put(newArray , newChars , segment);
+					}
 				}
 			}			
-			//遍历数组后没有找到对应的segment
-			if(ds == null){
-				//构造新的segment
-				ds = new DictSegment(keyChar);				
-				if(this.storeSize < ARRAY_LENGTH_LIMIT){
-					//数组容量未满，使用数组存储
-					segmentArray[this.storeSize] = ds;
-					//segment数目+1
-					this.storeSize++;
-				}else{
-					//数组容量已满，切换Map存储
-					//获取Map容器，如果Map未创建,则创建Map
-					Map<Character , DictSegment> segmentMap = getChildrenMap();
-					//将数组中的segment迁移到Map中
-					migrate(segmentArray ,  segmentMap);
-					//存储新的segment
-					segmentMap.put(keyChar, ds);
-					//segment数目+1 ，  必须在释放数组前执行storeSize++ ， 确保极端情况下，不会取到空的数组
-					this.storeSize++;
-					//释放当前的数组引用
-					this.childrenArray = null;
+			put(newArray , newChars , ds);
+			//必须在替换子节点存储之前写入
+			this.childChars = newChars;
+			this.children = newArray;
+		}
+		return ds;
+	}
+	
+	/**
+	 * 复制当前节点，复制出的节点只属于一个父节点
+	 * 子节点存储结构更新时整体替换，因此可以直接引用；
+	 * 子节点同时属于原节点和复制出的节点，标记为共享，此后修改时先复制，不影响原节点下的词条
+	 * @return DictSegment
+	 */
+	private DictSegment copy(){
+		DictSegment ds = new DictSegment(this.nodeChar , this.nodeState == 1 , null , 0);
+		ds.parents = 1;
+		DictSegment[] segmentArray = this.children;
+		if(segmentArray != null){
+			for(DictSegment segment : segmentArray){
+				if(segment != null){
+					segment.parents = 2;
 				}
-
-			}			
-			
-		}else{
-			//获取Map容器，如果Map未创建,则创建Map
-			Map<Character , DictSegment> segmentMap = getChildrenMap();
-			//搜索Map
-			ds = (DictSegment)segmentMap.get(keyChar);
-			if(ds == null){
-				//构造新的segment
-				ds = new DictSegment(keyChar);
-				segmentMap.put(keyChar , ds);
-				//当前节点存储segment数目+1
-				this.storeSize ++;
 			}
+			ds.childChars = this.childChars;
+			//直接寻址的数组原地更新，不能共享
+			ds.children = isDirect(segmentArray) ? segmentArray.clone() : segmentArray;
 		}
-
 		return ds;
 	}
 	
-	
 	/**
-	 * 获取数组容器
-	 * 线程同步方法
+	 * 用字符相同的新节点替换子节点
+	 * @param segment 新节点
+	 * @return DictSegment 新节点
 	 */
-	private DictSegment[] getChildrenArray(){
-		if(this.childrenArray == null){
-			synchronized(this){
-				if(this.childrenArray == null){
-					this.childrenArray = new DictSegment[ARRAY_LENGTH_LIMIT];
-				}
+	private DictSegment replaceChild(DictSegment segment){
+		DictSegment[] segmentArray = this.children;
+		if(isDirect(segmentArray)){
+			segmentArray[ALPHABET.code(segment.nodeChar)] = segment;
+			this.children = segmentArray;
+			return segment;
+		}
+		DictSegment[] newArray = segmentArray.clone();
+		for(int i = 0 ; i < newArray.length ; i++){
+			if(newArray[i] != null && newArray[i].nodeChar == segment.nodeChar){
+				newArray[i] = segment;
+				break;
 			}
 		}
-		return this.childrenArray;
+		this.children = newArray;
+		return segment;
 	}
 	
 	/**
-	 * 获取Map容器
-	 * 线程同步方法
-	 */	
-	private Map<Character , DictSegment> getChildrenMap(){
-		if(this.childrenMap == null){
-			synchronized(this){
-				if(this.childrenMap == null){
-					this.childrenMap = new HashMap<Character , DictSegment>(ARRAY_LENGTH_LIMIT * 2,0.8f);
-				}
+	 * 节点字符
+	 */
+	char getNodeCharValue(){
+		return this.nodeChar;
+	}
+	
+	/**
+	 * 从根节点到当前节点的路径是否表示一个词
+	 */
+	boolean isWord(){
+		return this.nodeState == 1;
+	}
+	
+	/**
+	 * 记录一个引用当前节点的父节点
+	 */
+	void addParent(){
+		if(this.parents < 2){
+			this.parents++;
+		}
+	}
+	
+	/**
+	 * 子节点数目
+	 */
+	int childCount(){
+		DictSegment[] segmentArray = this.children;
+		if(segmentArray == null){
+			return 0;
+		}
+		if(segmentArray.length <= ARRAY_LENGTH_LIMIT){
+			return segmentArray.length;
+		}
+		int count = 0;
+		for(DictSegment segment : segmentArray){
+			if(segment != null){
+				count++;
 			}
 		}
-		return this.childrenMap;
+		return count;
 	}
 	
 	/**
-	 * 将数组中的segment迁移到Map中
-	 * @param segmentArray
+	 * 按字符升序排列的子节点
+	 * 子节点存储为数组时直接返回该数组，调用者不能修改
+	 * @return DictSegment[] 没有子节点时返回长度为0的数组
 	 */
-	private void migrate(DictSegment[] segmentArray , Map<Character , DictSegment> segmentMap){
+	DictSegment[] sortedChildren(){
+		DictSegment[] segmentArray = this.children;
+		if(segmentArray == null){
+			return NO_CHILDREN;
+		}
+		if(segmentArray.length <= ARRAY_LENGTH_LIMIT){
+			return segmentArray;
+		}
+		DictSegment[] sorted = new DictSegment[segmentArray.length];
+		int count = 0;
 		for(DictSegment segment : segmentArray){
 			if(segment != null){
-				segmentMap.put(segment.nodeChar, segment);
+				sorted[count++] = segment;
 			}
 		}
+		Arrays.sort(sorted , 0 , count , NODE_ORDER);
+		if(count < sorted.length){
+			DictSegment[] exact = new DictSegment[count];
+			System.arraycopy(sorted , 0 , exact , 0 , count);
+			sorted = exact;
+		}
+		return sorted;
+	}
+	
+	/**
+	 * 子节点存储是否为按字符编码直接寻址的数组
+	 * 有序数组的长度不超过ARRAY_LENGTH_LIMIT，散列表的长度为2的幂，直接寻址的数组长度为奇数
+	 */
+	private static boolean isDirect(DictSegment[] segmentArray){
+		return segmentArray.length > ARRAY_LENGTH_LIMIT && (segmentArray.length & 1) != 0;
+	}
+	
+	/**
+	 * 创建按字符编码直接寻址的数组，尚未编码的字符追加编码
+	 * @param segmentArray 子节点，可以含有null（散列表的空槽位）
+	 * @param length segmentArray中的有效长度
+	 * @param minCode 数组至少容纳的编码
+	 */
+	private static DictSegment[] directArray(DictSegment[] segmentArray , int length , int minCode){
+		int maxCode = minCode;
+		for(int i = 0 ; i < length ; i++){
+			if(segmentArray[i] != null){
+				maxCode = Math.max(maxCode , ALPHABET.codeOrAdd(segmentArray[i].nodeChar));
+			}
+		}
+		DictSegment[] newArray = new DictSegment[directLength(maxCode)];
+		for(int i = 0 ; i < length ; i++){
+			if(segmentArray[i] != null){
+				newArray[ALPHABET.code(segmentArray[i].nodeChar)] = segmentArray[i];
+			}
+		}
+		return newArray;
+	}
+	
+	/**
+	 * 直接寻址数组的长度，容纳已分配的全部编码并预留DIRECT_RESERVE个，长度为奇数
+	 */
+	private static int directLength(int maxCode){
+		return (Math.max(maxCode , ALPHABET.size()) + DIRECT_RESERVE) | 1;
+	}
+	
+	/**
+	 * 散列表的容量，2的幂，装载因子不超过0.5
+	 */
+	private static int hashCapacity(int size){
+		int capacity = 8;
+		while(capacity < size * 2){
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+	
+	/**
+	 * 将segment放入散列表
+	 */	
+	private static void put(DictSegment[] segmentArray , char[] chars , DictSegment segment){
+		int mask = chars.length - 1;
+		int i = hash(segment.nodeChar) & mask;
+		while(segmentArray[i] != null){
+			i = (i + 1) & mask;
+		}
+		chars[i] = segment.nodeChar;
+		segmentArray[i] = segment;
+	}
+	
+	/**
+	 * 字符的散列值，混合高位以适应2的幂长度的散列表
+	 */
+	private static int hash(char keyChar){
+		int h = keyChar * 0x9E3779B1;
+		return h ^ (h >>> 16);
+	}
+	
+	/**
+	 * 统计当前节点下属的词条数、节点数及估算的内存占用
+	 * 词条按路径统计，共享的节点只统计一次
+	 * @param stats
+	 * @param depth 当前节点的深度，根节点为0
+	 */
+	void collectStats(DictionaryStats stats , int depth){
+		collectStats(stats , depth , new IdentityHashMap<DictSegment , Boolean>());
+	}
+	
+	private void collectStats(DictionaryStats stats , int depth , Map<DictSegment , Boolean> visited){
+		if(this.nodeState == 1){
+			stats.addWord(depth);
+		}
+		DictSegment[] segmentArray = this.children;
+		if(visited.put(this , Boolean.TRUE) == null){
+			int fanOut = this.childCount();
+			stats.addNode(depth , fanOut , this.parents > 1);
+			stats.addSegmentBytes(BYTES_SEGMENT);
+			if(segmentArray != null && isDirect(segmentArray)){
+				stats.addDirectNode(align(BYTES_ARRAY_HEADER + 4L * segmentArray.length));
+			}else if(fanOut > ARRAY_LENGTH_LIMIT){
+				int capacity = segmentArray.length;
+				stats.addHashNode(align(BYTES_ARRAY_HEADER + 4L * capacity) + align(BYTES_ARRAY_HEADER + 2L * capacity));
+			}else if(fanOut > 0){
+				stats.addArrayNode(align(BYTES_ARRAY_HEADER + 4L * fanOut));
+			}
+		}
+		if(segmentArray != null){
+			for(DictSegment segment : segmentArray){
+				if(segment != null){
+					segment.collectStats(stats , depth + 1 , visited);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * 按8字节对齐
+	 */
+	private static long align(long bytes){
+		return (bytes + 7) & ~7L;
 	}
 	
 }
@@ -0,0 +1,330 @@
+/**
+ * 
+ */
+package org.wltea.analyzer.dic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * IK Analyzer v3.2
+ * 词典树的批量构建器
+ * 词条按字符顺序加入时，只保留最后一个词条路径上尚未完成的节点，
+ * 输入离开某个节点的子树时，该节点的子节点已全部确定，一次创建完成，
+ * 构建时间与词条的总字符数成正比，不加锁，也不复制子节点数组
+ * 完成的节点在登记表中查找等价的节点（节点字符、词条状态及子节点均相同），
+ * 找到时直接共享已有的节点，最终得到最小的有向无环图（DAWG）
+ *
+ * 乱序的词条（如扩展词典中的词条）暂存起来，构建完成时排序后逐个加入词典树
+ * 构建完成时按字符在词条中的出现次数，为尚未编码的字符追加编码（DenseAlphabet）
+ * 构建器只能使用一次，不是线程安全的
+ * @author 林良益
+ *
+ */
+final class DictSegmentBuilder {
+
+	//按字符逐个比较，前缀排在前面，与String.compareTo一致
+	private static final Comparator<char[]> WORD_ORDER = new Comparator<char[]>(){
+		public int compare(char[] a , char[] b){
+			return DictSegmentBuilder.compare(a , b);
+		}
+	};
+
+	/*
+	 * 尚未完成的节点，下标为深度，根节点深度为0
+	 */
+	//节点字符
+	private char[] openChars = new char[16];
+	//是否为词条的结束节点
+	private boolean[] openWords = new boolean[16];
+	//已完成的子节点，按字符升序排列
+	private DictSegment[][] openChildren = new DictSegment[16][];
+	//已完成的子节点的结构散列值，与openChildren一一对应
+	private int[][] openHashes = new int[16][];
+	//已完成的子节点数目
+	private int[] openSizes = new int[16];
+	//最深的未完成节点的深度，即上一个顺序加入的词条的长度
+	private int depth;
+
+	//上一个顺序加入的词条，可重用的缓冲区
+	private char[] last = new char[16];
+	//上一个顺序加入的词条的长度
+	private int lastLength;
+	//顺序加入的词条数目
+	private int sortedCount;
+	//乱序的词条
+	private final List<char[]> unsorted = new ArrayList<char[]>();
+	//各字符在词条中的出现次数
+	private int[] charCounts = new int[Character.MAX_VALUE + 1];
+
+	/*
+	 * 已完成节点的登记表，开放寻址，长度为2的幂
+	 */
+	private DictSegment[] registry = new DictSegment[1024];
+	//登记表中节点的散列值
+	private int[] registryHashes = new int[1024];
+	//登记的节点数目
+	private int registered;
+
+	DictSegmentBuilder(){
+		openChildren[0] = new DictSegment[16];
+		openHashes[0] = new int[16];
+	}
+
+	/**
+	 * 加入一个词条，忽略空词条和重复的词条
+	 * @param word
+	 */
+	void add(char[] word){
+		if(word != null){
+			add(word , word.length);
+		}
+	}
+
+	/**
+	 * 加入一个词条，忽略空词条和重复的词条
+	 * 顺序的词条不保留word的引用，word可以是重用的缓冲区
+	 * @param word 词条缓冲区
+	 * @param length 词条长度，词条为word的[0 , length)
+	 */
+	void add(char[] word , int length){
+		if(word == null || length == 0){
+			return;
+		}
+		for(int i = 0 ; i < length ; i++){
+			charCounts[word[i]]++;
+		}
+		if(sortedCount > 0){
+			int cmp = compare(word , length , last , lastLength);
+			if(cmp == 0){
+				return;
+			}
+			if(cmp < 0){
+				if(sortedCount > 1){
+					unsorted.add(copyOf(word , length));
+					return;
+				}
+				//只加入过一个词条时，认为前一个词条乱序，如词典文件首行错位
+				//该词条路径上的节点都尚未完成，直接丢弃
+				unsorted.add(copyOf(last , lastLength));
+				depth = 0;
+				lastLength = 0;
+				sortedCount = 0;
+			}
+		}
+
+		int prefix = 0;
+		int limit = Math.min(length , lastLength);
+		while(prefix < limit && word[prefix] == last[prefix]){
+			prefix++;
+		}
+		//离开上一个词条中公共前缀之后的节点
+		close(prefix);
+		//打开新词条中公共前缀之后的节点
+		for(int i = prefix ; i < length ; i++){
+			open(word[i]);
+		}
+		openWords[depth] = true;
+		//记录当前词条，公共前缀部分已经相同
+		if(length > last.length){
+			char[] newLast = new char[Math.max(length , last.length * 2)];
+			System.arraycopy(last , 0 , newLast , 0 , prefix);
+			last = newLast;
+		}
+		System.arraycopy(word , prefix , last , prefix , length - prefix);
+		lastLength = length;
+		sortedCount++;
+	}
+
+	/**
+	 * 完成构建
+	 * @return DictSegment 词典树的根节点
+	 */
+	DictSegment build(){
+		//常用字符的编码较小，按编码寻址的表项集中在表的前部
+		DenseAlphabet.getInstance().addAll(charCounts);
+		charCounts = null;
+		close(0);
+		DictSegment root = newSegment((char)0 , false , openChildren[0] , openSizes[0]);
+		openChildren = null;
+		openHashes = null;
+		registry = null;
+		registryHashes = null;
+		if(!unsorted.isEmpty()){
+			//乱序的词条排序后加入，相邻的词条共享路径上的节点
+			Collections.sort(unsorted , WORD_ORDER);
+			for(char[] word : unsorted){
+				root.fillSegment(word);
+			}
+			unsorted.clear();
+		}
+		return root;
+	}
+
+	/**
+	 * 打开下一层节点
+	 */
+	private void open(char nodeChar){
+		depth++;
+		if(depth == openChars.length){
+			int length = openChars.length * 2;
+			char[] chars = new char[length];
+			System.arraycopy(openChars , 0 , chars , 0 , depth);
+			openChars = chars;
+			boolean[] words = new boolean[length];
+			System.arraycopy(openWords , 0 , words , 0 , depth);
+			openWords = words;
+			DictSegment[][] children = new DictSegment[length][];
+			System.arraycopy(openChildren , 0 , children , 0 , depth);
+			openChildren = children;
+			int[][] hashes = new int[length][];
+			System.arraycopy(openHashes , 0 , hashes , 0 , depth);
+			openHashes = hashes;
+			int[] sizes = new int[length];
+			System.arraycopy(openSizes , 0 , sizes , 0 , depth);
+			openSizes = sizes;
+		}
+		openChars[depth] = nodeChar;
+		openWords[depth] = false;
+		openSizes[depth] = 0;
+	}
+
+	/**
+	 * 完成深度大于toDepth的节点，加入各自父节点的子节点中
+	 */
+	private void close(int toDepth){
+		while(depth > toDepth){
+			char nodeChar = openChars[depth];
+			boolean word = openWords[depth];
+			int size = openSizes[depth];
+			//等价的节点结构散列值相同，子节点的散列值已在完成子节点时算出
+			int hash = nodeChar * 31 + (word ? 1 : 0);
+			int[] childHashes = openHashes[depth];
+			for(int i = 0 ; i < size ; i++){
+				hash = hash * 31 + childHashes[i];
+			}
+			DictSegment ds = canonical(nodeChar , word , openChildren[depth] , size , hash);
+			depth--;
+			DictSegment[] children = openChildren[depth];
+			int[] hashes = openHashes[depth];
+			size = openSizes[depth];
+			if(children == null){
+				children = new DictSegment[4];
+				openChildren[depth] = children;
+				hashes = new int[4];
+				openHashes[depth] = hashes;
+			}else if(size == children.length){
+				DictSegment[] newChildren = new DictSegment[size * 2];
+				System.arraycopy(children , 0 , newChildren , 0 , size);
+				children = newChildren;
+				openChildren[depth] = children;
+				int[] newHashes = new int[size * 2];
+				System.arraycopy(hashes , 0 , newHashes , 0 , size);
+				hashes = newHashes;
+				openHashes[depth] = hashes;
+			}
+			children[size] = ds;
+			hashes[size] = hash;
+			openSizes[depth] = size + 1;
+		}
+	}
+
+	/**
+	 * 查找等价的已完成节点，找到时直接返回，否则创建新的节点并登记
+	 * @param nodeChar 节点字符
+	 * @param word 是否为词条的结束节点
+	 * @param children 按字符升序排列的子节点，均已登记
+	 * @param size 子节点数目
+	 * @param hash 节点的结构散列值
+	 * @return DictSegment
+	 */
+	private DictSegment canonical(char nodeChar , boolean word , DictSegment[] children , int size , int hash){
+		int mask = registry.length - 1;
+		int i = (hash ^ (hash >>> 16)) & mask;
+		DictSegment ds;
+		while((ds = registry[i]) != null){
+			if(registryHashes[i] == hash && equivalent(ds , nodeChar , word , children , size)){
+				return ds;
+			}
+			i = (i + 1) & mask;
+		}
+		ds = newSegment(nodeChar , word , children , size);
+		registry[i] = ds;
+		registryHashes[i] = hash;
+		registered++;
+		if(registered * 2 > registry.length){
+			//装载因子不超过0.5
+			rehash();
+		}
+		return ds;
+	}
+
+	/**
+	 * 创建节点，为每个子节点记录一个父节点
+	 * 新创建的节点不会再与其他节点合并，因此记录的是最终的引用关系
+	 */
+	private static DictSegment newSegment(char nodeChar , boolean word , DictSegment[] children , int size){
+		for(int i = 0 ; i < size ; i++){
+			children[i].addParent();
+		}
+		return new DictSegment(nodeChar , word , children , size);
+	}
+
+	/**
+	 * 登记表扩容
+	 */
+	private void rehash(){
+		DictSegment[] oldRegistry = registry;
+		int[] oldHashes = registryHashes;
+		registry = new DictSegment[oldRegistry.length * 2];
+		registryHashes = new int[registry.length];
+		int mask = registry.length - 1;
+		for(int j = 0 ; j < oldRegistry.length ; j++){
+			if(oldRegistry[j] != null){
+				int i = (oldHashes[j] ^ (oldHashes[j] >>> 16)) & mask;
+				while(registry[i] != null){
+					i = (i + 1) & mask;
+				}
+				registry[i] = oldRegistry[j];
+				registryHashes[i] = oldHashes[j];
+			}
+		}
+	}
+
+	/**
+	 * 已完成的节点与待完成的节点是否等价，子节点按引用比较
+	 */
+	private static boolean equivalent(DictSegment ds , char nodeChar , boolean word , DictSegment[] children , int size){
+		if(ds.getNodeCharValue() != nodeChar || ds.isWord() != word || ds.childCount() != size){
+			return false;
+		}
+		for(int i = 0 ; i < size ; i++){
+			if(ds.lookforChild(children[i].getNodeCharValue()) != children[i]){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int compare(char[] a , char[] b){
+		return compare(a , a.length , b , b.length);
+	}
+
+	private static int compare(char[] a , int aLength , char[] b , int bLength){
+		int limit = Math.min(aLength , bLength);
+		for(int i = 0 ; i < limit ; i++){
+			if(a[i] != b[i]){
+				return a[i] - b[i];
+			}
+		}
+		return aLength - bLength;
+	}
+
+	private static char[] copyOf(char[] word , int length){
+		char[] copy = new char[length];
+		System.arraycopy(word , 0 , copy , 0 , length);
+		return copy;
+	}
+}
@@ -3,13 +3,21 @@
  */
 package org.wltea.analyzer.dic;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.stats.IKEvents;
 
 /**
  * IK Analyzer v3.2
@@ -31,20 +39,51 @@ public class Dictionary {
 	
 	/*
 	 * 词典单子实例
+	 * 延迟到首次调用时加载，仅使用独立词典实例的应用（如Solr多core）不会额外加载全局词典
 	 */
-	private static final Dictionary singleton;
+	private static class SingletonHolder{
+		private static final Dictionary singleton = new Dictionary();
+		static{
+			singletonLoaded = true;
+		}
+	}
 	
 	/*
-	 * 词典初始化
+	 * 全局词典是否已经加载
 	 */
-	static{
-		singleton = new Dictionary();
+	private static volatile boolean singletonLoaded;
+	
+	/*
+	 * 只包含默认词库的基础词典，由各个独立词库配置的叠加词典共享
+	 * 同样延迟到首次调用时加载
+	 */
+	private static class DefaultBaseHolder{
+		private static final Dictionary defaultBase = new Dictionary(null , null , null);
 	}
 	
+	/*
+	 * 后台压缩主词典的线程，首次需要压缩时创建
+	 */
+	private static class CompactorHolder{
+		private static final ExecutorService compactor = Executors.newSingleThreadExecutor(new ThreadFactory(){
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r , "IK-dictionary-compactor");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+	
+	/*
+	 * 删除的词条累计达到该数目时，在后台压缩主词典
+	 */
+	private static final int COMPACT_THRESHOLD = 1000;
+	
 	/*
 	 * 主词典对象
+	 * 发布后不再修改，追加、删除词条及压缩时复制变化的路径，完成后整体替换
 	 */
-	private DictSegment _MainDict;
+	private volatile DictSegment _MainDict;
 	/*
 	 * 姓氏词典
 	 */
@@ -64,242 +103,259 @@ public class Dictionary {
 	/*
 	 * 停止词集合
 	 */
-	private DictSegment _StopWords;
+	private StopWordSet _StopWords;
+	/*
+	 * 加载过程中各词库的耗时（纳秒），加载完成后释放
+	 */
+	private Map<String , Long> loadPhases;
+	/*
+	 * 叠加词典的基础词典，为null时表示独立的词典
+	 * 叠加词典的主词典和停止词集合只保存自身追加的词条，其余词典直接引用基础词典
+	 */
+	private final Dictionary base;
+	/*
+	 * 主词典的修改次数，追加词条后递增
+	 */
+	private volatile int mainVersion;
+	/*
+	 * 主词典的Aho-Corasick自动机，只包含本层的词条，首次使用时构建，主词典修改后重新构建
+	 */
+	private volatile AhoCorasickAutomaton mainAutomaton;
+	/*
+	 * 当前词典及各层基础词典的自动机，任一层的主词典修改后重新获取
+	 */
+	private volatile MainAutomata mainAutomata;
+	/*
+	 * 主词典的统计信息，首次统计时缓存，主词典替换后重新统计
+	 */
+	private volatile MainDictStats mainStats;
+	/*
+	 * 主词典的写锁，追加、删除词条及压缩主词典依次进行，检索不加锁
+	 */
+	private final Object mainDictLock = new Object();
+	/*
+	 * 上次压缩后删除的词条数目
+	 */
+	private int removedSinceCompact;
+	/*
+	 * 是否已提交后台压缩任务
+	 */
+	private boolean compactScheduled;
+	/*
+	 * 已应用的变更日志版本
+	 * 主词典为记录了版本的压缩词典时，初始为该版本，否则为0
+	 */
+	private volatile long appliedVersion;
 	
 	private Dictionary(){
+		this.base = null;
+		long begin = System.nanoTime();
+		loadPhases = new LinkedHashMap<String , Long>();
+		//加载扩展词典配置
+		List<String> extDictFiles  = Configuration.getExtDictionarys();
+		List<InputStream> extDicts = new ArrayList<InputStream>(extDictFiles.size());
+		for(String extDictName : extDictFiles){
+			//读取扩展词典文件,如果找不到扩展的字典，则忽略
+			extDicts.add(Dictionary.class.getResourceAsStream(extDictName));
+		}
 		//初始化系统词典
-		loadMainDict();
+		loadMainDict(null , extDicts);
 		loadSurnameDict();
 		loadQuantifierDict();
 		loadSuffixDict();
 		loadPrepDict();
 		loadStopWordDict();
+		//加载扩展停止词典
+		List<String> extStopWordDictFiles  = Configuration.getExtStopWordDictionarys();
+		for(String extStopWordDictName : extStopWordDictFiles){
+			//读取扩展停止词典文件,如果找不到扩展的字典，则忽略
+			loadStopWords(Dictionary.class.getResourceAsStream(extStopWordDictName) , "Extension Stop word Dictionary");
+		}
+		loadFinished(begin);
 	}
 
 	/**
-	 * 加载主词典及扩展词典
+	 * 创建独立的词典实例
+	 * 该实例与全局单例互不影响，用于Solr多core等需要各自词库的场景
+	 * 输入流在加载完成后关闭
+	 * @param mainDict 替换默认主词典的词库，为null时使用默认主词典
+	 * @param extDicts 扩展词典列表，可以为null
+	 * @param extStopWords 扩展停止词典列表，可以为null
 	 */
-	private void loadMainDict(){
-		//建立一个主词典实例
+	public Dictionary(InputStream mainDict , List<InputStream> extDicts , List<InputStream> extStopWords){
+		this.base = null;
+		long begin = System.nanoTime();
+		loadPhases = new LinkedHashMap<String , Long>();
+		loadMainDict(mainDict , extDicts);
+		loadSurnameDict();
+		loadQuantifierDict();
+		loadSuffixDict();
+		loadPrepDict();
+		loadStopWordDict();
+		if(extStopWords != null){
+			for(InputStream extStopWord : extStopWords){
+				loadStopWords(extStopWord , "Extension Stop word Dictionary");
+			}
+		}
+		loadFinished(begin);
+	}
+
+	/**
+	 * 创建空的叠加词典
+	 * @param base 基础词典
+	 */
+	private Dictionary(Dictionary base){
+		this.base = base;
+		//基础词典已应用的变更日志对叠加词典同样生效
+		appliedVersion = base.appliedVersion;
 		_MainDict = new DictSegment((char)0);
-		//读取主词典文件
-        InputStream is = Dictionary.class.getResourceAsStream(Dictionary.PATH_DIC_MAIN);
-        if(is == null){
-        	throw new RuntimeException("Main Dictionary not found!!!");
-        }
-        
-		try {
-			BufferedReader br = new BufferedReader(new InputStreamReader(is , "UTF-8"), 512);
-			String theWord = null;
-			do {
-				theWord = br.readLine();
-				if (theWord != null && !"".equals(theWord.trim())) {
-					_MainDict.fillSegment(theWord.trim().toCharArray());
-				}
-			} while (theWord != null);
-			
-		} catch (IOException ioe) {
-			System.err.println("Main Dictionary loading exception.");
-			ioe.printStackTrace();
-			
-		}finally{
-			try {
-				if(is != null){
-                    is.close();
-                    is = null;
-				}
-			} catch (IOException e) {
-				e.printStackTrace();
+		_SurnameDict = base._SurnameDict;
+		_QuantifierDict = base._QuantifierDict;
+		_SuffixDict = base._SuffixDict;
+		_PrepDict = base._PrepDict;
+		_StopWords = new StopWordSet();
+	}
+
+	/**
+	 * 以当前词典为基础创建叠加词典
+	 * 叠加词典只保存追加的词条和停止词，检索时同时查询基础词典，不复制基础词典的内容，
+	 * 内存占用只与追加的词条数目相关。适用于为每个租户、每个Analyzer甚至每次请求
+	 * 追加少量词条的场景，追加的词条对基础词典及其他叠加词典不可见
+	 * 叠加词典仍然可以作为基础词典，逐层叠加
+	 * @param extWords 追加的词条列表，可以为null
+	 * @param extStopWords 追加的停止词列表，可以为null
+	 * @return Dictionary 叠加词典
+	 */
+	public Dictionary createOverlay(List<String> extWords , List<String> extStopWords){
+		Dictionary overlay = new Dictionary(this);
+		overlay.addWords(extWords);
+		overlay.addStopWords(extStopWords);
+		return overlay;
+	}
+	
+	/**
+	 * 以当前词典为基础创建叠加词典，从输入流读取追加的词条
+	 * 输入流在加载完成后关闭
+	 * @param extDicts 扩展词典列表，可以为null
+	 * @param extStopWords 扩展停止词典列表，可以为null
+	 * @return Dictionary 叠加词典
+	 * @see #createOverlay(List, List)
+	 */
+	public Dictionary loadOverlay(List<InputStream> extDicts , List<InputStream> extStopWords){
+		long begin = System.nanoTime();
+		Dictionary overlay = new Dictionary(this);
+		overlay.loadPhases = new LinkedHashMap<String , Long>();
+		if(extDicts != null){
+			DictSegmentBuilder builder = new DictSegmentBuilder();
+			for(InputStream extDict : extDicts){
+				overlay.loadWords(builder , extDict , "Extension Dictionary");
 			}
+			overlay._MainDict = builder.build();
 		}
-		
-		//加载扩展词典配置
-		List<String> extDictFiles  = Configuration.getExtDictionarys();
-		if(extDictFiles != null){
-			for(String extDictName : extDictFiles){
-				//读取扩展词典文件
-				is = Dictionary.class.getResourceAsStream(extDictName);
-				//如果找不到扩展的字典，则忽略
-				if(is == null){
-					continue;
-				}
-				try {
-					BufferedReader br = new BufferedReader(new InputStreamReader(is , "UTF-8"), 512);
-					String theWord = null;
-					do {
-						theWord = br.readLine();
-						if (theWord != null && !"".equals(theWord.trim())) {
-							//加载扩展词典数据到主内存词典中
-							//System.out.println(theWord);
-							_MainDict.fillSegment(theWord.trim().toCharArray());
-						}
-					} while (theWord != null);
-					
-				} catch (IOException ioe) {
-					System.err.println("Extension Dictionary loading exception.");
-					ioe.printStackTrace();
-					
-				}finally{
-					try {
-						if(is != null){
-		                    is.close();
-		                    is = null;
-						}
-					} catch (IOException e) {
-						e.printStackTrace();
-					}
-				}
+		if(extStopWords != null){
+			for(InputStream extStopWord : extStopWords){
+				overlay.loadStopWords(extStopWord , "Extension Stop word Dictionary");
 			}
 		}
+		overlay.loadFinished(begin);
+		return overlay;
+	}
+	
+	/**
+	 * 获取叠加词典的基础词典
+	 * @return Dictionary 独立的词典返回null
+	 */
+	public Dictionary getBase(){
+		return base;
+	}
+
+	/**
+	 * 词典加载完成，发布加载事件
+	 * @param begin 开始加载的时刻（纳秒）
+	 */
+	private void loadFinished(long begin){
+		if(IKEvents.isEnabled()){
+			IKEvents.dictionaryLoaded(this , System.nanoTime() - begin , loadPhases);
+		}
+		loadPhases = null;
+	}
+
+	/**
+	 * 加载主词典及扩展词典
+	 * 主词典按顺序批量构建，扩展词典的词条排序后加入
+	 * @param mainDict 主词典输入流，为null时读取默认主词典
+	 * @param extDicts 扩展词典列表，可以为null
+	 */
+	private void loadMainDict(InputStream mainDict , List<InputStream> extDicts){
+		//读取主词典文件
+		InputStream is = mainDict;
+		if(is == null){
+			is = Dictionary.class.getResourceAsStream(Dictionary.PATH_DIC_MAIN);
+		}
+		if(is == null){
+			throw new RuntimeException("Main Dictionary not found!!!");
+		}
+		DictSegmentBuilder builder = new DictSegmentBuilder();
+		appliedVersion = loadWords(builder , is , "Main Dictionary");
+		if(extDicts != null){
+			for(InputStream extDict : extDicts){
+				loadWords(builder , extDict , "Extension Dictionary");
+			}
+		}
+		//建立一个主词典实例
+		_MainDict = builder.build();
 	}	
 	
 	/**
 	 * 加载姓氏词典
 	 */
 	private void loadSurnameDict(){
-		//建立一个姓氏词典实例
-		_SurnameDict = new DictSegment((char)0);
 		//读取姓氏词典文件
-        InputStream is = Dictionary.class.getResourceAsStream(Dictionary.PATH_DIC_SURNAME);
-        if(is == null){
-        	throw new RuntimeException("Surname Dictionary not found!!!");
-        }
-		try {
-			BufferedReader br = new BufferedReader(new InputStreamReader(is , "UTF-8"), 512);
-			String theWord = null;
-			do {
-				theWord = br.readLine();
-				if (theWord != null && !"".equals(theWord.trim())) {
-					_SurnameDict.fillSegment(theWord.trim().toCharArray());
-				}
-			} while (theWord != null);
-			
-		} catch (IOException ioe) {
-			System.err.println("Surname Dictionary loading exception.");
-			ioe.printStackTrace();
-			
-		}finally{
-			try {
-				if(is != null){
-                    is.close();
-                    is = null;
-				}
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
+		InputStream is = Dictionary.class.getResourceAsStream(Dictionary.PATH_DIC_SURNAME);
+		if(is == null){
+			throw new RuntimeException("Surname Dictionary not found!!!");
 		}
+		//建立一个姓氏词典实例
+		_SurnameDict = buildDict(is , "Surname Dictionary");
 	}
 	
 	/**
 	 * 加载量词词典
 	 */
 	private void loadQuantifierDict(){
-		//建立一个量词典实例
-		_QuantifierDict = new DictSegment((char)0);
 		//读取量词词典文件
-        InputStream is = Dictionary.class.getResourceAsStream(Dictionary.PATH_DIC_QUANTIFIER);
-        if(is == null){
-        	throw new RuntimeException("Quantifier Dictionary not found!!!");
-        }
-		try {
-			BufferedReader br = new BufferedReader(new InputStreamReader(is , "UTF-8"), 512);
-			String theWord = null;
-			do {
-				theWord = br.readLine();
-				if (theWord != null && !"".equals(theWord.trim())) {
-					_QuantifierDict.fillSegment(theWord.trim().toCharArray());
-				}
-			} while (theWord != null);
-			
-		} catch (IOException ioe) {
-			System.err.println("Quantifier Dictionary loading exception.");
-			ioe.printStackTrace();
-			
-		}finally{
-			try {
-				if(is != null){
-                    is.close();
-                    is = null;
-				}
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
+		InputStream is = Dictionary.class.getResourceAsStream(Dictionary.PATH_DIC_QUANTIFIER);
+		if(is == null){
+			throw new RuntimeException("Quantifier Dictionary not found!!!");
 		}
+		//建立一个量词典实例
+		_QuantifierDict = buildDict(is , "Quantifier Dictionary");
 	}
 	
 	/**
 	 * 加载后缀词典
 	 */
 	private void loadSuffixDict(){
-		//建立一个后缀词典实例
-		_SuffixDict = new DictSegment((char)0);
-		//读取量词词典文件
-        InputStream is = Dictionary.class.getResourceAsStream(Dictionary.PATH_DIC_SUFFIX);
-        if(is == null){
-        	throw new RuntimeException("Suffix Dictionary not found!!!");
-        }
-		try {
-			BufferedReader br = new BufferedReader(new InputStreamReader(is , "UTF-8"), 512);
-			String theWord = null;
-			do {
-				theWord = br.readLine();
-				if (theWord != null && !"".equals(theWord.trim())) {
-					_SuffixDict.fillSegment(theWord.trim().toCharArray());
-				}
-			} while (theWord != null);
-			
-		} catch (IOException ioe) {
-			System.err.println("Suffix Dictionary loading exception.");
-			ioe.printStackTrace();
-			
-		}finally{
-			try {
-				if(is != null){
-                    is.close();
-                    is = null;
-				}
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
+		//读取后缀词典文件
+		InputStream is = Dictionary.class.getResourceAsStream(Dictionary.PATH_DIC_SUFFIX);
+		if(is == null){
+			throw new RuntimeException("Suffix Dictionary not found!!!");
 		}
+		//建立一个后缀词典实例
+		_SuffixDict = buildDict(is , "Suffix Dictionary");
 	}			
 
 	/**
 	 * 加载介词\副词词典
 	 */
 	private void loadPrepDict(){
-		//建立一个介词\副词词典实例
-		_PrepDict = new DictSegment((char)0);
-		//读取量词词典文件
-        InputStream is = Dictionary.class.getResourceAsStream(Dictionary.PATH_DIC_PREP);
-        if(is == null){
-        	throw new RuntimeException("Preposition Dictionary not found!!!");
-        }
-		try {
-			BufferedReader br = new BufferedReader(new InputStreamReader(is , "UTF-8"), 512);
-			String theWord = null;
-			do {
-				theWord = br.readLine();
-				if (theWord != null && !"".equals(theWord.trim())) {
-					//System.out.println(theWord);
-					_PrepDict.fillSegment(theWord.trim().toCharArray());
-				}
-			} while (theWord != null);
-			
-		} catch (IOException ioe) {
-			System.err.println("Preposition Dictionary loading exception.");
-			ioe.printStackTrace();
-			
-		}finally{
-			try {
-				if(is != null){
-                    is.close();
-                    is = null;
-				}
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
+		//读取介词\副词词典文件
+		InputStream is = Dictionary.class.getResourceAsStream(Dictionary.PATH_DIC_PREP);
+		if(is == null){
+			throw new RuntimeException("Preposition Dictionary not found!!!");
 		}
+		//建立一个介词\副词词典实例
+		_PrepDict = buildDict(is , "Preposition Dictionary");
 	}
 	
 	/**
@@ -307,76 +363,97 @@ public class Dictionary {
 	 */
 	private void loadStopWordDict(){
 		//建立一个停止词典实例
-		_StopWords = new DictSegment((char)0);
-		//读取量词词典文件
-        InputStream is = Dictionary.class.getResourceAsStream(Dictionary.PATH_DIC_STOP);
-        if(is == null){
-        	throw new RuntimeException("Stopword Dictionary not found!!!");
-        }
+		_StopWords = new StopWordSet();
+		//读取停止词典文件
+		InputStream is = Dictionary.class.getResourceAsStream(Dictionary.PATH_DIC_STOP);
+		if(is == null){
+			throw new RuntimeException("Stopword Dictionary not found!!!");
+		}
+		loadStopWords(is , "Stopword Dictionary");
+	}
+	
+	/**
+	 * 从输入流读取停止词，读取完毕后一次加入停止词集合
+	 * @param is 词典输入流，为null时忽略
+	 * @param dictName 词典名称，用于输出异常信息
+	 */
+	private void loadStopWords(InputStream is , String dictName){
+		List<char[]> words = new ArrayList<char[]>();
+		loadWords(null , words , is , dictName);
+		_StopWords.addAll(words);
+	}
+	
+	/**
+	 * 从输入流读取词条，构建词典
+	 * @param is 词典输入流
+	 * @param dictName 词典名称，用于输出异常信息
+	 * @return DictSegment 词典树的根节点
+	 */
+	private DictSegment buildDict(InputStream is , String dictName){
+		DictSegmentBuilder builder = new DictSegmentBuilder();
+		loadWords(builder , is , dictName);
+		return builder.build();
+	}
+	
+	/**
+	 * 从输入流读取词条，加入词典构建器
+	 * 文本词典每行一个词条，以#开始的行为注释；也可以是DictionaryCompressor压缩的词典或gzip压缩的词典
+	 * 读取完毕后关闭输入流
+	 * @param builder 词典构建器
+	 * @param is 词典输入流，为null时忽略
+	 * @param dictName 词典名称，用于输出异常信息
+	 * @return long 压缩词典记录的词典版本，其他词典为0
+	 */
+	private long loadWords(DictSegmentBuilder builder , InputStream is , String dictName){
+		return loadWords(builder , null , is , dictName);
+	}
+	
+	/**
+	 * 从输入流读取词条，加入词典构建器，或收集到词条列表中
+	 * 文本词典每行一个词条，以#开始的行为注释；也可以是DictionaryCompressor压缩的词典或gzip压缩的词典
+	 * 读取完毕后关闭输入流
+	 * @param builder 词典构建器，为null时将词条收集到words中
+	 * @param words 词条列表
+	 * @param is 词典输入流，为null时忽略
+	 * @param dictName 词典名称，用于输出异常信息
+	 * @return long 压缩词典记录的词典版本，其他词典为0
+	 */
+	private long loadWords(DictSegmentBuilder builder , List<char[]> words , InputStream is , String dictName){
+		if(is == null){
+			return 0;
+		}
+		long begin = System.nanoTime();
+		//按文件头识别文本、压缩及gzip格式，逐个解码到重用的缓冲区
+		DictReader reader = new DictReader(is);
 		try {
-			BufferedReader br = new BufferedReader(new InputStreamReader(is , "UTF-8"), 512);
-			String theWord = null;
-			do {
-				theWord = br.readLine();
-				if (theWord != null && !"".equals(theWord.trim())) {
-					_StopWords.fillSegment(theWord.trim().toCharArray());
+			int length;
+			while((length = reader.next()) >= 0){
+				if(builder != null){
+					builder.add(reader.getWord() , length);
+				}else{
+					char[] word = new char[length];
+					System.arraycopy(reader.getWord() , 0 , word , 0 , length);
+					words.add(word);
 				}
-			} while (theWord != null);
+			}
 			
 		} catch (IOException ioe) {
-			System.err.println("Stopword Dictionary loading exception.");
+			System.err.println(dictName + " loading exception.");
 			ioe.printStackTrace();
 			
 		}finally{
 			try {
-				if(is != null){
-                    is.close();
-                    is = null;
-				}
+				reader.close();
 			} catch (IOException e) {
 				e.printStackTrace();
 			}
-		}
-		
-		//加载扩展停止词典
-		List<String> extStopWordDictFiles  = Configuration.getExtStopWordDictionarys();
-		if(extStopWordDictFiles != null){
-			for(String extStopWordDictName : extStopWordDictFiles){
-				//读取扩展词典文件
-				is = Dictionary.class.getResourceAsStream(extStopWordDictName);
-				//如果找不到扩展的字典，则忽略
-				if(is == null){
-					continue;
-				}
-				try {
-					BufferedReader br = new BufferedReader(new InputStreamReader(is , "UTF-8"), 512);
-					String theWord = null;
-					do {
-						theWord = br.readLine();
-						if (theWord != null && !"".equals(theWord.trim())) {
-							//System.out.println(theWord);
-							//加载扩展停止词典数据到内存中
-							_StopWords.fillSegment(theWord.trim().toCharArray());
-						}
-					} while (theWord != null);
-					
-				} catch (IOException ioe) {
-					System.err.println("Extension Stop word Dictionary loading exception.");
-					ioe.printStackTrace();
-					
-				}finally{
-					try {
-						if(is != null){
-		                    is.close();
-		                    is = null;
-						}
-					} catch (IOException e) {
-						e.printStackTrace();
-					}
-				}
+			if(loadPhases != null){
+				//同名的词库（如多个扩展词典）累计耗时
+				Long elapsed = loadPhases.get(dictName);
+				loadPhases.put(dictName, (elapsed == null ? 0L : elapsed) + System.nanoTime() - begin);
 			}
-		}		
-		
+		}
+		return reader.getDictVersion();
 	}			
 	
 	/**
@@ -389,7 +466,25 @@ public class Dictionary {
 	 * @return Dictionary
 	 */
 	public static Dictionary getInstance(){
-		return Dictionary.singleton;
+		return SingletonHolder.singleton;
+	}
+	
+	/**
+	 * 全局词典是否已经加载
+	 * 用于只在全局词典已被使用时读取其信息的场景（如JMX监控），不会触发词典加载
+	 * @return boolean
+	 */
+	public static boolean isInstanceLoaded(){
+		return singletonLoaded;
+	}
+	
+	/**
+	 * 获取只包含默认词库（不含IKAnalyzer.cfg.xml中的扩展词典）的共享基础词典
+	 * 该实例不应被修改，需要追加词条时在其上创建叠加词典
+	 * @return Dictionary
+	 */
+	static Dictionary getDefaultBase(){
+		return DefaultBaseHolder.defaultBase;
 	}
 	
 	/**
@@ -397,14 +492,7 @@ public class Dictionary {
 	 * @param extWords List<String>词条列表
 	 */
 	public static void loadExtendWords(List<String> extWords){
-		if(extWords != null){
-			for(String extWord : extWords){
-				if (extWord != null) {
-					//加载扩展词条到主内存词典中
-					singleton._MainDict.fillSegment(extWord.trim().toCharArray());
-				}
-			}
-		}
+		getInstance().addWords(extWords);
 	}
 	
 	/**
@@ -412,14 +500,23 @@ public class Dictionary {
 	 * @param extStopWords List<String>词条列表
 	 */
 	public static void loadExtendStopWords(List<String> extStopWords){
-		if(extStopWords != null){
-			for(String extStopWord : extStopWords){
-				if (extStopWord != null) {
-					//加载扩展的停止词条
-					singleton._StopWords.fillSegment(extStopWord.trim().toCharArray());
-				}
-			}
-		}
+		getInstance().addStopWords(extStopWords);
+	}
+	
+	/**
+	 * 删除主词典中的词条
+	 * @param words List<String>词条列表
+	 */
+	public static void removeExtendWords(List<String> words){
+		getInstance().removeWords(words);
+	}
+	
+	/**
+	 * 删除停止词条
+	 * @param stopWords List<String>词条列表
+	 */
+	public static void removeExtendStopWords(List<String> stopWords){
+		getInstance().removeStopWords(stopWords);
 	}
 	
 	/**
@@ -428,7 +525,7 @@ public class Dictionary {
 	 * @return Hit 匹配结果描述
 	 */
 	public static Hit matchInMainDict(char[] charArray){
-		return singleton._MainDict.match(charArray);
+		return getInstance()._MainDict.match(charArray);
 	}
 	
 	/**
@@ -439,7 +536,7 @@ public class Dictionary {
 	 * @return Hit 匹配结果描述
 	 */
 	public static Hit matchInMainDict(char[] charArray , int begin, int length){
-		return singleton._MainDict.match(charArray, begin, length);
+		return getInstance().matchMain(charArray, begin, length);
 	}
 	
 	/**
@@ -451,7 +548,36 @@ public class Dictionary {
 	 * @return Hit
 	 */
 	public static Hit matchInMainDictWithHit(char[] charArray , int currentIndex , Hit matchedHit){
+		return matchWithHit(charArray, currentIndex, matchedHit);
+	}
+	
+	/**
+	 * 从已匹配的Hit继续检索下一个字符，适用于所有词典
+	 * 与matchMain、matchQuantifier、matchSuffix等方法配合，逐字推进匹配，
+	 * 避免每增加一个字符都从词典根节点重新检索
+	 * @param charArray
+	 * @param currentIndex 下一个字符的位置
+	 * @param matchedHit 上一个字符的匹配结果，将被更新并返回
+	 * @return Hit 已不是前缀的Hit直接返回不匹配
+	 */
+	public static Hit matchWithHit(char[] charArray , int currentIndex , Hit matchedHit){
+		Hit[] layers = matchedHit.getLayers();
+		if(layers != null){
+			//叠加词典的匹配结果，各层分别继续检索后合并状态
+			matchedHit.setUnmatch();
+			matchedHit.setEnd(currentIndex);
+			for(Hit layer : layers){
+				matchedHit.mergeState(matchWithHit(charArray, currentIndex, layer));
+			}
+			return matchedHit;
+		}
 		DictSegment ds = matchedHit.getMatchedDictSegment();
+		if(!matchedHit.isPrefix() || ds == null){
+			//已不是任何词的前缀，不可能继续匹配
+			matchedHit.setUnmatch();
+			matchedHit.setEnd(currentIndex);
+			return matchedHit;
+		}
 		return ds.match(charArray, currentIndex, 1 , matchedHit);
 	}
 
@@ -463,7 +589,7 @@ public class Dictionary {
 	 * @return Hit 匹配结果描述
 	 */
 	public static Hit matchInSurnameDict(char[] charArray , int begin, int length){
-		return singleton._SurnameDict.match(charArray, begin, length);
+		return getInstance().matchSurname(charArray, begin, length);
 	}		
 	
 //	/**
@@ -494,7 +620,7 @@ public class Dictionary {
 	 * @return Hit 匹配结果描述
 	 */
 	public static Hit matchInQuantifierDict(char[] charArray , int begin, int length){
-		return singleton._QuantifierDict.match(charArray, begin, length);
+		return getInstance().matchQuantifier(charArray, begin, length);
 	}
 	
 	/**
@@ -505,7 +631,7 @@ public class Dictionary {
 	 * @return Hit 匹配结果描述
 	 */
 	public static Hit matchInSuffixDict(char[] charArray , int begin, int length){
-		return singleton._SuffixDict.match(charArray, begin, length);
+		return getInstance().matchSuffix(charArray, begin, length);
 	}
 	
 //	/**
@@ -537,7 +663,7 @@ public class Dictionary {
 	 * @return  Hit 匹配结果描述
 	 */
 	public static Hit matchInPrepDict(char[] charArray , int begin, int length){
-		return singleton._PrepDict.match(charArray, begin, length);
+		return getInstance().matchPrep(charArray, begin, length);
 	}
 	
 	/**
@@ -548,6 +674,380 @@ public class Dictionary {
 	 * @return boolean
 	 */
 	public static boolean isStopWord(char[] charArray , int begin, int length){			
-		return singleton._StopWords.match(charArray, begin, length).isMatch();
+		return getInstance().containsStopWord(charArray, begin, length);
+	}
+	
+	/**
+	 * 向当前词典实例加载扩展的词条
+	 * 只复制各词条从根节点开始的路径，新的词典树整体发布，正在检索的线程不受影响
+	 * @param extWords List<String>词条列表
+	 */
+	public void addWords(List<String> extWords){
+		if(extWords != null){
+			Map<String , Boolean> changes = new LinkedHashMap<String , Boolean>();
+			for(String extWord : extWords){
+				if (extWord != null) {
+					changes.put(extWord , Boolean.TRUE);
+				}
+			}
+			synchronized(mainDictLock){
+				updateMainDict(changes);
+			}
+		}
+	}
+	
+	/**
+	 * 删除当前词典实例主词典中的词条
+	 * 词条立即失效，词典树中留下的节点在删除的词条累计较多时由后台线程压缩，
+	 * 也可以调用compactMainDict()立即压缩
+	 * 叠加词典只能删除自身追加的词条，基础词典中的词条不受影响
+	 * @param words List<String>词条列表
+	 * @return int 实际删除的词条数目
+	 */
+	public int removeWords(List<String> words){
+		int removed = 0;
+		if(words != null){
+			Map<String , Boolean> changes = new LinkedHashMap<String , Boolean>();
+			for(String word : words){
+				if (word != null) {
+					changes.put(word , Boolean.FALSE);
+				}
+			}
+			synchronized(mainDictLock){
+				removed = updateMainDict(changes);
+			}
+		}
+		return removed;
+	}
+	
+	/**
+	 * 应用主词典的变更日志
+	 * 只应用比当前版本新的记录，同一词条以最后一条记录为准，重复应用同一日志不会重复修改
+	 * 日志中的变更一次发布，检索线程看不到只应用了一部分的词典
+	 * 日志校验失败、格式错误或者基础版本高于当前版本（缺少中间的变更）时抛出异常，词典不变
+	 * 叠加词典的版本从创建时基础词典的版本开始；叠加词典只能删除自身追加的词条，
+	 * 日志删除的词条仍存在于基础词典中时抛出异常，词典及版本不变，应先对基础词典应用该日志
+	 * 输入流在读取完毕后关闭
+	 * @param changeLog 变更日志输入流
+	 * @return long 应用后的词典版本
+	 * @throws IOException
+	 * @see DictionaryChangeLog
+	 */
+	public long applyChangeLog(InputStream changeLog) throws IOException{
+		DictionaryChangeLog log = DictionaryChangeLog.read(changeLog);
+		synchronized(mainDictLock){
+			Map<String , Boolean> changes = log.changesAfter(appliedVersion);
+			if(base != null){
+				//先检查全部删除的词条，不应用只能完成一部分的日志
+				for(Map.Entry<String , Boolean> change : changes.entrySet()){
+					char[] word = change.getKey().trim().toCharArray();
+					if(!change.getValue().booleanValue() && word.length > 0 
+							&& base.matchMain(word , 0 , word.length).isMatch()){
+						throw new IOException("Overlay dictionary cannot remove base dictionary word : " + change.getKey().trim());
+					}
+				}
+			}
+			updateMainDict(changes);
+			if(log.getVersion() > appliedVersion){
+				appliedVersion = log.getVersion();
+			}
+			return appliedVersion;
+		}
+	}
+	
+	/**
+	 * 在一批持久化更新中追加、删除词条，完成后一次发布新的根节点
+	 * 各词条只复制自身从根节点开始的路径，正在检索的线程继续使用原有的词典树
+	 * 调用者持有mainDictLock
+	 * @param changes 词条 : true为追加，false为删除
+	 * @return int 实际删除的词条数目
+	 */
+	private int updateMainDict(Map<String , Boolean> changes){
+		DictSegment root = _MainDict;
+		Set<DictSegment> fresh = newFreshSet();
+		int removed = 0;
+		for(Map.Entry<String , Boolean> change : changes.entrySet()){
+			char[] word = change.getKey().trim().toCharArray();
+			boolean add = change.getValue().booleanValue();
+			//已存在的词条不再追加，不存在的词条不删除，都不复制节点
+			if(word.length > 0 && root.match(word , 0 , word.length).isMatch() != add){
+				root = root.update(word , 0 , word.length , add , fresh);
+				if(!add){
+					removed++;
+				}
+			}
+		}
+		if(root != _MainDict){
+			_MainDict = root;
+			mainVersion++;
+		}
+		if(removed > 0){
+			removedSinceCompact += removed;
+			if(removedSinceCompact >= COMPACT_THRESHOLD && !compactScheduled){
+				compactScheduled = true;
+				CompactorHolder.compactor.execute(new Runnable(){
+					public void run() {
+						compactMainDict();
+					}
+				});
+			}
+		}
+		return removed;
+	}
+	
+	/**
+	 * 已应用的变更日志版本
+	 * @return long 主词典为记录了版本的压缩词典时，不低于该版本；叠加词典从创建时基础词典的版本开始；否则从0开始
+	 */
+	public long getAppliedVersion(){
+		return appliedVersion;
+	}
+	
+	/**
+	 * 一批持久化更新中复制或新建的节点，按引用比较
+	 */
+	private static Set<DictSegment> newFreshSet(){
+		return Collections.newSetFromMap(new IdentityHashMap<DictSegment , Boolean>());
+	}
+	
+	/**
+	 * 压缩主词典，删除不再含有词条的节点，子节点减少的节点改用较小的存储结构
+	 * 压缩后的词典树整体替换，检索不加锁，正在进行的检索继续使用原有的词典树
+	 * 需要遍历整个词典树，压缩期间追加、删除词条的操作等待压缩完成
+	 */
+	public void compactMainDict(){
+		synchronized(mainDictLock){
+			DictSegment root = _MainDict.compact();
+			if(root != _MainDict){
+				_MainDict = root;
+				//节点的前缀状态可能变化，自动机需要重新构建
+				mainVersion++;
+			}
+			removedSinceCompact = 0;
+			compactScheduled = false;
+		}
+	}
+	
+	/**
+	 * 向当前词典实例加载扩展的停止词条
+	 * @param extStopWords List<String>词条列表
+	 */
+	public void addStopWords(List<String> extStopWords){
+		if(extStopWords != null){
+			List<char[]> words = new ArrayList<char[]>(extStopWords.size());
+			for(String extStopWord : extStopWords){
+				if (extStopWord != null) {
+					words.add(extStopWord.trim().toCharArray());
+				}
+			}
+			//加载扩展的停止词条
+			_StopWords.addAll(words);
+		}
+	}
+	
+	/**
+	 * 删除当前词典实例的停止词条
+	 * 叠加词典只能删除自身追加的停止词，基础词典中的停止词不受影响
+	 * @param stopWords List<String>词条列表
+	 */
+	public void removeStopWords(List<String> stopWords){
+		if(stopWords != null){
+			List<char[]> words = new ArrayList<char[]>(stopWords.size());
+			for(String stopWord : stopWords){
+				if (stopWord != null) {
+					words.add(stopWord.trim().toCharArray());
+				}
+			}
+			_StopWords.removeAll(words);
+		}
+	}
+	
+	/**
+	 * 在当前词典实例中检索匹配主词典
+	 * @param charArray
+	 * @param begin
+	 * @param length
+	 * @return Hit 匹配结果描述
+	 */
+	public Hit matchMain(char[] charArray , int begin, int length){
+		if(base == null){
+			return _MainDict.match(charArray, begin, length);
+		}
+		Hit baseHit = base.matchMain(charArray, begin, length);
+		DictSegment mainDict = _MainDict;
+		if(!mainDict.hasNextNode()){
+			//没有追加的词条
+			return baseHit;
+		}
+		Hit overlayHit = mainDict.match(charArray, begin, length);
+		//合并基础词典和叠加词典的匹配结果，继续检索时分别推进
+		Hit hit = new Hit();
+		hit.setBegin(begin);
+		hit.setEnd(Math.max(baseHit.getEnd() , overlayHit.getEnd()));
+		hit.mergeState(baseHit);
+		hit.mergeState(overlayHit);
+		hit.setLayers(new Hit[]{baseHit , overlayHit});
+		return hit;
+	}
+	
+	/**
+	 * 获取主词典的Aho-Corasick自动机
+	 * 叠加词典的自动机只包含自身追加的词条，与各层基础词典的自动机一起使用，参见getMainAutomata()
+	 * 自动机在首次调用时构建，主词典追加、删除词条或压缩后重新构建
+	 * 构建需要展开整个词典树，状态数目与词典树的路径数目相同，内存占用与主词典相当
+	 * @return AhoCorasickAutomaton
+	 */
+	public AhoCorasickAutomaton getMainAutomaton(){
+		AhoCorasickAutomaton automaton = this.mainAutomaton;
+		if(automaton == null || automaton.getStamp() != mainVersion){
+			synchronized(this){
+				automaton = this.mainAutomaton;
+				//先取修改标记再读取词典树，构建期间追加的词条会在下次调用时重新构建
+				int version = mainVersion;
+				if(automaton == null || automaton.getStamp() != version){
+					automaton = new AhoCorasickAutomaton(_MainDict , version);
+					this.mainAutomaton = automaton;
+				}
+			}
+		}
+		return automaton;
+	}
+	
+	/**
+	 * 获取当前词典及各层基础词典的主词典自动机，基础词典在前
+	 * 各层的自动机由各自的词典构建和缓存，叠加词典不展开基础词典的词条：
+	 * 同一基础词典上的多个叠加词典共享基础词典的自动机，每个叠加词典只占用自身词条的自动机
+	 * 没有追加词条的叠加词典不包含在内
+	 * @return AhoCorasickAutomaton[] 至少包含最底层词典的自动机
+	 */
+	public AhoCorasickAutomaton[] getMainAutomata(){
+		MainAutomata cached = this.mainAutomata;
+		long stamp = mainStamp();
+		if(cached == null || cached.stamp != stamp){
+			List<AhoCorasickAutomaton> automata = new ArrayList<AhoCorasickAutomaton>(2);
+			for(Dictionary dict = this ; dict != null ; dict = dict.base){
+				if(dict.base == null || dict._MainDict.hasNextNode()){
+					automata.add(0 , dict.getMainAutomaton());
+				}
+			}
+			cached = new MainAutomata(stamp , automata.toArray(new AhoCorasickAutomaton[automata.size()]));
+			this.mainAutomata = cached;
+		}
+		return cached.automata;
+	}
+	
+	/**
+	 * 当前词典及各层基础词典的主词典修改次数之和
+	 */
+	private long mainStamp(){
+		long stamp = 0;
+		for(Dictionary dict = this ; dict != null ; dict = dict.base){
+			stamp += dict.mainVersion;
+		}
+		return stamp;
+	}
+	
+	/**
+	 * 在当前词典实例中检索匹配姓氏词典
+	 * @param charArray
+	 * @param begin
+	 * @param length
+	 * @return Hit 匹配结果描述
+	 */
+	public Hit matchSurname(char[] charArray , int begin, int length){
+		return _SurnameDict.match(charArray, begin, length);
+	}
+	
+	/**
+	 * 在当前词典实例中检索匹配量词词典
+	 * @param charArray
+	 * @param begin
+	 * @param length
+	 * @return Hit 匹配结果描述
+	 */
+	public Hit matchQuantifier(char[] charArray , int begin, int length){
+		return _QuantifierDict.match(charArray, begin, length);
+	}
+	
+	/**
+	 * 在当前词典实例中检索匹配后缀词典
+	 * @param charArray
+	 * @param begin
+	 * @param length
+	 * @return Hit 匹配结果描述
+	 */
+	public Hit matchSuffix(char[] charArray , int begin, int length){
+		return _SuffixDict.match(charArray, begin, length);
+	}
+	
+	/**
+	 * 在当前词典实例中检索匹配介词、副词词典
+	 * @param charArray
+	 * @param begin
+	 * @param length
+	 * @return Hit 匹配结果描述
+	 */
+	public Hit matchPrep(char[] charArray , int begin, int length){
+		return _PrepDict.match(charArray, begin, length);
+	}
+	
+	/**
+	 * 统计主词典的词条数、节点数及估算的内存占用
+	 * 叠加词典只统计自身追加的词条
+	 * 统计需要遍历整个词典树，结果按词典树缓存，主词典追加、删除词条或压缩后的首次调用重新统计
+	 * @return DictionaryStats
+	 */
+	public DictionaryStats getMainDictStats(){
+		DictSegment root = _MainDict;
+		MainDictStats cached = this.mainStats;
+		if(cached == null || cached.root != root){
+			DictionaryStats stats = new DictionaryStats();
+			root.collectStats(stats , 0);
+			cached = new MainDictStats(root , stats);
+			this.mainStats = cached;
+		}
+		return cached.stats;
+	}
+	
+	/**
+	 * 判断在当前词典实例中是否是停止词
+	 * @param charArray
+	 * @param begin
+	 * @param length
+	 * @return boolean
+	 */
+	public boolean containsStopWord(char[] charArray , int begin, int length){
+		if(_StopWords.contains(charArray, begin, length)){
+			return true;
+		}
+		return base != null && base.containsStopWord(charArray, begin, length);
 	}	
+	
+	/**
+	 * 各层主词典自动机的缓存项
+	 */
+	private static class MainAutomata{
+		//获取时各层主词典修改次数之和
+		private final long stamp;
+		private final AhoCorasickAutomaton[] automata;
+		
+		private MainAutomata(long stamp , AhoCorasickAutomaton[] automata){
+			this.stamp = stamp;
+			this.automata = automata;
+		}
+	}
+	
+	/**
+	 * 主词典统计信息的缓存项
+	 */
+	private static class MainDictStats{
+		//统计时的词典树根节点
+		private final DictSegment root;
+		private final DictionaryStats stats;
+		
+		private MainDictStats(DictSegment root , DictionaryStats stats){
+			this.root = root;
+			this.stats = stats;
+		}
+	}
 }
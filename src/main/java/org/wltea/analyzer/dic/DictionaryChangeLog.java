@@ -0,0 +1,346 @@
+/**
+ * 
+ */
+package org.wltea.analyzer.dic;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+/**
+ * IK Analyzer v3.2
+ * 主词典的变更日志
+ * 按顺序记录词条的追加和删除，每条记录带有版本，Dictionary只应用比自身版本新的记录，
+ * 分发词库更新时只需要传输变更日志，不必传输和重新解析整个词典
+ *
+ * 日志为UTF-8编码的文本，每行一项：
+ *   IKLOG 1              文件头，1为格式版本
+ *   base 基础版本         可选，日志只包含该版本之后的变更，默认为0
+ *   版本 +词条            追加词条
+ *   版本 -词条            删除词条
+ *   checksum CRC32       最后一行，之前所有字节的CRC32，8位十六进制
+ * 记录的版本大于基础版本且不减小，同一版本可以有多条记录；空行及以#开始的行为注释
+ * 写出的日志以\n换行；校验时\r\n按\n计算，经过编辑器或版本控制转换为\r\n换行的日志仍然有效
+ *
+ * 日志较长时，用compact()合并到基础词典中，生成记录合并后版本的压缩词典，
+ * 之后的日志以该版本为基础版本
+ * java org.wltea.analyzer.dic.DictionaryChangeLog [-gzip] 基础词典文件 变更日志文件 输出文件
+ * @author 林良益
+ *
+ */
+public final class DictionaryChangeLog {
+
+	//文件头
+	private static final String HEADER = "IKLOG 1";
+	//基础版本
+	private static final String BASE = "base ";
+	//校验和
+	private static final String CHECKSUM = "checksum ";
+	//字符编码
+	private static final String ENCODING = "UTF-8";
+
+	/*
+	 * 一条变更记录
+	 */
+	private static final class Record{
+		private final long version;
+		//true为追加，false为删除
+		private final boolean add;
+		private final String word;
+
+		private Record(long version , boolean add , String word){
+			this.version = version;
+			this.add = add;
+			this.word = word;
+		}
+	}
+
+	//基础版本
+	private final long baseVersion;
+	//按顺序排列的变更记录
+	private final List<Record> records = new ArrayList<Record>();
+
+	/**
+	 * 创建空的变更日志
+	 * @param baseVersion 基础版本，之后追加的记录版本必须大于该版本
+	 */
+	public DictionaryChangeLog(long baseVersion){
+		if(baseVersion < 0){
+			throw new IllegalArgumentException("基础版本不能小于0");
+		}
+		this.baseVersion = baseVersion;
+	}
+
+	/**
+	 * 记录追加词条
+	 * @param version 版本，不小于上一条记录的版本
+	 * @param word 词条
+	 */
+	public void add(long version , String word){
+		append(version , true , word);
+	}
+
+	/**
+	 * 记录删除词条
+	 * @param version 版本，不小于上一条记录的版本
+	 * @param word 词条
+	 */
+	public void remove(long version , String word){
+		append(version , false , word);
+	}
+
+	private void append(long version , boolean add , String word){
+		if(version <= baseVersion || version < getVersion()){
+			throw new IllegalArgumentException("版本 " + version + " 小于基础版本或上一条记录的版本");
+		}
+		String w = word != null ? word.trim() : "";
+		if(w.length() == 0 || w.indexOf('\n') >= 0 || w.indexOf('\r') >= 0){
+			throw new IllegalArgumentException("词条为空或包含换行");
+		}
+		records.add(new Record(version , add , w));
+	}
+
+	/**
+	 * 基础版本，应用日志的词典版本不能低于该版本
+	 */
+	public long getBaseVersion(){
+		return baseVersion;
+	}
+
+	/**
+	 * 日志的最新版本，即最后一条记录的版本，没有记录时为基础版本
+	 */
+	public long getVersion(){
+		return records.isEmpty() ? baseVersion : records.get(records.size() - 1).version;
+	}
+
+	/**
+	 * 记录数目
+	 */
+	public int size(){
+		return records.size();
+	}
+
+	/**
+	 * 版本之后的变更，同一词条的多条记录以最后一条为准
+	 * @param version 词典已应用的版本
+	 * @return Map<String , Boolean> 词条 : true为追加，false为删除，按首次出现的顺序排列
+	 * @throws IOException 词典版本低于基础版本，缺少中间的变更
+	 */
+	Map<String , Boolean> changesAfter(long version) throws IOException{
+		if(version < baseVersion){
+			throw new IOException("Change log requires dictionary version " + baseVersion
+					+ " , but the dictionary is at version " + version);
+		}
+		Map<String , Boolean> changes = new LinkedHashMap<String , Boolean>();
+		for(Record record : records){
+			if(record.version > version){
+				changes.put(record.word , Boolean.valueOf(record.add));
+			}
+		}
+		return changes;
+	}
+
+	/**
+	 * 写出变更日志，不关闭输出流
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write(OutputStream out) throws IOException{
+		StringBuilder sb = new StringBuilder(HEADER.length() + BASE.length() + records.size() * 16);
+		sb.append(HEADER).append('\n');
+		sb.append(BASE).append(baseVersion).append('\n');
+		for(Record record : records){
+			sb.append(record.version).append(' ').append(record.add ? '+' : '-').append(record.word).append('\n');
+		}
+		byte[] body = sb.toString().getBytes(ENCODING);
+		CRC32 crc = new CRC32();
+		crc.update(body);
+		out.write(body);
+		out.write((CHECKSUM + String.format("%08x" , crc.getValue()) + "\n").getBytes(ENCODING));
+		out.flush();
+	}
+
+	/**
+	 * 读取变更日志，校验和不一致或格式错误时不返回任何记录
+	 * 读取完毕后关闭输入流
+	 * @param in
+	 * @return DictionaryChangeLog
+	 * @throws IOException 校验和不一致或格式错误
+	 */
+	public static DictionaryChangeLog read(InputStream in) throws IOException{
+		byte[] bytes = readFully(in);
+		//最后一个非空行为校验和
+		int end = bytes.length;
+		while(end > 0 && (bytes[end - 1] == '\n' || bytes[end - 1] == '\r')){
+			end--;
+		}
+		int start = end;
+		while(start > 0 && bytes[start - 1] != '\n'){
+			start--;
+		}
+		String trailer = new String(bytes , start , end - start , ENCODING);
+		if(!trailer.startsWith(CHECKSUM)){
+			throw new IOException("Change log checksum missing");
+		}
+		CRC32 crc = new CRC32();
+		updateNormalized(crc , bytes , start);
+		long checksum;
+		try{
+			checksum = Long.parseLong(trailer.substring(CHECKSUM.length()).trim() , 16);
+		}catch(NumberFormatException e){
+			throw new IOException("Change log checksum malformed : " + trailer);
+		}
+		if(checksum != crc.getValue()){
+			throw new IOException("Change log checksum mismatch");
+		}
+
+		String[] lines = new String(bytes , 0 , start , ENCODING).split("\n");
+		DictionaryChangeLog log = null;
+		boolean headerRead = false;
+		for(int i = 0 ; i < lines.length ; i++){
+			String line = lines[i].trim();
+			if(line.length() == 0 || line.charAt(0) == '#'){
+				continue;
+			}
+			try{
+				if(!headerRead){
+					if(!HEADER.equals(line)){
+						throw new IOException("Unsupported change log header : " + line);
+					}
+					headerRead = true;
+				}else if(line.startsWith(BASE)){
+					if(log != null){
+						throw new IOException("Duplicate or misplaced base version");
+					}
+					log = new DictionaryChangeLog(Long.parseLong(line.substring(BASE.length()).trim()));
+				}else{
+					if(log == null){
+						log = new DictionaryChangeLog(0);
+					}
+					int space = line.indexOf(' ');
+					if(space < 0 || space + 1 >= line.length()){
+						throw new IOException("Malformed record");
+					}
+					long version = Long.parseLong(line.substring(0 , space));
+					char op = line.charAt(space + 1);
+					if(op == '+'){
+						log.add(version , line.substring(space + 2));
+					}else if(op == '-'){
+						log.remove(version , line.substring(space + 2));
+					}else{
+						throw new IOException("Unknown operation : " + op);
+					}
+				}
+			}catch(IllegalArgumentException e){
+				//含版本号格式错误（NumberFormatException）
+				throw new IOException("Change log line " + (i + 1) + " : " + e.getMessage());
+			}catch(IOException e){
+				throw new IOException("Change log line " + (i + 1) + " : " + e.getMessage());
+			}
+		}
+		if(!headerRead){
+			throw new IOException("Change log header missing");
+		}
+		return log != null ? log : new DictionaryChangeLog(0);
+	}
+
+	/**
+	 * 计算校验和，\r\n按\n计算，与write()写出的字节一致
+	 * @param crc
+	 * @param bytes
+	 * @param length 计算bytes的[0 , length)
+	 */
+	private static void updateNormalized(CRC32 crc , byte[] bytes , int length){
+		int from = 0;
+		for(int i = 0 ; i < length - 1 ; i++){
+			if(bytes[i] == '\r' && bytes[i + 1] == '\n'){
+				//跳过\r
+				crc.update(bytes , from , i - from);
+				from = i + 1;
+			}
+		}
+		crc.update(bytes , from , length - from);
+	}
+
+	/**
+	 * 将变更日志合并到基础词典中，写出记录合并后版本的压缩词典
+	 * 基础词典可以是文本词典或压缩词典，只合并比基础词典版本新的记录
+	 * 读取完毕后关闭输入流，不关闭输出流
+	 * @param baseDict 基础词典
+	 * @param changeLog 变更日志
+	 * @param out 压缩词典的输出流
+	 * @param gzip 是否再用gzip压缩
+	 * @return long 合并后的词典版本
+	 * @throws IOException
+	 */
+	public static long compact(InputStream baseDict , InputStream changeLog , OutputStream out , boolean gzip) throws IOException{
+		DictionaryChangeLog log = read(changeLog);
+		TreeSet<String> words = new TreeSet<String>();
+		long version;
+		DictReader reader = new DictReader(baseDict);
+		try{
+			int length;
+			while((length = reader.next()) >= 0){
+				words.add(new String(reader.getWord() , 0 , length));
+			}
+			version = reader.getDictVersion();
+		}finally{
+			reader.close();
+		}
+		for(Map.Entry<String , Boolean> change : log.changesAfter(version).entrySet()){
+			if(change.getValue().booleanValue()){
+				words.add(change.getKey());
+			}else{
+				words.remove(change.getKey());
+			}
+		}
+		long newVersion = Math.max(version , log.getVersion());
+		DictionaryCompressor.write(words , out , gzip , newVersion);
+		return newVersion;
+	}
+
+	public static void main(String[] args) throws IOException{
+		boolean gzip = false;
+		int i = 0;
+		if(args.length > 0 && "-gzip".equals(args[0])){
+			gzip = true;
+			i++;
+		}
+		if(args.length - i != 3){
+			System.err.println("Usage: java " + DictionaryChangeLog.class.getName()
+					+ " [-gzip] <base dictionary> <change log> <output file>");
+			return;
+		}
+		OutputStream out = new FileOutputStream(args[i + 2]);
+		try{
+			long version = compact(new FileInputStream(args[i]) , new FileInputStream(args[i + 1]) , out , gzip);
+			System.out.println("version : " + version);
+		}finally{
+			out.close();
+		}
+	}
+
+	private static byte[] readFully(InputStream in) throws IOException{
+		try{
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int n;
+			while((n = in.read(buffer)) >= 0){
+				out.write(buffer , 0 , n);
+			}
+			return out.toByteArray();
+		}finally{
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,172 @@
+/**
+ * 
+ */
+package org.wltea.analyzer.dic;
+
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * IK Analyzer v3.2
+ * 词典压缩命令行工具
+ * 将词典的词条排序去重后按前缀压缩（front coding），可以再用gzip压缩
+ * 压缩后的词典可以直接作为主词典、扩展词典或停止词典加载（如Solr的dict_image、ext_dict），
+ * 加载时按文件头自动识别，并按顺序批量构建词典树
+ *
+ * java org.wltea.analyzer.dic.DictionaryCompressor [-gzip] [-version 词典版本] 输入词典文件 输出文件
+ *
+ * 压缩格式，整数均为变长编码（每字节7位，低位在前，最高位为1表示后续还有字节）：
+ *   文件头 "IKDC" ，格式版本（1字节），词典版本（格式版本1没有该项）
+ *   词典版本为已经合并到词典中的变更日志版本，见DictionaryChangeLog
+ *   若干分块，每块为 词条数 ，各词条；每块最多BLOCK_SIZE个词条
+ *   词条为 与前一词条的公共前缀长度 ，后缀长度 ，后缀的各个字符（UTF-16码元）
+ *   每块的第一个词条公共前缀长度为0，不依赖前一块
+ *   结束标记 0
+ * @author 林良益
+ *
+ */
+public final class DictionaryCompressor {
+
+	//输出缓冲区大小
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private DictionaryCompressor(){
+	}
+
+	public static void main(String[] args) throws IOException{
+		boolean gzip = false;
+		long version = 0;
+		int i = 0;
+		while(i < args.length && args[i].startsWith("-")){
+			if("-gzip".equals(args[i])){
+				gzip = true;
+				i++;
+			}else if("-version".equals(args[i]) && i + 1 < args.length){
+				version = Long.parseLong(args[i + 1]);
+				i += 2;
+			}else{
+				usage();
+				return;
+			}
+		}
+		if(args.length - i != 2){
+			usage();
+			return;
+		}
+		InputStream in = new FileInputStream(args[i]);
+		OutputStream out = new FileOutputStream(args[i + 1]);
+		try{
+			int count = compress(in , out , gzip , version);
+			System.out.println("words : " + count);
+		}finally{
+			out.close();
+		}
+	}
+
+	/**
+	 * 压缩词典，不记录词典版本
+	 * @see #compress(InputStream, OutputStream, boolean, long)
+	 */
+	public static int compress(InputStream in , OutputStream out , boolean gzip) throws IOException{
+		return compress(in , out , gzip , 0);
+	}
+
+	/**
+	 * 压缩词典
+	 * 输入可以是文本词典，也可以是已经压缩的词典，读取完毕后关闭输入流，不关闭输出流
+	 * @param in 词典输入流
+	 * @param out 压缩词典的输出流
+	 * @param gzip 是否再用gzip压缩
+	 * @param version 词典版本，即已经合并到词典中的变更日志版本
+	 * @return int 写出的词条数
+	 * @throws IOException
+	 */
+	public static int compress(InputStream in , OutputStream out , boolean gzip , long version) throws IOException{
+		//按字符顺序排序去重，与词典树的批量构建顺序一致
+		TreeSet<String> words = new TreeSet<String>();
+		DictReader reader = new DictReader(in);
+		try{
+			int length;
+			while((length = reader.next()) >= 0){
+				words.add(new String(reader.getWord() , 0 , length));
+			}
+		}finally{
+			reader.close();
+		}
+		write(words , out , gzip , version);
+		return words.size();
+	}
+
+	/**
+	 * 写出压缩词典，不关闭输出流
+	 * @param words 按字符顺序排列、不重复的词条
+	 * @param out 压缩词典的输出流
+	 * @param gzip 是否再用gzip压缩
+	 * @param version 词典版本
+	 * @throws IOException
+	 */
+	static void write(SortedSet<String> words , OutputStream out , boolean gzip , long version) throws IOException{
+		GZIPOutputStream gzipOut = null;
+		OutputStream os = out;
+		if(gzip){
+			gzipOut = new GZIPOutputStream(out , BUFFER_SIZE);
+			os = gzipOut;
+		}
+		os = new BufferedOutputStream(os , BUFFER_SIZE);
+		os.write(DictReader.MAGIC);
+		os.write(DictReader.VERSION);
+		writeVarint(os , version);
+		int remaining = words.size();
+		int blockRemaining = 0;
+		String previous = "";
+		for(String word : words){
+			if(blockRemaining == 0){
+				blockRemaining = Math.min(remaining , DictReader.BLOCK_SIZE);
+				writeVarint(os , blockRemaining);
+				previous = "";
+			}
+			int shared = 0;
+			int limit = Math.min(word.length() , previous.length());
+			while(shared < limit && word.charAt(shared) == previous.charAt(shared)){
+				shared++;
+			}
+			writeVarint(os , shared);
+			writeVarint(os , word.length() - shared);
+			for(int j = shared ; j < word.length() ; j++){
+				writeVarint(os , word.charAt(j));
+			}
+			previous = word;
+			blockRemaining--;
+			remaining--;
+		}
+		//结束标记
+		writeVarint(os , 0);
+		os.flush();
+		if(gzipOut != null){
+			gzipOut.finish();
+		}
+	}
+
+	/**
+	 * 写出变长编码的非负整数
+	 */
+	private static void writeVarint(OutputStream os , long value) throws IOException{
+		while((value & ~0x7F) != 0){
+			os.write((int)(value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		os.write((int)value);
+	}
+
+	private static void usage(){
+		System.err.println("Usage: java " + DictionaryCompressor.class.getName()
+				+ " [-gzip] [-version <version>] <input file> <output file>");
+	}
+}
@@ -0,0 +1,191 @@
+/**
+ * 
+ */
+package org.wltea.analyzer.dic;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * IK Analyzer v3.2
+ * 词典实例注册表
+ * 词库内容完全相同的使用方（如Solr中配置相同的多个core）共享同一个词典实例
+ * 注册表按引用计数管理词典实例，计数归零时释放，内存占用只与不同词库的数目相关
+ * 没有替换主词典的词库以叠加词典的方式加载，共享默认词库，只占用扩展词条的内存
+ * 注册表返回的词典实例是共享且可修改的，通过addWords、removeWords、applyChangeLog等方法所做的修改
+ * 对所有持有该实例的使用方同时生效，重新加载词库后修改失效
+ * @author 林良益
+ *
+ */
+public final class DictionaryRegistry {
+
+	//词库摘要 -> 注册项
+	private static final Map<String , Entry> entries = new HashMap<String , Entry>();
+	//词典实例 -> 注册项
+	private static final Map<Dictionary , Entry> instances = new IdentityHashMap<Dictionary , Entry>();
+
+	private DictionaryRegistry(){
+	}
+
+	/**
+	 * 获取词库对应的词典实例，引用计数+1
+	 * 注册表中没有相同词库的实例时，加载新的词典实例
+	 * 返回的实例与词库相同的其他使用方共享，对其的修改对所有使用方生效
+	 * @param mainDict 替换默认主词典的词库，为null时使用默认主词典
+	 * @param extDicts 扩展词典内容列表，可以为null
+	 * @param extStopWords 扩展停止词典内容列表，可以为null
+	 * @return Dictionary
+	 */
+	public static Dictionary acquire(byte[] mainDict , List<byte[]> extDicts , List<byte[]> extStopWords){
+		String key = digest(mainDict , extDicts , extStopWords);
+		Entry entry = null;
+		synchronized(DictionaryRegistry.class){
+			entry = entries.get(key);
+			if(entry == null){
+				entry = new Entry(key);
+				entries.put(key, entry);
+			}
+			entry.refCount++;
+		}
+		//在注册表锁之外加载词典，不阻塞其他词库的获取
+		synchronized(entry){
+			if(entry.dictionary == null){
+				try{
+					if(mainDict == null){
+						//在共享的默认词库上叠加扩展词典
+						entry.dictionary = Dictionary.getDefaultBase().loadOverlay(toStreams(extDicts) , toStreams(extStopWords));
+					}else{
+						entry.dictionary = new Dictionary(toStream(mainDict) , toStreams(extDicts) , toStreams(extStopWords));
+					}
+				}catch(RuntimeException e){
+					synchronized(DictionaryRegistry.class){
+						entry.refCount--;
+						if(entry.refCount == 0){
+							entries.remove(key);
+						}
+					}
+					throw e;
+				}
+				synchronized(DictionaryRegistry.class){
+					instances.put(entry.dictionary, entry);
+				}
+			}
+			return entry.dictionary;
+		}
+	}
+
+	/**
+	 * 释放词典实例，引用计数-1
+	 * 计数归零时，从注册表中移除该实例
+	 * @param dictionary
+	 */
+	public static synchronized void release(Dictionary dictionary){
+		Entry entry = instances.get(dictionary);
+		if(entry == null){
+			//全局词典或未注册的词典，不需要释放
+			return;
+		}
+		entry.refCount--;
+		if(entry.refCount == 0){
+			entries.remove(entry.key);
+			instances.remove(dictionary);
+		}
+	}
+
+	/**
+	 * 获取词典实例的引用计数
+	 * @param dictionary
+	 * @return int 未注册的词典返回0
+	 */
+	public static synchronized int getReferenceCount(Dictionary dictionary){
+		Entry entry = instances.get(dictionary);
+		return entry == null ? 0 : entry.refCount;
+	}
+
+	/**
+	 * 获取注册表中词典实例的数目
+	 * @return int
+	 */
+	public static synchronized int size(){
+		return instances.size();
+	}
+
+	/**
+	 * 计算词库内容的摘要，作为注册表的键
+	 */
+	private static String digest(byte[] mainDict , List<byte[]> extDicts , List<byte[]> extStopWords){
+		MessageDigest md = null;
+		try {
+			md = MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+		update(md , 'M' , mainDict);
+		if(extDicts != null){
+			for(byte[] extDict : extDicts){
+				update(md , 'E' , extDict);
+			}
+		}
+		if(extStopWords != null){
+			for(byte[] extStopWord : extStopWords){
+				update(md , 'S' , extStopWord);
+			}
+		}
+		StringBuilder key = new StringBuilder(32);
+		for(byte b : md.digest()){
+			key.append(Character.forDigit((b >> 4) & 0x0F , 16));
+			key.append(Character.forDigit(b & 0x0F , 16));
+		}
+		return key.toString();
+	}
+
+	/**
+	 * 摘要中记录词库的类别和长度，避免不同的切分方式得到相同的摘要
+	 */
+	private static void update(MessageDigest md , char type , byte[] content){
+		int length = content == null ? -1 : content.length;
+		md.update((byte)type);
+		md.update(new byte[]{(byte)(length >>> 24) , (byte)(length >>> 16) , (byte)(length >>> 8) , (byte)length});
+		if(content != null){
+			md.update(content);
+		}
+	}
+
+	private static InputStream toStream(byte[] content){
+		return content == null ? null : new ByteArrayInputStream(content);
+	}
+
+	private static List<InputStream> toStreams(List<byte[]> contents){
+		if(contents == null){
+			return null;
+		}
+		List<InputStream> streams = new ArrayList<InputStream>(contents.size());
+		for(byte[] content : contents){
+			streams.add(toStream(content));
+		}
+		return streams;
+	}
+
+	/**
+	 * 注册项
+	 */
+	private static class Entry{
+		//词库摘要
+		private final String key;
+		//词典实例
+		private volatile Dictionary dictionary;
+		//引用计数
+		private int refCount;
+
+		private Entry(String key){
+			this.key = key;
+		}
+	}
+}
@@ -0,0 +1,78 @@
+/**
+ * 
+ */
+package org.wltea.analyzer.dic;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * IK Analyzer v3.2
+ * 词典内存报告命令行工具
+ * 加载词典，输出主词典的节点结构、扇出与深度分布，以及当前结构与其他存储结构的估算内存
+ *
+ * java org.wltea.analyzer.dic.DictionaryReport [-main 主词典文件] [-ext 扩展词典文件]... [-stop 扩展停止词典文件]...
+ * 不指定主词典时使用默认主词典
+ *
+ * @author 林良益
+ *
+ */
+public final class DictionaryReport {
+
+	private DictionaryReport(){
+	}
+
+	public static void main(String[] args) throws IOException{
+		InputStream mainDict = null;
+		List<InputStream> extDicts = new ArrayList<InputStream>();
+		List<InputStream> extStopWords = new ArrayList<InputStream>();
+		for(int i = 0 ; i < args.length ; i++){
+			if(i + 1 >= args.length){
+				usage();
+				return;
+			}
+			String option = args[i];
+			String file = args[++i];
+			if("-main".equals(option)){
+				mainDict = new FileInputStream(file);
+			}else if("-ext".equals(option)){
+				extDicts.add(new FileInputStream(file));
+			}else if("-stop".equals(option)){
+				extStopWords.add(new FileInputStream(file));
+			}else{
+				usage();
+				return;
+			}
+		}
+
+		long usedBefore = usedMemory();
+		long begin = System.nanoTime();
+		Dictionary dictionary = new Dictionary(mainDict , extDicts , extStopWords);
+		long elapsed = System.nanoTime() - begin;
+		long usedAfter = usedMemory();
+
+		DictionaryStats stats = dictionary.getMainDictStats();
+		System.out.println("load time : " + elapsed / 1000000L + " ms");
+		System.out.println("measured heap (all dictionaries) : " + (usedAfter - usedBefore));
+		System.out.print(stats.report());
+	}
+
+	/**
+	 * 多次GC后的已用堆内存，只作为估算值的参考
+	 */
+	private static long usedMemory(){
+		Runtime runtime = Runtime.getRuntime();
+		for(int i = 0 ; i < 3 ; i++){
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static void usage(){
+		System.err.println("Usage: java " + DictionaryReport.class.getName()
+				+ " [-main <file>] [-ext <file>]... [-stop <file>]...");
+	}
+}
@@ -0,0 +1,314 @@
+/**
+ * 
+ */
+package org.wltea.analyzer.dic;
+
+/**
+ * IK Analyzer v3.2
+ * 词典统计信息
+ * 记录词典树的词条数、节点数以及估算的堆内存占用
+ * 同时记录节点的子节点数（扇出）分布、深度分布，以及其他存储结构的估算内存，
+ * 用于评估不同部署的堆大小和词典存储结构的选择
+ * @author 林良益
+ *
+ */
+public class DictionaryStats {
+
+	/*
+	 * 其他存储结构的内存估算参数
+	 */
+	//有序数组结构的节点对象：对象头 + 字符、状态 + 2个数组引用
+	private static final int BYTES_SORTED_NODE = 24;
+	//数组对象头
+	private static final int BYTES_ARRAY_HEADER = 16;
+	//双数组结构每个槽位的字节数（base + check）
+	private static final int BYTES_DOUBLE_ARRAY_SLOT = 8;
+	//双数组结构的估算装载率
+	private static final float DOUBLE_ARRAY_LOAD_FACTOR = 0.8f;
+
+	//扇出分组的上限（含），最后一组不设上限
+	private static final int[] FAN_OUT_BOUNDS = {0 , 1 , 2 , 3 , 7 , 15 , 63 , 255};
+
+	//词条数目
+	private int wordCount;
+	//节点数目（含根节点），共享的节点只计一次
+	private int nodeCount;
+	//被多个父节点共享的节点数目
+	private int sharedNodeCount;
+	//顺序比较子节点的节点数目
+	private int arrayNodeCount;
+	//使用散列表存储子节点的节点数目
+	private int hashNodeCount;
+	//按字符直接寻址子节点的节点数目
+	private int directNodeCount;
+	//节点对象的估算内存（字节）
+	private long segmentBytes;
+	//子节点数组的估算内存（字节）
+	private long arrayBytes;
+	//子节点散列表的估算内存（字节）
+	private long hashBytes;
+	//直接寻址数组的估算内存（字节）
+	private long directBytes;
+	//较宽的节点改用有序char[]及子节点数组时的估算内存（字节）
+	private long sortedArrayBytes;
+	//各扇出分组的节点数目
+	private final int[] fanOutNodes = new int[FAN_OUT_BOUNDS.length + 1];
+	//最大扇出
+	private int maxFanOut;
+	//各深度的节点数目，根节点深度为0，共享的节点计入首次访问时的深度
+	private int[] depthNodes = new int[16];
+	//各深度的词条数目，即各词长的词条数目
+	private int[] depthWords = new int[16];
+	//最大深度
+	private int maxDepth;
+
+	DictionaryStats(){
+	}
+
+	public int getWordCount() {
+		return wordCount;
+	}
+
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	public int getSharedNodeCount() {
+		return sharedNodeCount;
+	}
+
+	public int getArrayNodeCount() {
+		return arrayNodeCount;
+	}
+
+	public int getHashNodeCount() {
+		return hashNodeCount;
+	}
+
+	public int getDirectNodeCount() {
+		return directNodeCount;
+	}
+
+	/**
+	 * 当前存储结构的估算内存
+	 * @return long 节点对象、子节点数组、子节点散列表及直接寻址数组的内存之和（字节）
+	 */
+	public long getEstimatedBytes() {
+		return segmentBytes + arrayBytes + hashBytes + directBytes;
+	}
+
+	public long getSegmentBytes() {
+		return segmentBytes;
+	}
+
+	public long getArrayBytes() {
+		return arrayBytes;
+	}
+
+	public long getHashBytes() {
+		return hashBytes;
+	}
+
+	/**
+	 * 直接寻址数组（如主词典根节点的首字跳转表）的估算内存
+	 * @return long 字节
+	 */
+	public long getDirectBytes() {
+		return directBytes;
+	}
+
+	/**
+	 * 较宽的节点以有序char[]和子节点数组存储子节点（二分查找）时的估算内存
+	 * 不超过DictSegment.ARRAY_LENGTH_LIMIT个子节点的节点仍使用紧凑数组，与当前结构相同，
+	 * 散列表及直接寻址数组替换为与子节点数目等长的有序char[]和子节点数组
+	 * @return long 字节
+	 */
+	public long getSortedArrayBytes() {
+		return sortedArrayBytes;
+	}
+
+	/**
+	 * 以双数组（int[] base , int[] check）存储整个词典树时的估算内存
+	 * @return long 字节
+	 */
+	public long getDoubleArrayBytes() {
+		return (long)(nodeCount / DOUBLE_ARRAY_LOAD_FACTOR) * BYTES_DOUBLE_ARRAY_SLOT;
+	}
+
+	public int getMaxFanOut() {
+		return maxFanOut;
+	}
+
+	/**
+	 * 各扇出分组的节点数目
+	 * 分组依次为 0 ，1 ，2 ，3 ，4-7 ，8-15 ，16-63 ，64-255 ，256以上
+	 * @return int[]
+	 */
+	public int[] getFanOutNodes() {
+		return fanOutNodes.clone();
+	}
+
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * 各深度的节点数目
+	 * @return int[] 下标为深度，根节点深度为0
+	 */
+	public int[] getDepthNodes() {
+		int[] nodes = new int[maxDepth + 1];
+		System.arraycopy(depthNodes , 0 , nodes , 0 , nodes.length);
+		return nodes;
+	}
+
+	/**
+	 * 各深度（词长）的词条数目
+	 * @return int[] 下标为深度，即词长
+	 */
+	public int[] getDepthWords() {
+		int[] words = new int[maxDepth + 1];
+		System.arraycopy(depthWords , 0 , words , 0 , words.length);
+		return words;
+	}
+
+	/**
+	 * 记录一个节点，共享的节点只记录一次
+	 * @param depth 节点深度，共享的节点为首次访问时的深度
+	 * @param fanOut 子节点数目
+	 * @param shared 是否被多个父节点共享
+	 */
+	void addNode(int depth , int fanOut , boolean shared){
+		this.nodeCount++;
+		if(shared){
+			this.sharedNodeCount++;
+		}
+		ensureDepth(depth);
+		depthNodes[depth]++;
+		int bucket = 0;
+		while(bucket < FAN_OUT_BOUNDS.length && fanOut > FAN_OUT_BOUNDS[bucket]){
+			bucket++;
+		}
+		fanOutNodes[bucket]++;
+		if(fanOut > maxFanOut){
+			maxFanOut = fanOut;
+		}
+		sortedArrayBytes += BYTES_SORTED_NODE;
+		if(fanOut > 0){
+			sortedArrayBytes += align(BYTES_ARRAY_HEADER + 4 * fanOut);
+			if(fanOut > DictSegment.ARRAY_LENGTH_LIMIT){
+				sortedArrayBytes += align(BYTES_ARRAY_HEADER + 2 * fanOut);
+			}
+		}
+	}
+
+	/**
+	 * 记录一个词条
+	 * @param depth 词条结束节点的深度，即词长
+	 */
+	void addWord(int depth){
+		this.wordCount++;
+		ensureDepth(depth);
+		depthWords[depth]++;
+	}
+
+	private void ensureDepth(int depth){
+		if(depth >= depthNodes.length){
+			int[] nodes = new int[Math.max(depth + 1 , depthNodes.length * 2)];
+			System.arraycopy(depthNodes , 0 , nodes , 0 , depthNodes.length);
+			depthNodes = nodes;
+			int[] words = new int[nodes.length];
+			System.arraycopy(depthWords , 0 , words , 0 , depthWords.length);
+			depthWords = words;
+		}
+		if(depth > maxDepth){
+			maxDepth = depth;
+		}
+	}
+
+	void addSegmentBytes(long bytes){
+		this.segmentBytes += bytes;
+	}
+
+	void addArrayNode(long bytes){
+		this.arrayNodeCount++;
+		this.arrayBytes += bytes;
+	}
+
+	void addHashNode(long bytes){
+		this.hashNodeCount++;
+		this.hashBytes += bytes;
+	}
+
+	void addDirectNode(long bytes){
+		this.directNodeCount++;
+		this.directBytes += bytes;
+	}
+
+	/**
+	 * 按8字节对齐
+	 */
+	private static long align(long bytes){
+		return (bytes + 7) & ~7L;
+	}
+
+	/**
+	 * 生成多行的统计报告
+	 * @return String
+	 */
+	public String report(){
+		StringBuilder sb = new StringBuilder(1024);
+		sb.append("words : ").append(wordCount).append('\n');
+		sb.append("nodes : ").append(nodeCount)
+				.append(" (array : ").append(arrayNodeCount)
+				.append(" , hash : ").append(hashNodeCount)
+				.append(" , direct : ").append(directNodeCount)
+				.append(" , leaf : ").append(fanOutNodes[0])
+				.append(" , shared : ").append(sharedNodeCount).append(")\n");
+		sb.append("estimated bytes : ").append(getEstimatedBytes())
+				.append(" (nodes : ").append(segmentBytes)
+				.append(" , arrays : ").append(arrayBytes)
+				.append(" , hashes : ").append(hashBytes)
+				.append(" , direct : ").append(directBytes).append(")\n");
+		sb.append("fan-out (max ").append(maxFanOut).append(") :\n");
+		int lower = 0;
+		for(int i = 0 ; i < fanOutNodes.length ; i++){
+			String range = null;
+			if(i == FAN_OUT_BOUNDS.length){
+				range = lower + "+";
+			}else if(lower == FAN_OUT_BOUNDS[i]){
+				range = String.valueOf(lower);
+			}else{
+				range = lower + "-" + FAN_OUT_BOUNDS[i];
+			}
+			sb.append("  ").append(range).append(" : ").append(fanOutNodes[i]).append('\n');
+			if(i < FAN_OUT_BOUNDS.length){
+				lower = FAN_OUT_BOUNDS[i] + 1;
+			}
+		}
+		sb.append("depth : nodes , words\n");
+		for(int i = 0 ; i <= maxDepth ; i++){
+			sb.append("  ").append(i).append(" : ").append(depthNodes[i])
+					.append(" , ").append(depthWords[i]).append('\n');
+		}
+		sb.append("alternative layouts (estimated bytes) :\n");
+		appendLayout(sb , "sorted char[] children" , sortedArrayBytes);
+		appendLayout(sb , "double array" , getDoubleArrayBytes());
+		return sb.toString();
+	}
+
+	private void appendLayout(StringBuilder sb , String name , long bytes){
+		long current = getEstimatedBytes();
+		sb.append("  ").append(name).append(" : ").append(bytes);
+		if(current > 0){
+			sb.append(" (saves ").append((current - bytes) * 100 / current).append("%)");
+		}
+		sb.append('\n');
+	}
+
+	public String toString(){
+		return "words : " + wordCount + " , nodes : " + nodeCount
+				+ " (array : " + arrayNodeCount + " , hash : " + hashNodeCount + " , direct : " + directNodeCount + ")"
+				+ " , estimated bytes : " + getEstimatedBytes();
+	}
+}
@@ -23,6 +23,8 @@ public class Hit {
 	
 	//记录词典匹配过程中，当前匹配到的词典分支节点
 	private DictSegment matchedDictSegment; 
+	//叠加词典中各层词典的匹配结果，本Hit的状态为各层状态的合并
+	private Hit[] layers;
 	/*
 	 * 词段开始位置
 	 */
@@ -71,6 +73,22 @@ public class Hit {
 		this.hitState = UNMATCH;
 	}
 	
+	/**
+	 * 合并另一层词典的匹配状态
+	 * @param layer
+	 */
+	void mergeState(Hit layer) {
+		this.hitState = this.hitState | layer.hitState;
+	}
+	
+	Hit[] getLayers() {
+		return layers;
+	}
+	
+	void setLayers(Hit[] layers) {
+		this.layers = layers;
+	}
+	
 	public DictSegment getMatchedDictSegment() {
 		return matchedDictSegment;
 	}
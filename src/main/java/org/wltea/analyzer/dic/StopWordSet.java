@@ -0,0 +1,194 @@
+/**
+ * 
+ */
+package org.wltea.analyzer.dic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * IK Analyzer v3.2
+ * 停止词集合
+ * 绝大多数候选词元都不是停止词，因此先用首字位图和词长掩码过滤，
+ * 只有通过过滤的词元才在开放寻址的散列表中精确比较
+ * 散列表整体替换（写时复制），检索时不加锁也不创建对象
+ * @author 林良益
+ *
+ */
+final class StopWordSet {
+
+	/*
+	 * 不可变的检索表
+	 */
+	private static final class Table{
+		//首字位图，以char为下标，每个long记录64个字符
+		private final long[] firstChars = new long[1024];
+		//词长掩码，第n位表示存在长度为n的停止词，长度不小于63的词记录在第63位
+		private long lengthMask;
+		//散列槽位，长度为2的幂
+		private final char[][] slots;
+		//槽位中词条的散列值
+		private final int[] hashes;
+		//词条数目
+		private final int size;
+
+		private Table(List<char[]> words){
+			int capacity = 16;
+			//装载因子不超过0.5
+			while(capacity < words.size() * 2){
+				capacity <<= 1;
+			}
+			slots = new char[capacity][];
+			hashes = new int[capacity];
+			int count = 0;
+			for(char[] word : words){
+				if(insert(word)){
+					count++;
+				}
+			}
+			size = count;
+		}
+
+		private boolean insert(char[] word){
+			int hash = hash(word , 0 , word.length);
+			int mask = slots.length - 1;
+			int i = hash & mask;
+			while(slots[i] != null){
+				if(hashes[i] == hash && sameWord(slots[i] , word , 0 , word.length)){
+					//重复的词条
+					return false;
+				}
+				i = (i + 1) & mask;
+			}
+			slots[i] = word;
+			hashes[i] = hash;
+			char first = word[0];
+			firstChars[first >>> 6] |= 1L << first;
+			lengthMask |= 1L << Math.min(word.length , 63);
+			return true;
+		}
+
+		private boolean contains(char[] charArray , int begin , int length){
+			if((lengthMask & (1L << Math.min(length , 63))) == 0){
+				return false;
+			}
+			char first = charArray[begin];
+			if((firstChars[first >>> 6] & (1L << first)) == 0){
+				return false;
+			}
+			int hash = hash(charArray , begin , length);
+			int mask = slots.length - 1;
+			int i = hash & mask;
+			char[] word;
+			while((word = slots[i]) != null){
+				if(hashes[i] == hash && sameWord(word , charArray , begin , length)){
+					return true;
+				}
+				i = (i + 1) & mask;
+			}
+			return false;
+		}
+	}
+
+	//当前的检索表
+	private volatile Table table;
+	//全部词条，用于重建检索表
+	private final List<char[]> words = new ArrayList<char[]>();
+
+	StopWordSet(){
+		table = new Table(words);
+	}
+
+	/**
+	 * 判断指定位置的字串是否是停止词
+	 * @param charArray
+	 * @param begin
+	 * @param length
+	 * @return boolean
+	 */
+	boolean contains(char[] charArray , int begin , int length){
+		if(length <= 0){
+			return false;
+		}
+		return table.contains(charArray, begin, length);
+	}
+
+	/**
+	 * 批量加入停止词，完成后整体替换检索表
+	 * @param newWords 词条列表，忽略空词条
+	 */
+	synchronized void addAll(List<char[]> newWords){
+		boolean changed = false;
+		for(char[] word : newWords){
+			if(word != null && word.length > 0){
+				words.add(word);
+				changed = true;
+			}
+		}
+		if(changed){
+			table = new Table(words);
+		}
+	}
+
+	/**
+	 * 批量删除停止词，完成后整体替换检索表
+	 * @param oldWords 词条列表，忽略空词条
+	 * @return boolean 有停止词被删除时返回true
+	 */
+	synchronized boolean removeAll(List<char[]> oldWords){
+		List<char[]> validWords = new ArrayList<char[]>(oldWords.size());
+		for(char[] word : oldWords){
+			if(word != null && word.length > 0){
+				validWords.add(word);
+			}
+		}
+		if(validWords.isEmpty()){
+			return false;
+		}
+		Table removed = new Table(validWords);
+		List<char[]> kept = new ArrayList<char[]>(words.size());
+		for(char[] word : words){
+			if(!removed.contains(word , 0 , word.length)){
+				kept.add(word);
+			}
+		}
+		if(kept.size() == words.size()){
+			return false;
+		}
+		words.clear();
+		words.addAll(kept);
+		table = new Table(words);
+		return true;
+	}
+
+	/**
+	 * 停止词数目
+	 * @return int
+	 */
+	int size(){
+		return table.size;
+	}
+
+	/**
+	 * 计算字串的散列值，再次混合低位以适应2的幂长度的散列表
+	 */
+	private static int hash(char[] charArray , int begin , int length){
+		int h = 0;
+		for(int i = begin ; i < begin + length ; i++){
+			h = 31 * h + charArray[i];
+		}
+		return h ^ (h >>> 16);
+	}
+
+	private static boolean sameWord(char[] word , char[] charArray , int begin , int length){
+		if(word.length != length){
+			return false;
+		}
+		for(int i = 0 ; i < length ; i++){
+			if(word[i] != charArray[begin + i]){
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -50,6 +50,57 @@ public class CharacterHelper {
 		//|| ub == Character.UnicodeBlock.GENERAL_PUNCTUATION  
 	}
 	
+	/**
+	 * 按码位识别CJK字符
+	 * 辅助平面中，第二平面（CJK扩展B～F、兼容表意文字补充）及第三平面（CJK扩展G、H）均视为CJK字符
+	 * @param codePoint
+	 * @return boolean
+	 */
+	public static boolean isCJKCodePoint(int codePoint){
+		if(codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT){
+			return isCJKCharacter((char)codePoint);
+		}
+		return codePoint >= 0x20000 && codePoint < 0x40000;
+	}
+	
+	/**
+	 * 识别缓冲区中指定位置的字符是否属于CJK字符
+	 * 代理对的高位与低位均按完整的码位识别，不成对的代理字符不是CJK字符
+	 * 基本多文种平面的字符直接按char识别
+	 * @param buff 
+	 * @param index 字符位置
+	 * @param available 缓冲区可用长度
+	 * @return boolean
+	 */
+	public static boolean isCJKCharacter(char[] buff , int index , int available){
+		char input = buff[index];
+		if(input < Character.MIN_SURROGATE || input > Character.MAX_SURROGATE){
+			return isCJKCharacter(input);
+		}
+		if(Character.isHighSurrogate(input)){
+			if(index + 1 < available && Character.isLowSurrogate(buff[index + 1])){
+				return isCJKCodePoint(Character.toCodePoint(input, buff[index + 1]));
+			}
+		}else if(index > 0 && Character.isHighSurrogate(buff[index - 1])){
+			return isCJKCodePoint(Character.toCodePoint(buff[index - 1], input));
+		}
+		return false;
+	}
+	
+	/**
+	 * 以指定位置开始的码位所占的char数目
+	 * @param buff
+	 * @param index 码位起始位置
+	 * @param end 可读取的最后位置（含）
+	 * @return int 代理对返回2，否则返回1
+	 */
+	public static int charCount(char[] buff , int index , int end){
+		if(index < end && Character.isHighSurrogate(buff[index]) && Character.isLowSurrogate(buff[index + 1])){
+			return 2;
+		}
+		return 1;
+	}
+	
 	
 	/**
 	 * 进行字符规格化（全角转半角，大写转小写处理）
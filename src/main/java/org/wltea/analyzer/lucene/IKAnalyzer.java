@@ -7,6 +7,9 @@ import java.io.Reader;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.TokenStream;
+import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.dic.Dictionary;
+import org.wltea.analyzer.seg.LetterSegmenter;
 
 /**
  * 实现Lucene Analyzer
@@ -18,6 +21,14 @@ import org.apache.lucene.analysis.TokenStream;
 public final class IKAnalyzer extends Analyzer {
 	
 	private boolean isMaxWordLength = false;
+	//字母分词器的链接符号，为null时使用默认的链接符号
+	private char[] letterConnectors = Configuration.getLetterConnectors();
+	//字母分词器的组合词元输出方式
+	private int letterCompoundMode = Configuration.getLetterCompoundMode();
+	//中文分词器是否使用Aho-Corasick自动机
+	private boolean cjkAutomaton = Configuration.isCJKAutomaton();
+	//分词使用的词典实例，为null时使用全局词典
+	private Dictionary dictionary;
 	
 	/**
 	 * IK分词器Lucene Analyzer接口实现类
@@ -42,7 +53,8 @@ public final class IKAnalyzer extends Analyzer {
 	 */
 	@Override
 	public TokenStream tokenStream(String fieldName, Reader reader) {
-		return new IKTokenizer(reader , isMaxWordLength());
+		return new IKTokenizer(reader , isMaxWordLength() , getDictionary() 
+				, Configuration.loadSegmenter(letterConnectors , letterCompoundMode , cjkAutomaton));
 	}
 
 	public void setMaxWordLength(boolean isMaxWordLength) {
@@ -53,4 +65,58 @@ public final class IKAnalyzer extends Analyzer {
 		return isMaxWordLength;
 	}
 
+	/**
+	 * 设置分词使用的词典实例
+	 * 可以使用Dictionary.createOverlay在全局词典之上为每个Analyzer追加词条和停止词
+	 * @param dictionary 为null时使用全局词典
+	 */
+	public void setDictionary(Dictionary dictionary) {
+		this.dictionary = dictionary;
+	}
+
+	public Dictionary getDictionary() {
+		return dictionary == null ? Dictionary.getInstance() : dictionary;
+	}
+
+	/**
+	 * 设置字母分词器的链接符号，如 sku-12345 中的 -
+	 * @param letterConnectors 为null时使用默认的链接符号
+	 */
+	public void setLetterConnectors(char[] letterConnectors) {
+		this.letterConnectors = letterConnectors == null ? null : letterConnectors.clone();
+	}
+
+	public char[] getLetterConnectors() {
+		return letterConnectors == null ? null : letterConnectors.clone();
+	}
+
+	/**
+	 * 设置字母分词器的组合词元输出方式
+	 * @param letterCompoundMode LetterSegmenter.COMPOUND_AND_PARTS ，COMPOUND_ONLY 或 PARTS_ONLY
+	 */
+	public void setLetterCompoundMode(int letterCompoundMode) {
+		if(letterCompoundMode != LetterSegmenter.COMPOUND_AND_PARTS 
+				&& letterCompoundMode != LetterSegmenter.COMPOUND_ONLY 
+				&& letterCompoundMode != LetterSegmenter.PARTS_ONLY){
+			throw new IllegalArgumentException("Unknown compound mode : " + letterCompoundMode);
+		}
+		this.letterCompoundMode = letterCompoundMode;
+	}
+
+	public int getLetterCompoundMode() {
+		return letterCompoundMode;
+	}
+
+	/**
+	 * 设置中文分词器是否使用主词典的Aho-Corasick自动机，分词结果不变
+	 * @param cjkAutomaton
+	 */
+	public void setCJKAutomaton(boolean cjkAutomaton) {
+		this.cjkAutomaton = cjkAutomaton;
+	}
+
+	public boolean isCJKAutomaton() {
+		return cjkAutomaton;
+	}
+
 }
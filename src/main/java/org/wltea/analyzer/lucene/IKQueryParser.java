@@ -19,6 +19,8 @@ import org.apache.lucene.search.BooleanClause.Occur;
 
 import org.wltea.analyzer.IKSegmentation;
 import org.wltea.analyzer.Lexeme;
+import org.wltea.analyzer.stats.IKEvents;
+import org.wltea.analyzer.stats.IKStatistics;
 
 /**
  * IK查询分析器
@@ -122,10 +124,19 @@ public final class IKQueryParser {
 		
 		//从缓存中取出已经解析的query生产的TokenBranch
 		TokenBranch root = getCachedTokenBranch(query);
+		if(IKStatistics.isEnabled()){
+			if(root != null){
+				IKStatistics.queryCacheHit();
+			}else{
+				IKStatistics.queryCacheMiss();
+			}
+		}
 		if(root != null){
 			return optimizeQueries(root.toQueries(field)); 
 		}else{
 			//System.out.println(System.currentTimeMillis());
+			long begin = IKEvents.isEnabled() ? System.nanoTime() : 0;
+			int lexemeCount = 0;
 			root = new TokenBranch(null);		
 			//对查询条件q进行分词
 			StringReader input = new StringReader(query.trim());
@@ -133,6 +144,10 @@ public final class IKQueryParser {
 			for(Lexeme lexeme = ikSeg.next() ; lexeme != null ; lexeme = ikSeg.next()){
 				//处理词元分支
 				root.accept(lexeme);
+				lexemeCount++;
+			}
+			if(begin != 0){
+				IKEvents.queryCacheMissed(query , lexemeCount , System.nanoTime() - begin);
 			}
 			//缓存解析结果的博弈树
 			cachedTokenBranch(query , root);
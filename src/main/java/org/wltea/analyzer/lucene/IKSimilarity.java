@@ -10,6 +10,9 @@ import org.apache.lucene.search.DefaultSimilarity;
  * 相似度评估器
  * 重载了DefaultSimilarity的coord方法
  * 提高词元命中个数在相似度比较中的权重影响，即，当有多个词元得到匹配时，文档的相似度将提高
+ *
+ * coord值按maxOverlap预先计算成查找表，评分时不再调用Math.pow
+ * 默认coord = 2^overlap / 2^maxOverlap，可配置指数底数，或退回线性计算 overlap / maxOverlap
  * @author 林良益
  *
  */
@@ -19,12 +22,89 @@ public class IKSimilarity extends DefaultSimilarity {
 	 */
 	private static final long serialVersionUID = 7558565500061194774L;
 
+	//默认的coord指数底数
+	public static final float DEFAULT_COORD_BASE = 2f;
+	//coord查找表覆盖的最大maxOverlap
+	private static final int COORD_TABLE_SIZE = 64;
+
+	//coord指数底数
+	private final float coordBase;
+	//是否使用线性coord
+	private final boolean isLinearCoord;
+	/*
+	 * coord查找表
+	 * coordTable[maxOverlap][overlap] ,maxOverlap <= COORD_TABLE_SIZE
+	 */
+	private final float[][] coordTable;
+
+	/**
+	 * 默认以2为底的指数coord
+	 */
+	public IKSimilarity(){
+		this(DEFAULT_COORD_BASE , false);
+	}
+
+	/**
+	 * 指定底数的指数coord
+	 * @param coordBase 指数底数，必须大于等于1
+	 */
+	public IKSimilarity(float coordBase){
+		this(coordBase , false);
+	}
+
+	/**
+	 * @param coordBase 指数底数，必须大于等于1
+	 * @param isLinearCoord 当为true时，coord退回线性计算 overlap / maxOverlap，忽略coordBase
+	 */
+	public IKSimilarity(float coordBase , boolean isLinearCoord){
+		if(!isLinearCoord && !(coordBase >= 1f)){
+			throw new IllegalArgumentException("coordBase must be >= 1 , but was " + coordBase);
+		}
+		this.coordBase = coordBase;
+		this.isLinearCoord = isLinearCoord;
+		this.coordTable = new float[COORD_TABLE_SIZE + 1][];
+		for(int maxOverlap = 0 ; maxOverlap <= COORD_TABLE_SIZE ; maxOverlap++){
+			float[] row = new float[maxOverlap + 1];
+			for(int overlap = 0 ; overlap <= maxOverlap ; overlap++){
+				row[overlap] = computeCoord(overlap , maxOverlap);
+			}
+			this.coordTable[maxOverlap] = row;
+		}
+	}
+
 	/* (non-Javadoc)
 	 * @see org.apache.lucene.search.Similarity#coord(int, int)
 	 */
 	public float coord(int overlap, int maxOverlap) {
-		float overlap2 = (float)Math.pow(2, overlap);
-		float maxOverlap2 = (float)Math.pow(2, maxOverlap);
-		return (overlap2 / maxOverlap2);
-	}	
+		if(maxOverlap <= COORD_TABLE_SIZE && overlap >= 0 && overlap <= maxOverlap){
+			return coordTable[maxOverlap][overlap];
+		}
+		//超出查找表范围的情况
+		return computeCoord(overlap , maxOverlap);
+	}
+
+	/**
+	 * 计算coord值
+	 * 底数为2时，2^overlap / 2^maxOverlap 精确等于 2^(overlap - maxOverlap)
+	 * @param overlap
+	 * @param maxOverlap
+	 * @return float
+	 */
+	private float computeCoord(int overlap , int maxOverlap){
+		if(isLinearCoord){
+			return maxOverlap == 0 ? 0f : (float)overlap / (float)maxOverlap;
+		}
+		if(coordBase == DEFAULT_COORD_BASE){
+			return Math.scalb(1f , overlap - maxOverlap);
+		}
+		return (float)Math.pow(coordBase , overlap - maxOverlap);
+	}
+
+	public float getCoordBase() {
+		return coordBase;
+	}
+
+	public boolean isLinearCoord() {
+		return isLinearCoord;
+	}
 }
@@ -5,12 +5,17 @@ package org.wltea.analyzer.lucene;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.lucene.analysis.Tokenizer;
 import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
 import org.apache.lucene.analysis.tokenattributes.TermAttribute;
 import org.wltea.analyzer.IKSegmentation;
 import org.wltea.analyzer.Lexeme;
+import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.dic.Dictionary;
+import org.wltea.analyzer.seg.ISegmenter;
 
 
 /**
@@ -31,6 +36,8 @@ public final class IKTokenizer extends Tokenizer {
 	private OffsetAttribute offsetAtt;
 	//记录最后一个词元的结束位置
 	private int finalOffset;
+	//可替换的词典实例引用，reset时切换到其中的最新词典
+	private AtomicReference<Dictionary> dictionaryRef;
 
 	/**
 	 * Lucene Tokenizer适配器类构造函数
@@ -38,10 +45,55 @@ public final class IKTokenizer extends Tokenizer {
 	 * @param isMaxWordLength 当为true时，分词器进行最大词长切分；当为false是，采用最细粒度切分
 	 */
 	public IKTokenizer(Reader in , boolean isMaxWordLength) {
+	    this(in , isMaxWordLength , Dictionary.getInstance());
+	}
+	
+	/**
+	 * Lucene Tokenizer适配器类构造函数
+	 * @param in
+	 * @param isMaxWordLength 当为true时，分词器进行最大词长切分；当为false是，采用最细粒度切分
+	 * @param dictionary 分词使用的词典实例
+	 */
+	public IKTokenizer(Reader in , boolean isMaxWordLength , Dictionary dictionary) {
+		this(in , isMaxWordLength , dictionary , Configuration.loadSegmenter());
+	}
+	
+	/**
+	 * Lucene Tokenizer适配器类构造函数
+	 * @param in
+	 * @param isMaxWordLength 当为true时，分词器进行最大词长切分；当为false是，采用最细粒度切分
+	 * @param dictionary 分词使用的词典实例
+	 * @param segmenters 子分词器列表，由本实例独占，参见Configuration.loadSegmenter
+	 */
+	public IKTokenizer(Reader in , boolean isMaxWordLength , Dictionary dictionary , List<ISegmenter> segmenters) {
 	    super(in);
 	    offsetAtt = addAttribute(OffsetAttribute.class);
 	    termAtt = addAttribute(TermAttribute.class);
-		_IKImplement = new IKSegmentation(in , isMaxWordLength);
+		_IKImplement = new IKSegmentation(in , isMaxWordLength , dictionary , segmenters);
+	}
+	
+	/**
+	 * Lucene Tokenizer适配器类构造函数
+	 * 词典可以在运行期替换，Tokenizer每次reset时使用引用中的最新词典
+	 * @param in
+	 * @param isMaxWordLength 当为true时，分词器进行最大词长切分；当为false是，采用最细粒度切分
+	 * @param dictionaryRef 词典实例引用，引用为空时使用全局词典
+	 */
+	public IKTokenizer(Reader in , boolean isMaxWordLength , AtomicReference<Dictionary> dictionaryRef) {
+		this(in , isMaxWordLength , dictionaryRef , Configuration.loadSegmenter());
+	}	
+	
+	/**
+	 * Lucene Tokenizer适配器类构造函数
+	 * 词典可以在运行期替换，Tokenizer每次reset时使用引用中的最新词典
+	 * @param in
+	 * @param isMaxWordLength 当为true时，分词器进行最大词长切分；当为false是，采用最细粒度切分
+	 * @param dictionaryRef 词典实例引用，引用为空时使用全局词典
+	 * @param segmenters 子分词器列表，由本实例独占，参见Configuration.loadSegmenter
+	 */
+	public IKTokenizer(Reader in , boolean isMaxWordLength , AtomicReference<Dictionary> dictionaryRef , List<ISegmenter> segmenters) {
+		this(in , isMaxWordLength , currentDictionary(dictionaryRef) , segmenters);
+		this.dictionaryRef = dictionaryRef;
 	}	
 	
 	@Override
@@ -72,7 +124,20 @@ public final class IKTokenizer extends Tokenizer {
 	 */
 	public void reset(Reader input) throws IOException {
 		super.reset(input);
-		_IKImplement.reset(input);
+		if(dictionaryRef != null){
+			//引用被清空（如词典已释放）时回到全局词典，不能继续使用原有的词典
+			_IKImplement.reset(input , currentDictionary(dictionaryRef));
+		}else{
+			_IKImplement.reset(input);
+		}
+	}	
+	
+	/**
+	 * 取出引用中的词典实例，引用为空时返回全局词典
+	 */
+	private static Dictionary currentDictionary(AtomicReference<Dictionary> dictionaryRef){
+		Dictionary dictionary = dictionaryRef.get();
+		return dictionary == null ? Dictionary.getInstance() : dictionary;
 	}	
 	
 	@Override
@@ -8,6 +8,7 @@ import java.util.List;
 
 import org.wltea.analyzer.Context;
 import org.wltea.analyzer.Lexeme;
+import org.wltea.analyzer.dic.AhoCorasickAutomaton;
 import org.wltea.analyzer.dic.Dictionary;
 import org.wltea.analyzer.dic.Hit;
 import org.wltea.analyzer.help.CharacterHelper;
@@ -19,6 +20,12 @@ import org.wltea.analyzer.help.CharacterHelper;
  * 3.地名
  * 4.未知词（单字切分）
  * 5.日文/韩文（单字切分）
+ * 6.辅助平面的CJK字符（如CJK扩展B中的生僻字），代理对作为一个字处理
+ * 
+ * 默认使用Hit队列记录匹配中的词前缀，每个字符推进队列中的全部Hit
+ * 自动机模式下使用主词典的Aho-Corasick自动机，每个字符只推进一个状态，
+ * 沿输出链接得到以当前字符结尾的全部词，输出结果与Hit队列相同
+ * 叠加词典的基础词典和各层追加的词条各有一个自动机，每层推进一个状态
  * @author 林良益 
  * @version 3.2  
  */
@@ -31,10 +38,51 @@ public class CJKSegmenter implements ISegmenter {
 	 * Hit对列，记录匹配中的Hit对象
 	 */
 	private List<Hit> hitList;
+	/*
+	 * 以代理对的高位开始的新hit，读到低位时才能确定该字是否为未知词
+	 */
+	private Hit surrogateHit;
+	
+	/*
+	 * 是否使用Aho-Corasick自动机
+	 */
+	private final boolean automatonMode;
+	/*
+	 * 当前使用的各层词典的自动机，基础词典在前，各层状态都回到根状态时重新获取
+	 */
+	private AhoCorasickAutomaton[] automata;
+	/*
+	 * 各层自动机的当前状态，对应Hit队列中该层词典最早开始的词前缀
+	 */
+	private int[] states;
+	/*
+	 * 代理对的高位是否等待低位处理，对应surrogateHit
+	 */
+	private boolean surrogatePending;
+	/*
+	 * 各层以代理对的高位开始的状态，不存在时为根状态
+	 */
+	private int[] surrogateStates;
+	/*
+	 * 各层输出链上尚未输出的词条状态，合并各层以当前字符结尾的词时使用
+	 */
+	private int[] wordStates;
 	
 	public CJKSegmenter(){
+		this(false);
+	}
+	
+	/**
+	 * @param automatonMode 为true时使用主词典的Aho-Corasick自动机
+	 */
+	public CJKSegmenter(boolean automatonMode){
+		this.automatonMode = automatonMode;
 		doneIndex = -1;
 		hitList = new ArrayList<Hit>();
+		automata = new AhoCorasickAutomaton[0];
+		states = new int[0];
+		surrogateStates = new int[0];
+		wordStates = new int[0];
 	}
 	
 	/* (non-Javadoc)
@@ -44,8 +92,29 @@ public class CJKSegmenter implements ISegmenter {
 
 		//读取当前位置的char	
 		char input = segmentBuff[context.getCursor()];
+		boolean isCJK;
+		//当前字符是否为代理对的低位
+		boolean lowSurrogate = false;
+		if(input < Character.MIN_SURROGATE || input > Character.MAX_SURROGATE){
+			//基本多文种平面的字符
+			isCJK = CharacterHelper.isCJKCharacter(input);
+		}else{
+			isCJK = CharacterHelper.isCJKCharacter(segmentBuff , context.getCursor() , context.getAvailable());
+			lowSurrogate = isCJK && Character.isLowSurrogate(input);
+		}
 		
-		if(CharacterHelper.isCJKCharacter(input)){//是（CJK）字符，则进行处理
+		if(automatonMode){
+			matchByAutomaton(segmentBuff , context , input , isCJK , lowSurrogate);
+		}else{
+			matchByHits(segmentBuff , context , input , isCJK , lowSurrogate);
+		}
+	}
+	
+	/**
+	 * 使用Hit队列匹配主词典
+	 */
+	private void matchByHits(char[] segmentBuff , Context context , char input , boolean isCJK , boolean lowSurrogate){
+		if(isCJK){//是（CJK）字符，则进行处理
 			if(hitList.size() > 0){
 				//处理词段队列
 				Hit[] tmpArray = hitList.toArray(new Hit[hitList.size()]);
@@ -82,41 +151,63 @@ public class CJKSegmenter implements ISegmenter {
 				}
 			}
 			
-			//处理以input为开始的一个新hit
-			Hit hit = Dictionary.matchInMainDict(segmentBuff, context.getCursor() , 1);
-			if(hit.isMatch()){//匹配成词
-				//判断是否有不可识别的词段
-				if(context.getCursor() > doneIndex + 1){
-					//输出并处理从doneIndex+1 到 context.getCursor()- 1之间的未知
-					processUnknown(segmentBuff , context , doneIndex + 1 , context.getCursor()- 1);
-				}
-				//输出当前的词
-				Lexeme newLexeme = new Lexeme(context.getBuffOffset() , context.getCursor() , 1 , Lexeme.TYPE_CJK_NORMAL);
-				context.addLexeme(newLexeme);
-				//更新doneIndex，标识已处理
-				if(doneIndex < context.getCursor()){
-					doneIndex = context.getCursor();
+			if(lowSurrogate){
+				//代理对的低位不开始新的hit，按整个代理对的匹配结果处理
+				if(surrogateHit != null){
+					if(!surrogateHit.isPrefix() && doneIndex < context.getCursor()){
+						//输出从doneIndex到当前字符（含整个代理对）之间的未知词
+						processUnknown(segmentBuff , context , doneIndex + 1 , context.getCursor());
+						//更新doneIndex，标识已处理
+						doneIndex = context.getCursor();
+					}
+					surrogateHit = null;
 				}
 
-				if(hit.isPrefix()){//同时也是前缀
+			}else{
+				//处理以input为开始的一个新hit
+				Hit hit = context.getDictionary().matchMain(segmentBuff, context.getCursor() , 1);
+				if(hit.isMatch()){//匹配成词
+					//判断是否有不可识别的词段
+					if(context.getCursor() > doneIndex + 1){
+						//输出并处理从doneIndex+1 到 context.getCursor()- 1之间的未知
+						processUnknown(segmentBuff , context , doneIndex + 1 , context.getCursor()- 1);
+					}
+					//输出当前的词
+					Lexeme newLexeme = new Lexeme(context.getBuffOffset() , context.getCursor() , 1 , Lexeme.TYPE_CJK_NORMAL);
+					context.addLexeme(newLexeme);
+					//更新doneIndex，标识已处理
+					if(doneIndex < context.getCursor()){
+						doneIndex = context.getCursor();
+					}
+
+					if(hit.isPrefix()){//同时也是前缀
+						//向词段队列增加新的Hit
+						hitList.add(hit);
+					}
+					
+				}else if(hit.isPrefix()){//前缀，未匹配成词
 					//向词段队列增加新的Hit
 					hitList.add(hit);
+					if(Character.isHighSurrogate(input)){
+						surrogateHit = hit;
+					}
+					
+				}else if(hit.isUnmatch()){//不匹配，当前的input不是词，也不是词前缀，将其视为分割性的字符
+					if(Character.isHighSurrogate(input)){
+						//代理对的高位，待低位处理时再输出
+						surrogateHit = hit;
+						
+					}else if(doneIndex >= context.getCursor()){
+						//当前不匹配的字符已经被处理过了，不需要再processUnknown
+						return;
+						
+					}else{
+						//输出从doneIndex到当前字符（含当前字符）之间的未知词
+						processUnknown(segmentBuff , context , doneIndex + 1 , context.getCursor());
+						//更新doneIndex，标识已处理
+						doneIndex = context.getCursor();
+					}
 				}
-				
-			}else if(hit.isPrefix()){//前缀，未匹配成词
-				//向词段队列增加新的Hit
-				hitList.add(hit);
-				
-			}else if(hit.isUnmatch()){//不匹配，当前的input不是词，也不是词前缀，将其视为分割性的字符
-				if(doneIndex >= context.getCursor()){
-					//当前不匹配的字符已经被处理过了，不需要再processUnknown
-					return;
-				}
-				
-				//输出从doneIndex到当前字符（含当前字符）之间的未知词
-				processUnknown(segmentBuff , context , doneIndex + 1 , context.getCursor());
-				//更新doneIndex，标识已处理
-				doneIndex = context.getCursor();
 			}
 			
 		}else {//输入的不是中文(CJK)字符
@@ -155,7 +246,7 @@ public class CJKSegmenter implements ISegmenter {
 		}
 		
 		//判断是否锁定缓冲区
-		if(hitList.size() == 0){
+		if(hitList.size() == 0 && surrogateHit == null){
 			context.unlockBuffer(this);
 			
 		}else{
@@ -164,6 +255,196 @@ public class CJKSegmenter implements ISegmenter {
 		}
 	}
 
+	/**
+	 * 使用Aho-Corasick自动机匹配主词典
+	 * 自动机的状态对应Hit队列中所有的词前缀：失败链上的状态与队列中的Hit一一对应，
+	 * 输出链接上的词条即队列中匹配成词的Hit，按起始位置从前到后输出，
+	 * 未知词段、代理对以及缓冲区锁定的处理与Hit队列完全相同
+	 * 叠加词典的每一层各有一个自动机，逐字同时推进，各层的结果合并后与检索叠加词典的Hit相同
+	 */
+	private void matchByAutomaton(char[] segmentBuff , Context context , char input , boolean isCJK , boolean lowSurrogate){
+		int cursor = context.getCursor();
+		if(isCJK){//是（CJK）字符，则进行处理
+			if(!isLive()){
+				//没有匹配中的词前缀，可以换用词典最新的自动机
+				refreshAutomata(context.getDictionary());
+			}
+			for(int i = 0 ; i < automata.length ; i++){
+				states[i] = automata[i].next(states[i] , input);
+				wordStates[i] = automata[i].isWord(states[i]) ? states[i] : automata[i].getOutput(states[i]);
+			}
+			//以当前字符结尾的词，长度从大到小即起始位置从前到后，单字词作为新的hit处理
+			//多层词典中都存在的词只输出一次
+			int length = nextWordLength();
+			while(length > 1){
+				int begin = cursor - length + 1;
+				//判断是否有不可识别的词段
+				if(begin > doneIndex + 1){
+					//输出并处理从doneIndex+1 到 begin - 1之间的未知词段
+					processUnknown(segmentBuff , context , doneIndex + 1 , begin - 1);
+				}
+				//输出当前的词
+				Lexeme newLexeme = new Lexeme(context.getBuffOffset() , begin , cursor - begin + 1 , Lexeme.TYPE_CJK_NORMAL);
+				context.addLexeme(newLexeme);
+				//更新doneIndex，标识已处理
+				if(doneIndex < cursor){
+					doneIndex = cursor;
+				}
+				length = nextWordLength();
+			}
+			
+			if(lowSurrogate){
+				//代理对的低位不开始新的词，按整个代理对的匹配结果处理
+				if(surrogatePending){
+					boolean prefix = false;
+					for(int i = 0 ; i < automata.length ; i++){
+						if(surrogateStates[i] != AhoCorasickAutomaton.ROOT){
+							int pairState = automata[i].child(surrogateStates[i] , input);
+							prefix |= pairState != AhoCorasickAutomaton.ROOT && automata[i].isPrefix(pairState);
+						}
+					}
+					if(!prefix && doneIndex < cursor){
+						//输出从doneIndex到当前字符（含整个代理对）之间的未知词
+						processUnknown(segmentBuff , context , doneIndex + 1 , cursor);
+						//更新doneIndex，标识已处理
+						doneIndex = cursor;
+					}
+					surrogatePending = false;
+				}
+				
+			}else{
+				//处理以input为开始的单字
+				boolean word = false;
+				boolean prefix = false;
+				for(int i = 0 ; i < automata.length ; i++){
+					int charState = automata[i].child(AhoCorasickAutomaton.ROOT , input);
+					surrogateStates[i] = charState;
+					if(charState != AhoCorasickAutomaton.ROOT){
+						word |= automata[i].isWord(charState);
+						prefix |= automata[i].isPrefix(charState);
+					}
+				}
+				if(word){//匹配成词
+					//判断是否有不可识别的词段
+					if(cursor > doneIndex + 1){
+						//输出并处理从doneIndex+1 到 cursor - 1之间的未知
+						processUnknown(segmentBuff , context , doneIndex + 1 , cursor - 1);
+					}
+					//输出当前的词
+					Lexeme newLexeme = new Lexeme(context.getBuffOffset() , cursor , 1 , Lexeme.TYPE_CJK_NORMAL);
+					context.addLexeme(newLexeme);
+					//更新doneIndex，标识已处理
+					if(doneIndex < cursor){
+						doneIndex = cursor;
+					}
+					
+				}else if(Character.isHighSurrogate(input)){
+					//代理对的高位，待低位处理时再输出
+					surrogatePending = true;
+					
+				}else if(!prefix){
+					//不匹配，当前的input不是词，也不是词前缀，将其视为分割性的字符
+					if(doneIndex >= cursor){
+						//当前不匹配的字符已经被处理过了，不需要再processUnknown
+						return;
+					}
+					//输出从doneIndex到当前字符（含当前字符）之间的未知词
+					processUnknown(segmentBuff , context , doneIndex + 1 , cursor);
+					//更新doneIndex，标识已处理
+					doneIndex = cursor;
+				}
+			}
+			
+		}else {//输入的不是中文(CJK)字符
+			if(isLive() && doneIndex < cursor - 1){
+				//输出并处理从doneIndex+1 到上一个字符之间的未知词段
+				processUnknown(segmentBuff , context , doneIndex + 1 , cursor - 1);
+			}
+			//回到根状态
+			resetStates();
+			//更新doneIndex，标识已处理
+			if(doneIndex < cursor){
+				doneIndex = cursor;
+			}
+		}
+		
+		//缓冲区结束临界处理
+		if(cursor == context.getAvailable() - 1){ //读取缓冲区结束的最后一个字符
+			if(isLive() //还有未处理的词前缀
+				&& doneIndex < cursor){//最后一个字符还未被输出过
+				//输出并处理从doneIndex+1 到当前字符之间的未知词段
+				processUnknown(segmentBuff , context , doneIndex + 1 , cursor);
+			}
+			//回到根状态
+			resetStates();
+		}
+		
+		//判断是否锁定缓冲区
+		if(!isLive() && !surrogatePending){
+			context.unlockBuffer(this);
+			
+		}else{
+			context.lockBuffer(this);
+	
+		}
+	}
+	
+	/**
+	 * 获取词典各层的自动机，各层状态回到根状态
+	 */
+	private void refreshAutomata(Dictionary dictionary){
+		AhoCorasickAutomaton[] current = dictionary.getMainAutomata();
+		if(current.length != automata.length){
+			states = new int[current.length];
+			surrogateStates = new int[current.length];
+			wordStates = new int[current.length];
+		}
+		automata = current;
+		//不再有子状态的状态与根状态的转移相同
+		resetStates();
+	}
+	
+	/**
+	 * 任一层的当前状态或其失败链上的状态有子状态
+	 * 为true时，以后的字符仍可能与已读入的字符组成词
+	 */
+	private boolean isLive(){
+		for(int i = 0 ; i < automata.length ; i++){
+			if(automata[i].isLive(states[i])){
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * 各层输出链上尚未输出的最长的词，并在各层跳过该长度的词条
+	 * @return int 词长，没有尚未输出的词时返回0
+	 */
+	private int nextWordLength(){
+		int length = 0;
+		for(int i = 0 ; i < automata.length ; i++){
+			if(wordStates[i] != AhoCorasickAutomaton.ROOT){
+				length = Math.max(length , automata[i].getDepth(wordStates[i]));
+			}
+		}
+		for(int i = 0 ; i < automata.length ; i++){
+			if(wordStates[i] != AhoCorasickAutomaton.ROOT && automata[i].getDepth(wordStates[i]) == length){
+				wordStates[i] = automata[i].getOutput(wordStates[i]);
+			}
+		}
+		return length;
+	}
+	
+	/**
+	 * 各层自动机回到根状态
+	 */
+	private void resetStates(){
+		for(int i = 0 ; i < states.length ; i++){
+			states[i] = AhoCorasickAutomaton.ROOT;
+		}
+	}
+
 	/**
 	 * 处理未知词段
 	 * @param segmentBuff 
@@ -172,30 +453,44 @@ public class CJKSegmenter implements ISegmenter {
 	 */
 	private void processUnknown(char[] segmentBuff , Context context , int uBegin , int uEnd){
 		Lexeme newLexeme = null;
+		Dictionary dictionary = context.getDictionary();
 		
-		Hit hit = Dictionary.matchInPrepDict(segmentBuff, uBegin, 1);		
+		Hit hit = dictionary.matchPrep(segmentBuff, uBegin, CharacterHelper.charCount(segmentBuff , uBegin , uEnd));		
 		if(hit.isUnmatch()){//不是副词或介词			
 			if(uBegin > 0){//处理姓氏
-				hit = Dictionary.matchInSurnameDict(segmentBuff, uBegin - 1 , 1);
+				//前一个字可能是代理对
+				int snBegin = uBegin > 1 && Character.isLowSurrogate(segmentBuff[uBegin - 1]) 
+						&& Character.isHighSurrogate(segmentBuff[uBegin - 2]) ? uBegin - 2 : uBegin - 1;
+				hit = dictionary.matchSurname(segmentBuff, snBegin , uBegin - snBegin);
 				if(hit.isMatch()){
 					//输出姓氏
-					newLexeme = new Lexeme(context.getBuffOffset() , uBegin - 1 , 1 , Lexeme.TYPE_CJK_SN);
+					newLexeme = new Lexeme(context.getBuffOffset() , snBegin , uBegin - snBegin , Lexeme.TYPE_CJK_SN);
 					context.addLexeme(newLexeme);		
 				}
 			}			
 		}
 		
-		//以单字输出未知词段
+		//以单字输出未知词段，代理对作为一个字输出
 		for(int i = uBegin ; i <= uEnd ; i++){
-			newLexeme = new Lexeme(context.getBuffOffset() , i , 1  , Lexeme.TYPE_CJK_UNKNOWN);
+			int length = CharacterHelper.charCount(segmentBuff , i , uEnd);
+			newLexeme = new Lexeme(context.getBuffOffset() , i , length  , Lexeme.TYPE_CJK_UNKNOWN);
 			context.addLexeme(newLexeme);		
+			i += length - 1;
 		}
 		
-		hit = Dictionary.matchInPrepDict(segmentBuff, uEnd, 1);
+		//最后一个字可能是代理对
+		int lastBegin = uEnd > uBegin && Character.isLowSurrogate(segmentBuff[uEnd]) 
+				&& Character.isHighSurrogate(segmentBuff[uEnd - 1]) ? uEnd - 1 : uEnd;
+		hit = dictionary.matchPrep(segmentBuff, lastBegin, uEnd - lastBegin + 1);
 		if(hit.isUnmatch()){//不是副词或介词
 			int length = 1;
 			while(uEnd < context.getAvailable() - length){//处理后缀词
-				hit = Dictionary.matchInSuffixDict(segmentBuff, uEnd + 1 , length);
+				if(length == 1){
+					hit = dictionary.matchSuffix(segmentBuff, uEnd + 1 , 1);
+				}else{
+					//后缀词的前缀，从上一个字符的匹配结果继续检索
+					hit = Dictionary.matchWithHit(segmentBuff, uEnd + length , hit);
+				}
 				if(hit.isMatch()){
 					//输出后缀
 					newLexeme = new Lexeme(context.getBuffOffset() , uEnd + 1  , length , Lexeme.TYPE_CJK_SF);
@@ -214,5 +509,8 @@ public class CJKSegmenter implements ISegmenter {
 		//重置已处理标识
 		doneIndex = -1;
 		hitList.clear();
+		surrogateHit = null;
+		resetStates();
+		surrogatePending = false;
 	}
 }
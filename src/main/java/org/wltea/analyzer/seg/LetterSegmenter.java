@@ -5,13 +5,17 @@ package org.wltea.analyzer.seg;
 
 import org.wltea.analyzer.Lexeme;
 import org.wltea.analyzer.Context;
-import org.wltea.analyzer.help.CharacterHelper;
 
 /**
  * 负责处理字母的子分词器，涵盖一下范围
  * 1.英文单词、英文加阿拉伯数字、专有名词（公司名）
  * 2.IP地址、Email、URL
  * 
+ * 链接符号及组合词元的输出方式可以按分词器配置
+ * COMPOUND_AND_PARTS 输出整个组合词元，以及每个链接符号之前的部分和其中的英文单词（默认）
+ * COMPOUND_ONLY      只输出整个组合词元，如 sku-12345-ab
+ * PARTS_ONLY         只输出被链接符号分隔的各个部分，如 sku 12345 ab
+ *
  * @author 林良益
  *
  */
@@ -19,6 +23,41 @@ public class LetterSegmenter implements ISegmenter {
 	
 	//链接符号
 	public static final char[] Sign_Connector = new char[]{'-','_','.','@','&'};
+
+	//输出组合词元及其子词元
+	public static final int COMPOUND_AND_PARTS = 0;
+	//只输出组合词元
+	public static final int COMPOUND_ONLY = 1;
+	//只输出被链接符号分隔的部分
+	public static final int PARTS_ONLY = 2;
+	
+	/*
+	 * ASCII字符类别
+	 */
+	//其他字符
+	private static final byte CHAR_OTHER = 0;
+	//英文字母
+	private static final byte CHAR_LETTER = 1;
+	//阿拉伯数字
+	private static final byte CHAR_DIGIT = 2;
+	//链接符号
+	private static final byte CHAR_CONNECTOR = 3;
+	//默认链接符号的ASCII字符类别表
+	private static final byte[] DEFAULT_ASCII_TYPE = buildAsciiType(Sign_Connector);
+
+	//本分词器使用的链接符号
+	private final char[] connectors;
+	//ASCII字符类别表，以字符为下标
+	private final byte[] asciiType;
+	//是否存在非ASCII的链接符号
+	private final boolean nonAsciiConnector;
+	//是否输出整个组合词元
+	private final boolean emitCompound;
+	//是否输出链接符号之前的部分及英文单词（原有的子词元）
+	private final boolean emitSubWords;
+	//是否输出被链接符号分隔的部分
+	private final boolean emitParts;
+	
 	/*
 	 * 词元的开始位置，
 	 * 同时作为子分词器状态标识
@@ -38,159 +77,284 @@ public class LetterSegmenter implements ISegmenter {
 	 * 字母结束位置
 	 */
 	private int letterEnd;
+	/*
+	 * 当前被链接符号分隔的部分的起始位置
+	 */
+	private int partStart;
+	/*
+	 * 当前连续字母（或连续数字）段之后的位置
+	 * 段首字符处理时已将end、letterEnd更新到段尾，段内其余字符直接跳过
+	 */
+	private int skipTo;
 	
 	public LetterSegmenter(){
+		this(Sign_Connector , COMPOUND_AND_PARTS);
+	}
+
+	/**
+	 *
+	 * @param connectors 链接符号，为null时使用默认的Sign_Connector
+	 * @param compoundMode 组合词元的输出方式 COMPOUND_AND_PARTS ，COMPOUND_ONLY 或 PARTS_ONLY
+	 */
+	public LetterSegmenter(char[] connectors , int compoundMode){
+		if(compoundMode != COMPOUND_AND_PARTS && compoundMode != COMPOUND_ONLY && compoundMode != PARTS_ONLY){
+			throw new IllegalArgumentException("Unknown compound mode : " + compoundMode);
+		}
+		if(connectors == null || connectors == Sign_Connector){
+			this.connectors = Sign_Connector;
+			this.asciiType = DEFAULT_ASCII_TYPE;
+		}else{
+			this.connectors = connectors.clone();
+			this.asciiType = buildAsciiType(this.connectors);
+		}
+		boolean nonAscii = false;
+		for(char c : this.connectors){
+			if(c >= 128){
+				nonAscii = true;
+			}
+		}
+		this.nonAsciiConnector = nonAscii;
+		this.emitCompound = compoundMode != PARTS_ONLY;
+		this.emitSubWords = compoundMode == COMPOUND_AND_PARTS;
+		this.emitParts = compoundMode == PARTS_ONLY;
+
 		start = -1;
 		end = -1;
 		letterStart = -1;
 		letterEnd = -1;
+		partStart = -1;
+		skipTo = 0;
+	}
+
+	/**
+	 * 解析组合词元输出方式的配置
+	 * @param mode both ，compound 或 parts，为空时使用默认的both
+	 * @return int
+	 */
+	public static int parseCompoundMode(String mode){
+		if(mode == null || "".equals(mode.trim()) || "both".equalsIgnoreCase(mode.trim())){
+			return COMPOUND_AND_PARTS;
+		}else if("compound".equalsIgnoreCase(mode.trim())){
+			return COMPOUND_ONLY;
+		}else if("parts".equalsIgnoreCase(mode.trim())){
+			return PARTS_ONLY;
+		}
+		throw new IllegalArgumentException("Unknown compound mode : " + mode);
+	}
+
+	/**
+	 * 生成ASCII字符类别表
+	 */
+	private static byte[] buildAsciiType(char[] connectors){
+		byte[] asciiType = new byte[128];
+		for(char c : connectors){
+			if(c < 128){
+				asciiType[c] = CHAR_CONNECTOR;
+			}
+		}
+		//字母和数字不能作为链接符号
+		for(char c = 'a' ; c <= 'z' ; c++){
+			asciiType[c] = CHAR_LETTER;
+			asciiType[c - 'a' + 'A'] = CHAR_LETTER;
+		}
+		for(char c = '0' ; c <= '9' ; c++){
+			asciiType[c] = CHAR_DIGIT;
+		}
+		return asciiType;
 	}
 	
 	/* (non-Javadoc)
 	 * @see org.wltea.analyzer.ISegmenter#nextLexeme(org.wltea.analyzer.IKSegmentation.Context)
 	 */
 	public void nextLexeme(char[] segmentBuff , Context context) {
+		int cursor = context.getCursor();
+		if(cursor < skipTo){
+			//处于连续字母（或连续数字）段中，状态已在段首更新
+			if(cursor == context.getAvailable() - 1){
+				outputLexemes(context);
+				context.unlockBuffer(this);
+			}
+			return;
+		}
 
 		//读取当前位置的char	
-		char input = segmentBuff[context.getCursor()];
+		char input = segmentBuff[cursor];
+		int type = charType(input);
 		
 		if(start == -1){//当前的分词器尚未开始处理字符			
-			if(isAcceptedCharStart(input)){
+			if(type == CHAR_LETTER || type == CHAR_DIGIT){
 				//记录起始指针的位置,标明分词器进入处理状态
-				start = context.getCursor();
-				end = start;
-				if(CharacterHelper.isEnglishLetter(input)){
-					letterStart =  context.getCursor();
-					letterEnd = letterStart;
+				start = cursor;
+				partStart = cursor;
+				end = scanRun(segmentBuff , cursor , type , context.getAvailable());
+				if(type == CHAR_LETTER){
+					letterStart =  cursor;
+					letterEnd = end;
 				}
 			}
 			
 		}else{//当前的分词器正在处理字符			
-			if(isAcceptedChar(input)){
-				//输入是英文字符
-				if(CharacterHelper.isEnglishLetter(input)){
-					if(letterStart == -1){//设置英文单词起始位置
-						letterStart = context.getCursor();
-					}
-					letterEnd = context.getCursor();
-					
-				}else if(letterStart > -1 && letterEnd > -1){
-					//遇到非英文字符，如果先前存在有英文单词，则切分,重置letterStart ，letterEnd 但不重置start ，end
-					if(letterStart > -1 && letterEnd > -1){
-						//生成已切分的词元
-						Lexeme engLexeme = new Lexeme(context.getBuffOffset() , letterStart , letterEnd - letterStart + 1 , Lexeme.TYPE_LETTER);
-						context.addLexeme(engLexeme);
-						letterStart = -1;
-						letterEnd = -1;
-					}
-				}
-				
-				//输入连接符
-				if(isLetterConnector(input)){
+			if(type == CHAR_CONNECTOR){
+				//遇到非英文字符，如果先前存在有英文单词，则切分,重置letterStart ，letterEnd 但不重置start ，end
+				outputLetters(context);
+				if(emitSubWords){
 					//遇到分割符，输出词元，但不重置start ，end
 					Lexeme newLexeme = new Lexeme(context.getBuffOffset() , start , end - start + 1 , Lexeme.TYPE_LETTER);
 					context.addLexeme(newLexeme);
+				}
+				//输出链接符号之前的部分
+				outputPart(context);
+
+			}else if(type != CHAR_OTHER){
+				if(partStart == -1){
+					partStart = cursor;
+				}
+				//记录下可能的结束位置，如果是连接符结尾，则忽略
+				end = scanRun(segmentBuff , cursor , type , context.getAvailable());
+				if(type == CHAR_LETTER){
+					//输入是英文字符
+					if(letterStart == -1){//设置英文单词起始位置
+						letterStart = cursor;
+					}
+					letterEnd = end;
 					
 				}else{
-					//记录下可能的结束位置，如果是连接符结尾，则忽略
-					end = context.getCursor();
+					//遇到数字，如果先前存在有英文单词，则切分
+					outputLetters(context);
 				}
 				
 			}else{
-				//生成已切分的词元
-				Lexeme newLexeme = new Lexeme(context.getBuffOffset() , start , end - start + 1 , Lexeme.TYPE_LETTER);
-//				if(!Dictionary.isStopWord(segmentBuff , newLexeme.getBegin() , newLexeme.getLength())){
-				context.addLexeme(newLexeme);
-//				}
-				//设置当前分词器状态为“待处理”
-				start = -1;
-				end = -1;
-				
-				//输出英文单词
-				if(letterStart > -1 && letterEnd > -1){
-					//生成已切分的词元
-					Lexeme engLexeme = new Lexeme(context.getBuffOffset() , letterStart , letterEnd - letterStart + 1 , Lexeme.TYPE_LETTER);
-//					if(!Dictionary.isStopWord(segmentBuff , engLexeme.getBegin() , engLexeme.getLength())){
-					context.addLexeme(engLexeme);
-//					}
-					letterStart = -1;
-					letterEnd = -1;
-				}	
+				//输出词元，设置当前分词器状态为“待处理”
+				outputLexemes(context);
 			}			
 		}
 		
 		//context.getCursor() == context.getAvailable() - 1读取缓冲区最后一个字符，直接输出
-		if(context.getCursor() == context.getAvailable() - 1){
-			if(start != -1 && end != -1){
+		if(cursor == context.getAvailable() - 1){
+			outputLexemes(context);
+		}
+		
+		//判断是否锁定缓冲区
+		if(start == -1 && end == -1){
+			//对缓冲区解锁
+			context.unlockBuffer(this);
+		}else{
+			context.lockBuffer(this);
+		}
+	}
+	
+	/**
+	 * 输出尚未输出的词元，并设置当前分词器状态为“待处理”
+	 * @param context
+	 */
+	private void outputLexemes(Context context){
+		if(start != -1 && end != -1){
+			if(emitCompound){
 				//生成已切分的词元
 				Lexeme newLexeme = new Lexeme(context.getBuffOffset() , start , end - start + 1 , Lexeme.TYPE_LETTER);
 //				if(!Dictionary.isStopWord(segmentBuff , newLexeme.getBegin() , newLexeme.getLength())){
 				context.addLexeme(newLexeme);
 //				}
 			}
-			//设置当前分词器状态为“待处理”
-			start = -1;
-			end = -1;
-			
-			//输出英文单词
-			if(letterStart > -1 && letterEnd > -1){
+			outputPart(context);
+		}
+		//设置当前分词器状态为“待处理”
+		start = -1;
+		end = -1;
+		partStart = -1;
+		
+		//输出英文单词
+		outputLetters(context);
+	}
+
+	/**
+	 * 输出英文单词，重置letterStart ，letterEnd
+	 * @param context
+	 */
+	private void outputLetters(Context context){
+		if(letterStart > -1 && letterEnd > -1){
+			if(emitSubWords){
 				//生成已切分的词元
 				Lexeme engLexeme = new Lexeme(context.getBuffOffset() , letterStart , letterEnd - letterStart + 1 , Lexeme.TYPE_LETTER);
 //				if(!Dictionary.isStopWord(segmentBuff , engLexeme.getBegin() , engLexeme.getLength())){
 				context.addLexeme(engLexeme);
 //				}
-				letterStart = -1;
-				letterEnd = -1;
-			}			
+			}
+			letterStart = -1;
+			letterEnd = -1;
 		}
-		
-		//判断是否锁定缓冲区
-		if(start == -1 && end == -1){
-			//对缓冲区解锁
-			context.unlockBuffer(this);
-		}else{
-			context.lockBuffer(this);
+	}
+
+	/**
+	 * 输出被链接符号分隔的部分，重置partStart
+	 * @param context
+	 */
+	private void outputPart(Context context){
+		if(partStart > -1){
+			if(emitParts){
+				Lexeme partLexeme = new Lexeme(context.getBuffOffset() , partStart , end - partStart + 1 , Lexeme.TYPE_LETTER);
+				context.addLexeme(partLexeme);
+			}
+			partStart = -1;
 		}
 	}
 	
 	/**
-	 * 
-	 * @param input
-	 * @return
+	 * 从当前位置向后扫描同类的连续ASCII字母（或数字），返回段尾位置
+	 * 游标之后的字符尚未规格化，非ASCII字符（如全角字母）结束扫描，留待游标到达时逐字处理
+	 * @param segmentBuff
+	 * @param cursor 段首位置
+	 * @param type 段首字符的类别
+	 * @param available 缓冲区可用长度
+	 * @return int 段尾位置
 	 */
-	private boolean isLetterConnector(char input){
-		for(char c : Sign_Connector){
-			if(c == input){
-				return true;
+	private int scanRun(char[] segmentBuff , int cursor , int type , int available){
+		byte[] asciiType = this.asciiType;
+		int i = cursor + 1;
+		while(i < available){
+			char c = segmentBuff[i];
+			if(c >= 128 || asciiType[c] != type){
+				break;
 			}
+			i++;
 		}
-		return false;
+		skipTo = i;
+		return i - 1;
 	}
 	
 	/**
-	 * 判断char是否是可接受的起始子符
-	 * @return
+	 * 识别字符类别
+	 * @param input
+	 * @return int
 	 */
-	private boolean isAcceptedCharStart(char input){
-		return CharacterHelper.isEnglishLetter(input) 
-				|| CharacterHelper.isArabicNumber(input);
+	private int charType(char input){
+		if(input < 128){
+			return asciiType[input];
+		}
+		return nonAsciiConnector && isLetterConnector(input) ? CHAR_CONNECTOR : CHAR_OTHER;
 	}
 	
 	/**
-	 * 判断char是否是可接受的字符
+	 * 
+	 * @param input
 	 * @return
 	 */
-	private boolean isAcceptedChar(char input){
-		return isLetterConnector(input) 
-				|| CharacterHelper.isEnglishLetter(input) 
-				|| CharacterHelper.isArabicNumber(input);
+	private boolean isLetterConnector(char input){
+		for(char c : connectors){
+			if(c == input){
+				return true;
+			}
+		}
+		return false;
 	}
-
+	
 	public void reset() {
 		start = -1;
 		end = -1;
 		letterStart = -1;
 		letterEnd = -1;
+		partStart = -1;
+		skipTo = 0;
 	}
 	
 
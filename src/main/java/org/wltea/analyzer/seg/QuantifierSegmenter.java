@@ -3,9 +3,6 @@
  */
 package org.wltea.analyzer.seg;
 
-import java.util.HashSet;
-import java.util.Set;
-
 import org.wltea.analyzer.Lexeme;
 import org.wltea.analyzer.Context;
 import org.wltea.analyzer.dic.Dictionary;
@@ -26,25 +23,11 @@ public class QuantifierSegmenter implements ISegmenter {
 
 	//阿拉伯数词前缀（货币符号）
 	public static String Arabic_Num_Pre = "-+$￥";//Apre
-	private static Set<Character> ArabicNumPreChars = new HashSet<Character>();
-	static{
-		char[] ca = Arabic_Num_Pre.toCharArray();
-		for(char nChar : ca){
-			ArabicNumPreChars.add(nChar);
-		}
-	}
 	public static final int NC_ANP = 01;	
 	//阿拉伯数字0-9
 	public static final int NC_ARABIC = 02;
 	//阿拉伯数词链接符号
 	public static String Arabic_Num_Mid = ",./:Ee";//Amid
-	private static Set<Character> ArabicNumMidChars = new HashSet<Character>();
-	static{
-		char[] ca = Arabic_Num_Mid.toCharArray();
-		for(char nChar : ca){
-			ArabicNumMidChars.add(nChar);
-		}
-	}
 	public static final int NC_ANM = 03;
 	//阿拉伯数词后缀
 	public static String Arabic_Num_End = "%‰";//Aend
@@ -55,76 +38,159 @@ public class QuantifierSegmenter implements ISegmenter {
 	public static final int NC_CNP = 11;
 	//中文数词
 	public static String Chn_Num = "○一二两三四五六七八九十零壹贰叁肆伍陆柒捌玖拾百千万亿拾佰仟萬億兆卅廿";//Cnum
-	private static Set<Character> ChnNumberChars = new HashSet<Character>();
-	static{
-		char[] ca = Chn_Num.toCharArray();
-		for(char nChar : ca){
-			ChnNumberChars.add(nChar);
-		}
-	}
 	public static final int NC_CHINESE = 12;
 	//中文数词连接符
 	public static String Chn_Num_Mid = "点";//Cmid
 	public static final int NC_CNM = 13;
 	//中文约数词（数词结尾）
 	public static String Chn_Num_End = "几多余半";//Cend
-	private static Set<Character> ChnNumEndChars = new HashSet<Character>();
-	static{
-		char[] ca = Chn_Num_End.toCharArray();
-		for(char nChar : ca){
-			ChnNumEndChars.add(nChar);
-		}
-	}
 	public static final int NC_CNE = 14;
 	
 	//GB库中的罗马字符(起始、中间、结束)
 	public static String Rome_Num = "ⅠⅡⅢⅣⅤⅥⅧⅨⅩⅪ"; //Rnum
-	private static Set<Character> RomeNumChars = new HashSet<Character>();
-	static{
-		char[] ca = Rome_Num.toCharArray();
-		for(char nChar : ca){
-			RomeNumChars.add(nChar);
-		}
-	}
 	public static final int NC_ROME = 22;
 
 	//非数词字符
 	public static final int NaN = -99;
 	
-	//所有的可能数词
-	private static Set<Character> AllNumberChars = new HashSet<Character>(256);
+	/*
+	 * 状态机内部使用的字符类别（同时作为状态编号）
+	 * 与NC_*一一对应，取值连续，便于作为转移表的下标
+	 */
+	private static final int S_NAN = 0;
+	private static final int S_ANP = 1;
+	private static final int S_ARABIC = 2;
+	private static final int S_ANM = 3;
+	private static final int S_ANE = 4;
+	private static final int S_CNP = 5;
+	private static final int S_CHINESE = 6;
+	private static final int S_CNM = 7;
+	private static final int S_CNE = 8;
+	private static final int S_ROME = 9;
+	private static final int STATE_COUNT = 10;
+	
+	/*
+	 * 转移动作，按以下顺序执行
+	 */
+	//记录可能的结束位置为前一个字符
+	private static final int A_END_PREV = 0x01;
+	//记录可能的结束位置为当前字符（在输出前）
+	private static final int A_END_BEFORE_OUTPUT = 0x02;
+	//输出可能存在的数词
+	private static final int A_OUTPUT = 0x04;
+	//重置数词状态
+	private static final int A_RESET = 0x08;
+	//记录起始位置
+	private static final int A_START = 0x10;
+	//记录当前的字符状态
+	private static final int A_STATUS = 0x20;
+	//记录可能的结束位置为当前字符
+	private static final int A_END = 0x40;
+	//转移动作中记录目标状态的位移
+	private static final int STATUS_SHIFT = 8;
+	
+	/*
+	 * 字符类别表，以字符为下标
+	 */
+	private static final byte[] CHAR_CLASS = new byte[Character.MAX_VALUE + 1];
+	/*
+	 * 转移表，以 状态 * STATE_COUNT + 字符类别 为下标
+	 * 低8位为转移动作，高位为目标状态
+	 */
+	private static final int[] TRANSITIONS = new int[STATE_COUNT * STATE_COUNT];
+	/*
+	 * 可能开始一个数词的字符位图，按规格化之前的字符计算
+	 * 分词器空闲时据此向后扫描，跳过不可能开始数词（也就不可能开始量词）的字符
+	 */
+	private static final long[] NUMBER_START_BITMAP = new long[(Character.MAX_VALUE + 1) >>> 6];
 	static{
-		char[] ca = null;
+		//按识别优先级从低到高填充，优先级高的类别覆盖优先级低的类别
+		fillCharClass(Rome_Num , S_ROME);
+		fillCharClass(Arabic_Num_End , S_ANE);
+		fillCharClass(Arabic_Num_Mid , S_ANM);
+		fillCharClass(Arabic_Num_Pre , S_ANP);
+		fillCharClass(Chn_Num_End , S_CNE);
+		fillCharClass(Chn_Num_Mid , S_CNM);
+		fillCharClass(Chn_Num_Pre , S_CNP);
+		fillCharClass(Chn_Num , S_CHINESE);
+		fillCharClass("0123456789" , S_ARABIC);
 		
-		AllNumberChars.addAll(ArabicNumPreChars);
-		
-		for(char nChar = '0' ; nChar <='9' ; nChar++ ){
-			AllNumberChars.add(nChar);
+		//默认转移：输出可能存在的数词，重置数词状态，进入初始态进行处理
+		for(int state = 0 ; state < STATE_COUNT ; state++){
+			for(int input = 0 ; input < STATE_COUNT ; input++){
+				TRANSITIONS[state * STATE_COUNT + input] = 
+					state == S_NAN ? onNaN(input) : (A_OUTPUT | A_RESET | onNaN(input));
+			}
 		}
-		
-		AllNumberChars.addAll(ArabicNumMidChars);
-		
-		ca = Arabic_Num_End.toCharArray();
-		for(char nChar : ca){
-			AllNumberChars.add(nChar);
+		//阿拉伯数字前缀
+		transition(S_ANP , S_ARABIC , to(S_ARABIC) | A_END);
+		//阿拉伯数字
+		transition(S_ARABIC , S_ARABIC , A_END);
+		transition(S_ARABIC , S_ANM , to(S_ANM));
+		transition(S_ARABIC , S_ANE , A_END_BEFORE_OUTPUT | A_OUTPUT | A_RESET);
+		//阿拉伯数字链接符
+		transition(S_ANM , S_ARABIC , to(S_ARABIC) | A_END);
+		transition(S_ANM , S_ANP , to(S_ANP));
+		//中文数字前缀，后接数字时输出前缀，否则丢弃前缀
+		for(int input = 0 ; input < STATE_COUNT ; input++){
+			if(input == S_CHINESE || input == S_ARABIC || input == S_ROME){
+				transition(S_CNP , input , A_END_PREV | A_OUTPUT | A_RESET | onNaN(input));
+			}else{
+				transition(S_CNP , input , A_RESET | onNaN(input));
+			}
 		}
+		//中文数字
+		transition(S_CHINESE , S_CHINESE , A_END);
+		transition(S_CHINESE , S_CNM , to(S_CNM));
+		transition(S_CHINESE , S_CNE , to(S_CNE) | A_END);
+		//中文数字链接符
+		transition(S_CNM , S_CHINESE , to(S_CHINESE) | A_END);
+		transition(S_CNM , S_CNE , to(S_CNE) | A_END);
+		//罗马数字
+		transition(S_ROME , S_ROME , A_END);
 		
-		ca = Chn_Num_Pre.toCharArray();
-		for(char nChar : ca){
-			AllNumberChars.add(nChar);
+		for(int c = 0 ; c <= Character.MAX_VALUE ; c++){
+			//IKSegmentation在游标到达时才对字符做规格化
+			if(TRANSITIONS[S_NAN * STATE_COUNT + CHAR_CLASS[CharacterHelper.regularize((char)c)]] != 0){
+				NUMBER_START_BITMAP[c >>> 6] |= 1L << c;
+			}
 		}
+	}
 		
-		AllNumberChars.addAll(ChnNumberChars);
+	private static void fillCharClass(String chars , int charClass){
+		for(char c : chars.toCharArray()){
+			CHAR_CLASS[c] = (byte)charClass;
+		}
+	}
 		
-		ca = Chn_Num_Mid.toCharArray();
-		for(char nChar : ca){
-			AllNumberChars.add(nChar);
+	/**
+	 * 初始态下的转移动作
+	 * 对NC_ANM ，NC_ANE和NC_CNM 不做处理
+	 */
+	private static int onNaN(int input){
+		switch(input){
+		case S_CNP :
+		case S_ANP :
+			return A_START | to(input);
+		case S_CHINESE :
+		case S_CNE :
+		case S_ARABIC :
+		case S_ROME :
+			return A_START | to(input) | A_END;
+		default :
+			return 0;
 		}
-
-		AllNumberChars.addAll(ChnNumEndChars);
+	}
 		
-		AllNumberChars.addAll(RomeNumChars);
+	/**
+	 * 转移到目标状态
+	 */
+	private static int to(int target){
+		return A_STATUS | (target << STATUS_SHIFT);
+	}
 		
+	private static void transition(int state , int input , int actions){
+		TRANSITIONS[state * STATE_COUNT + input] = actions;
 	}
 	
 	/*
@@ -155,23 +221,47 @@ public class QuantifierSegmenter implements ISegmenter {
 	 * 量词终止位置
 	 */
 	private int countEnd;
+	/*
+	 * 量词词典的当前匹配结果，用于逐字继续检索
+	 */
+	private Hit countHit;
 	
-
+	/*
+	 * 空闲状态下可以跳过的字符边界
+	 * 游标小于该位置的字符都不可能开始数词
+	 */
+	private int skipTo;
 	
 	public QuantifierSegmenter(){
 		nStart = -1;
 		nEnd = -1;
-		nStatus = NaN;
+		nStatus = S_NAN;
 		fCaN = false;
 		
 		countStart = -1;
 		countEnd = -1;
+		skipTo = 0;
 	}
 	
 	/* (non-Javadoc)
 	 * @see org.wltea.analyzer.ISegmenter#nextLexeme(org.wltea.analyzer.IKSegmentation.Context)
 	 */
 	public void nextLexeme(char[] segmentBuff , Context context) {
+		int cursor = context.getCursor();
+		if(cursor < skipTo){
+			//空闲状态下不可能开始数词的字符，直接跳过
+			return;
+		}
+		if(this.nStart == -1 && this.nEnd == -1 && S_NAN == this.nStatus
+				&& this.countStart == -1 && this.countEnd == -1
+				&& TRANSITIONS[S_NAN * STATE_COUNT + CHAR_CLASS[segmentBuff[cursor]]] == 0){
+			//分词器空闲，扫描到下一个可能开始数词的字符
+			skipTo = nextNumberStart(segmentBuff , cursor + 1 , context.getAvailable());
+			//对缓冲区解锁
+			context.unlockBuffer(this);
+			return;
+		}
+		
 		fCaN = false;
 		//数词处理部分
 		processNumber(segmentBuff , context);
@@ -192,7 +282,7 @@ public class QuantifierSegmenter implements ISegmenter {
 		}
 		
 		//判断是否锁定缓冲区
-		if(this.nStart == -1 && this.nEnd == -1 && NaN == this.nStatus
+		if(this.nStart == -1 && this.nEnd == -1 && S_NAN == this.nStatus
 				&& this.countStart == -1 && this.countEnd == -1){
 			//对缓冲区解锁
 			context.unlockBuffer(this);
@@ -201,371 +291,68 @@ public class QuantifierSegmenter implements ISegmenter {
 		}
 	}
 
+	/**
+	 * 查找下一个可能开始数词的字符位置
+	 * @param segmentBuff
+	 * @param from 起始位置
+	 * @param available 缓冲区可用长度
+	 * @return int 找不到时返回available
+	 */
+	private static int nextNumberStart(char[] segmentBuff , int from , int available){
+		int i = from;
+		while(i < available){
+			char c = segmentBuff[i];
+			if((NUMBER_START_BITMAP[c >>> 6] & (1L << c)) != 0){
+				break;
+			}
+			i++;
+		}
+		return i;
+	}
+
 	/**
 	 * 数词处理
+	 * 按（当前状态，字符类别）查转移表，依次执行转移动作
 	 * @param segmentBuff
 	 * @param context
 	 */
 	private void processNumber(char[] segmentBuff , Context context){		
+		int cursor = context.getCursor();
 		//数词字符识别
-		int inputStatus = nIdentify(segmentBuff , context);
-		
-		if(NaN == nStatus){
-			//当前的分词器尚未开始处理字符
-			onNaNStatus(inputStatus , context);
-			
-		}else if(NC_ANP == nStatus){ 
-			//当前为阿拉伯数字前缀	
-			onANPStatus(inputStatus , context);
-			
-		}else if(NC_ARABIC == nStatus){
-			//当前为阿拉伯数字
-			onARABICStatus(inputStatus , context);
-			
-		}else if(NC_ANM	== nStatus){
-			//当前为阿拉伯数字链接符
-			onANMStatus(inputStatus , context);
-			
-		}else if(NC_ANE == nStatus){
-			//当前为阿拉伯数字结束符
-			onANEStatus(inputStatus , context);
-			
-		}else if(NC_CNP == nStatus){
-			//当前为中文数字前缀
-			onCNPStatus(inputStatus , context);
-			
-		}else if(NC_CHINESE == nStatus){
-			//当前为中文数字
-			onCHINESEStatus(inputStatus , context);
-			
-		}else if(NC_CNM == nStatus){
-			//当前为中文数字连接符
-			onCNMStatus(inputStatus , context);
-			
-		}else if(NC_CNE == nStatus){
-			//当前为中文数字结束符
-			onCNEStatus(inputStatus , context);
-			
-		}else if(NC_ROME == nStatus){
-			//当前为罗马数字
-			onROMEStatus(inputStatus , context);			
-			
+		int input = CHAR_CLASS[segmentBuff[cursor]];
+		int transition = TRANSITIONS[nStatus * STATE_COUNT + input];
+		if(transition != 0){
+			if((transition & A_END_PREV) != 0){
+				nEnd = cursor - 1;
+			}
+			if((transition & A_END_BEFORE_OUTPUT) != 0){
+				nEnd = cursor;
+			}
+			if((transition & A_OUTPUT) != 0){
+				outputNumLexeme(context);
+			}
+			if((transition & A_RESET) != 0){
+				nReset();
+			}
+			if((transition & A_START) != 0){
+				nStart = cursor;
+			}
+			if((transition & A_STATUS) != 0){
+				nStatus = transition >>> STATUS_SHIFT;
+			}
+			if((transition & A_END) != 0){
+				nEnd = cursor;
+			}
 		}
 		
 		//读到缓冲区最后一个字符，还有尚未输出的数词
-		if(context.getCursor() == context.getAvailable() - 1){
+		if(cursor == context.getAvailable() - 1){
 			if(nStart != -1 && nEnd != -1){
 				//输出数词
 				outputNumLexeme(context);
 			}
 			//重置数词状态
 			nReset();
-		}				
-	}
-	
-	/**
-	 * 当前为NaN状态时，状态机的处理(状态转换)
-	 * @param inputStatus
-	 * @param context
-	 */
-	private void onNaNStatus(int inputStatus ,  Context context){
-		if(NaN == inputStatus){
-			return;
-			
-		}else if(NC_CNP == inputStatus){//中文数词前缀
-			//记录起始位置
-			nStart = context.getCursor();
-			//记录当前的字符状态
-			nStatus = inputStatus;	
-			
-		}else if(NC_CHINESE == inputStatus){//中文数词
-			//记录起始位置
-			nStart = context.getCursor();
-			//记录当前的字符状态
-			nStatus = inputStatus;
-			//记录可能的结束位置
-			nEnd = context.getCursor();
-			
-		}else if(NC_CNE == inputStatus){//中文数词后缀
-			//记录起始位置
-			nStart = context.getCursor();
-			//记录当前的字符状态
-			nStatus = inputStatus;
-			//记录可能的结束位置
-			nEnd = context.getCursor();
-			
-		}else if(NC_ANP == inputStatus){//阿拉伯数字前缀
-			//记录起始位置
-			nStart = context.getCursor();
-			//记录当前的字符状态
-			nStatus = inputStatus;
-			
-		}else if(NC_ARABIC == inputStatus){//阿拉伯数字
-			//记录起始位置
-			nStart = context.getCursor();
-			//记录当前的字符状态
-			nStatus = inputStatus;
-			//记录可能的结束位置
-			nEnd = context.getCursor();
-			
-		}else if(NC_ROME == inputStatus){//罗马数字
-			//记录起始位置
-			nStart = context.getCursor();
-			//记录当前的字符状态
-			nStatus = inputStatus;
-			//记录可能的结束位置
-			nEnd = context.getCursor();	
-		
-		}else{
-			//对NC_ANM ，NC_ANE和NC_CNM 不做处理
-		}
-	}
-	
-	
-	/**
-	 * 当前为ANP状态时，状态机的处理(状态转换)
-	 * @param inputStatus
-	 * @param context
-	 */
-	private void onANPStatus(int inputStatus ,  Context context){
-		if(NC_ARABIC == inputStatus){//阿拉伯数字
-			//记录当前的字符状态
-			nStatus = inputStatus;
-			//记录可能的结束位置
-			nEnd = context.getCursor();
-			
-		}else{
-			//输出可能的数词
-			outputNumLexeme(context);
-			//重置数词状态
-			nReset();
-			//进入初始态进行处理
-			onNaNStatus(inputStatus , context);
-			
-		}
-	}
-	
-	
-	/**
-	 * 当前为ARABIC状态时，状态机的处理(状态转换)
-	 * @param inputStatus
-	 * @param context
-	 */
-	private void onARABICStatus(int inputStatus ,  Context context){
-		if(NC_ARABIC == inputStatus){//阿拉伯数字
-			//保持状态不变
-			//记录可能的结束位置
-			nEnd = context.getCursor();
-			
-		}else if(NC_ANM == inputStatus){//阿拉伯数字连接符
-			//记录当前的字符状态
-			nStatus = inputStatus;
-			
-		}else if(NC_ANE == inputStatus){//阿拉伯数字后缀
-			//记录当前的字符状态
-			nStatus = inputStatus;
-			//记录可能的结束位置
-			nEnd = context.getCursor();
-			//输出数词
-			outputNumLexeme(context);
-			//重置数词状态
-			nReset();
-			
-		}else{
-			//输出数词
-			outputNumLexeme(context);
-			//重置数词状态
-			nReset();
-			//进入初始态进行处理
-			onNaNStatus(inputStatus , context);	
-			
-		}
-		
-	}
-	
-	/**
-	 * 当前为ANM状态时，状态机的处理(状态转换)
-	 * @param inputStatus
-	 * @param context
-	 */
-	private void onANMStatus(int inputStatus ,  Context context){
-		if (NC_ARABIC == inputStatus){//阿拉伯数字
-			//记录当前的字符状态
-			nStatus = inputStatus;
-			//记录可能的结束位置
-			nEnd = context.getCursor();
-			
-		}else if (NC_ANP == inputStatus){//阿拉伯数字前缀
-			//记录当前的字符状态
-			nStatus = inputStatus;
-			
-		}else{
-			//输出可能存在的数词
-			outputNumLexeme(context);
-			//重置数词状态
-			nReset();
-			//进入初始态进行处理
-			onNaNStatus(inputStatus , context);
-			
-		}		
-	}
-
-	
-	/**
-	 * 当前为ANE状态时，状态机的处理(状态转换)
-	 * @param inputStatus
-	 * @param context
-	 */
-	private void onANEStatus(int inputStatus ,  Context context){
-		//输出可能存在的数词
-		outputNumLexeme(context);
-		//重置数词状态
-		nReset();
-		//进入初始态进行处理
-		onNaNStatus(inputStatus , context);
-				
-	}	
-	
-	
-	/**
-	 *  当前为CNP状态时，状态机的处理(状态转换)
-	 * @param inputStatus
-	 * @param context
-	 */
-	private void onCNPStatus(int inputStatus ,  Context context){
-		if(NC_CHINESE == inputStatus){//中文数字
-			//记录可能的结束位置
-			nEnd = context.getCursor() - 1;
-			//输出可能存在的数词
-			outputNumLexeme(context);
-			//重置数词状态
-			nReset();
-			//进入初始态进行处理
-			onNaNStatus(inputStatus , context);			
-
-			
-		}else if(NC_ARABIC == inputStatus){//阿拉伯数字
-			//记录可能的结束位置
-			nEnd = context.getCursor() - 1;
-			//输出可能存在的数词
-			outputNumLexeme(context);
-			//重置数词状态
-			nReset();
-			//进入初始态进行处理
-			onNaNStatus(inputStatus , context);	
-			
-		}else if(NC_ROME == inputStatus){//罗马数字
-			//记录可能的结束位置
-			nEnd = context.getCursor() - 1;
-			//输出可能存在的数词
-			outputNumLexeme(context);
-			//重置数词状态
-			nReset();
-			//进入初始态进行处理
-			onNaNStatus(inputStatus , context);	
-			
-		}else{
-			//重置数词状态
-			nReset();
-			//进入初始态进行处理
-			onNaNStatus(inputStatus , context);
-			
-		}
-	}
-	
-	/**
-	 * 当前为CHINESE状态时，状态机的处理(状态转换)
-	 * @param inputStatus
-	 * @param context
-	 */
-	private void onCHINESEStatus(int inputStatus ,  Context context){
-		if(NC_CHINESE == inputStatus){//中文数字
-			//记录可能的结束位置
-			nEnd = context.getCursor();
-			
-		}else if(NC_CNM == inputStatus){//中文数字链接符
-			//记录当前的字符状态
-			nStatus = inputStatus;
-			
-		}else if(NC_CNE == inputStatus){//中文数字结束符
-			//记录当前的字符状态
-			nStatus = inputStatus;
-			//记录可能的结束位置
-			nEnd = context.getCursor();
-			
-		}else{//其他输入
-			//输出可能存在的数词
-			outputNumLexeme(context);
-			//重置数词状态
-			nReset();
-			//进入初始态进行处理
-			onNaNStatus(inputStatus , context);
-			
-		}
-	}
-	
-	/**
-	 * 当前为CNM状态时，状态机的处理(状态转换)
-	 * @param inputStatus
-	 * @param context
-	 */
-	private void onCNMStatus(int inputStatus ,  Context context){
-		if(NC_CHINESE == inputStatus){//中文数字
-			//记录当前的字符状态
-			nStatus = inputStatus;
-			//记录可能的结束位置
-			nEnd = context.getCursor();
-			
-		}else if(NC_CNE == inputStatus){//中文数字结束符
-			//记录当前的字符状态
-			nStatus = inputStatus;
-			//记录可能的结束位置
-			nEnd = context.getCursor();
-			
-		}else{//其他输入
-			//输出可能存在的数词
-			outputNumLexeme(context);
-			//重置数词状态
-			nReset();
-			//进入初始态进行处理
-			onNaNStatus(inputStatus , context);
-			
-		}		
-	}
-	
-	/**
-	 * 当前为CNE状态时，状态机的处理(状态转换)
-	 * @param inputStatus
-	 * @param context
-	 */
-	private void onCNEStatus(int inputStatus ,  Context context){
-		//输出可能存在的数词
-		outputNumLexeme(context);
-		//重置数词状态
-		nReset();
-		//进入初始态进行处理
-		onNaNStatus(inputStatus , context);
-				
-	}
-	
-	/**
-	 * 当前为ROME状态时，状态机的处理(状态转换)
-	 * @param inputStatus
-	 * @param context
-	 */
-	private void onROMEStatus(int inputStatus ,  Context context){
-		if(NC_ROME == inputStatus){//罗马数字
-			//记录可能的结束位置
-			nEnd = context.getCursor();
-			
-		}else{//其他输入
-			//输出可能存在的数词
-			outputNumLexeme(context);
-			//重置数词状态
-			nReset();
-			//进入初始态进行处理
-			onNaNStatus(inputStatus , context);
-			
 		}
 	}
 	
@@ -601,53 +388,7 @@ public class QuantifierSegmenter implements ISegmenter {
 	private void nReset(){
 		this.nStart = -1;
 		this.nEnd = -1;
-		this.nStatus = NaN;
-	}
-	
-	/**
-	 * 识别数字字符类型
-	 * @param input
-	 * @return
-	 */
-	private int nIdentify(char[] segmentBuff , Context context){
-		
-		//读取当前位置的char	
-		char input = segmentBuff[context.getCursor()];
-		
-		int type = NaN;
-		if(!AllNumberChars.contains(input)){
-			return type;
-		}
-		
-		if(CharacterHelper.isArabicNumber(input)){
-			type = NC_ARABIC;
-			 
-		}else if(ChnNumberChars.contains(input)){
-			type = NC_CHINESE;
-			
-		}else if(Chn_Num_Pre.indexOf(input) >= 0){
-			type = NC_CNP;
-			
-		}else if(Chn_Num_Mid.indexOf(input) >= 0){
-			type = NC_CNM;
-			
-		}else if(ChnNumEndChars.contains(input)){
-			type = NC_CNE;
-			
-		}else if(ArabicNumPreChars.contains(input)){
-			type = NC_ANP;
-			
-		}else if(ArabicNumMidChars.contains(input)){
-			type = NC_ANM;
-			
-		}else if(Arabic_Num_End.indexOf(input) >= 0){
-			type = NC_ANE;
-			
-		}else if(RomeNumChars.contains(input)){
-			type = NC_ROME;
-			
-		}
-		return type;
+		this.nStatus = S_NAN;
 	}
 
 	/**
@@ -659,10 +400,12 @@ public class QuantifierSegmenter implements ISegmenter {
 		Hit hit = null;
 
 		if(countStart == -1){
-			hit = Dictionary.matchInQuantifierDict(segmentBuff , context.getCursor() , 1);
+			hit = context.getDictionary().matchQuantifier(segmentBuff , context.getCursor() , 1);
 		}else{
-			hit = Dictionary.matchInQuantifierDict(segmentBuff , countStart , context.getCursor() - countStart + 1);
+			//从上一个字符的匹配结果继续检索，不必从词典根节点重新匹配
+			hit = Dictionary.matchWithHit(segmentBuff , context.getCursor() , countHit);
 		}
+		countHit = hit;
 		
 		if(hit != null){
 			if(hit.isPrefix()){
@@ -696,17 +439,20 @@ public class QuantifierSegmenter implements ISegmenter {
 			//重置量词状态
 			countStart = -1;
 			countEnd = -1;
+			countHit = null;
 		}
 	}
 
 	public void reset() {
 		nStart = -1;
 		nEnd = -1;
-		nStatus = NaN;
+		nStatus = S_NAN;
 		fCaN = false;
 		
 		countStart = -1;
 		countEnd = -1;
+		countHit = null;
+		skipTo = 0;
 	}
 
 }
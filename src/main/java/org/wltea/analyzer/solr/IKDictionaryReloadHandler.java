@@ -0,0 +1,284 @@
+/**
+ * 
+ */
+package org.wltea.analyzer.solr;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.solr.analysis.TokenizerChain;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+import org.apache.solr.core.CloseHook;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.handler.RequestHandlerBase;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.request.SolrQueryResponse;
+import org.apache.solr.schema.FieldType;
+import org.apache.solr.util.plugin.SolrCoreAware;
+import org.wltea.analyzer.dic.Dictionary;
+import org.wltea.analyzer.dic.DictionaryStats;
+
+/**
+ * IK词典重新加载请求处理器
+ * 在后台线程中重新加载本core内IKTokenizerFactory使用的词库，加载完成后原子替换
+ * 更新词库不再需要reload整个core，也不需要重新预热缓存
+ *
+ * solrconfig.xml配置：
+ * <requestHandler name="/ikdict" class="org.wltea.analyzer.solr.IKDictionaryReloadHandler"/>
+ * 请求：
+ * /ikdict?action=reload            在后台重新加载词库
+ * /ikdict?action=reload&wait=true  重新加载词库，并等待加载完成返回报告
+ * /ikdict?action=status            查看加载状态及最近一次加载的报告
+ * /ikdict?action=apply&log=ik/changes.log  应用词库目录下的变更日志，返回各字段类型词典的版本
+ *                                          重新加载词库后，需要再次应用变更日志
+ * 词库内容相同的字段类型（包括其他core中的字段类型）共享同一个词典实例，
+ * 应用变更日志会同时修改所有共享该实例的字段类型及core的词典
+ * 只配置了扩展词典的字段类型使用默认词典上的叠加词典，叠加词典不能删除默认词典中的词条，
+ * 应用这样的变更日志时请求返回错误，出错的字段类型的词典及版本不变
+ *
+ * @author 林良益
+ *
+ */
+public class IKDictionaryReloadHandler extends RequestHandlerBase implements SolrCoreAware {
+
+	//请求参数——操作
+	public static final String ACTION = "action";
+	//请求参数——是否等待加载完成
+	public static final String WAIT = "wait";
+	//操作——重新加载词库
+	public static final String ACTION_RELOAD = "reload";
+	//操作——查看状态
+	public static final String ACTION_STATUS = "status";
+	//操作——应用变更日志
+	public static final String ACTION_APPLY = "apply";
+	//请求参数——变更日志的资源名称
+	public static final String LOG = "log";
+
+	private SolrCore core;
+	//本core中使用IKTokenizerFactory的字段类型 : 字段类型名称
+	private Map<IKTokenizerFactory , String> factories;
+	//后台加载线程
+	private ExecutorService executor;
+	//正在进行的加载任务
+	private Future<NamedList<Object>> pending;
+	//最近一次加载的报告
+	private volatile NamedList<Object> lastReport;
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.solr.util.plugin.SolrCoreAware#inform(org.apache.solr.core.SolrCore)
+	 */
+	public void inform(SolrCore core) {
+		this.core = core;
+		this.factories = findFactories(core);
+		final String threadName = "IK-dictionary-reload-" + core.getName();
+		this.executor = Executors.newSingleThreadExecutor(new ThreadFactory(){
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r , threadName);
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		core.addCloseHook(new CloseHook(){
+			public void close(SolrCore core) {
+				//词典引用由各IKTokenizerFactory在core关闭时自行释放
+				executor.shutdownNow();
+			}
+		});
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.solr.handler.RequestHandlerBase#handleRequestBody(org.apache.solr.request.SolrQueryRequest, org.apache.solr.request.SolrQueryResponse)
+	 */
+	public void handleRequestBody(SolrQueryRequest req, SolrQueryResponse rsp) throws Exception {
+		SolrParams params = req.getParams();
+		String action = params.get(ACTION , ACTION_STATUS);
+		if(ACTION_RELOAD.equals(action)){
+			Future<NamedList<Object>> task = submitReload();
+			if(params.getBool(WAIT , false)){
+				try {
+					rsp.add("reload", task.get());
+				} catch (ExecutionException e) {
+					throw new SolrException(SolrException.ErrorCode.SERVER_ERROR , "IK dictionary reloading exception." , e.getCause());
+				}
+			}else{
+				rsp.add("status", "reloading");
+			}
+
+		}else if(ACTION_APPLY.equals(action)){
+			String log = params.get(LOG);
+			if(log == null || "".equals(log.trim())){
+				throw new SolrException(SolrException.ErrorCode.BAD_REQUEST , "Missing parameter : " + LOG);
+			}
+			try {
+				rsp.add("apply", applyChangeLog(log.trim()));
+			} catch (IOException e) {
+				throw new SolrException(SolrException.ErrorCode.SERVER_ERROR , "IK change log applying exception." , e);
+			}
+
+		}else if(ACTION_STATUS.equals(action)){
+			rsp.add("status", isReloading() ? "reloading" : "idle");
+			rsp.add("fieldTypes", new ArrayList<String>(factories.values()));
+			rsp.add("lastReload", lastReport);
+
+		}else{
+			throw new SolrException(SolrException.ErrorCode.BAD_REQUEST , "Unknown action : " + action);
+		}
+	}
+
+	/**
+	 * 提交后台加载任务
+	 * 已有任务在执行时，不重复提交
+	 * @return Future 加载任务
+	 */
+	private synchronized Future<NamedList<Object>> submitReload(){
+		if(pending == null || pending.isDone()){
+			pending = executor.submit(new Callable<NamedList<Object>>(){
+				public NamedList<Object> call() throws Exception {
+					return reload();
+				}
+			});
+		}
+		return pending;
+	}
+
+	private synchronized boolean isReloading(){
+		return pending != null && !pending.isDone();
+	}
+
+	/**
+	 * 重新加载所有IKTokenizerFactory的词库，生成加载报告
+	 * 配置相同的字段类型共享新的词典实例，只加载一次
+	 * @return NamedList 加载报告
+	 * @throws Exception
+	 */
+	private NamedList<Object> reload() throws Exception{
+		long begin = System.currentTimeMillis();
+		Map<Dictionary , DictionaryStats> statsCache = new IdentityHashMap<Dictionary , DictionaryStats>();
+		NamedList<Object> report = new SimpleOrderedMap<Object>();
+		NamedList<Object> fieldTypes = new SimpleOrderedMap<Object>();
+		for(Map.Entry<IKTokenizerFactory , String> entry : factories.entrySet()){
+			IKTokenizerFactory factory = entry.getKey();
+			NamedList<Object> fieldTypeReport = new SimpleOrderedMap<Object>();
+
+			Dictionary oldDict = factory.getDictionary();
+			fieldTypeReport.add("old", toNamedList(stats(oldDict , statsCache)));
+
+			long loadBegin = System.currentTimeMillis();
+			Dictionary newDict = factory.reload(core.getResourceLoader());
+			fieldTypeReport.add("loadTime", System.currentTimeMillis() - loadBegin);
+			fieldTypeReport.add("changed", oldDict != newDict);
+			fieldTypeReport.add("new", toNamedList(stats(newDict , statsCache)));
+
+			fieldTypes.add(entry.getValue(), fieldTypeReport);
+		}
+		report.add("fieldTypes", fieldTypes);
+		report.add("totalTime", System.currentTimeMillis() - begin);
+		report.add("finishedAt", new Date());
+		lastReport = report;
+		return report;
+	}
+
+	/**
+	 * 对所有IKTokenizerFactory当前使用的词典应用变更日志
+	 * 多个字段类型共享的词典实例只应用一次
+	 * 词典实例可能同时被其他core共享，变更对这些core同样生效
+	 * @param log 变更日志的资源名称
+	 * @return NamedList 各字段类型词典应用后的版本
+	 * @throws IOException
+	 */
+	private NamedList<Object> applyChangeLog(String log) throws IOException{
+		Map<Dictionary , Long> applied = new IdentityHashMap<Dictionary , Long>();
+		NamedList<Object> fieldTypes = new SimpleOrderedMap<Object>();
+		for(Map.Entry<IKTokenizerFactory , String> entry : factories.entrySet()){
+			Dictionary dictionary = entry.getKey().getDictionary();
+			Long version = applied.get(dictionary);
+			if(version == null){
+				version = dictionary.applyChangeLog(core.getResourceLoader().openResource(log));
+				applied.put(dictionary, version);
+			}
+			fieldTypes.add(entry.getValue(), version);
+		}
+		return fieldTypes;
+	}
+
+	/**
+	 * 统计词典信息，同一词典实例只统计一次
+	 */
+	private static DictionaryStats stats(Dictionary dictionary , Map<Dictionary , DictionaryStats> statsCache){
+		DictionaryStats stats = statsCache.get(dictionary);
+		if(stats == null){
+			stats = dictionary.getMainDictStats();
+			statsCache.put(dictionary, stats);
+		}
+		return stats;
+	}
+
+	private static NamedList<Object> toNamedList(DictionaryStats stats){
+		NamedList<Object> nl = new SimpleOrderedMap<Object>();
+		nl.add("words", stats.getWordCount());
+		nl.add("nodes", stats.getNodeCount());
+		nl.add("estimatedBytes", stats.getEstimatedBytes());
+		return nl;
+	}
+
+	/**
+	 * 查找本core的schema中所有使用IKTokenizerFactory的字段类型
+	 * @param core
+	 * @return Map<IKTokenizerFactory , String> factory : 字段类型名称
+	 */
+	private static Map<IKTokenizerFactory , String> findFactories(SolrCore core){
+		Map<IKTokenizerFactory , String> factories = new IdentityHashMap<IKTokenizerFactory , String>();
+		for(Map.Entry<String , FieldType> entry : core.getSchema().getFieldTypes().entrySet()){
+			List<Analyzer> analyzers = new ArrayList<Analyzer>(2);
+			analyzers.add(entry.getValue().getAnalyzer());
+			analyzers.add(entry.getValue().getQueryAnalyzer());
+			for(Analyzer analyzer : analyzers){
+				if(analyzer instanceof TokenizerChain
+						&& ((TokenizerChain)analyzer).getTokenizerFactory() instanceof IKTokenizerFactory){
+					IKTokenizerFactory factory = (IKTokenizerFactory)((TokenizerChain)analyzer).getTokenizerFactory();
+					if(!factories.containsKey(factory)){
+						factories.put(factory, entry.getKey());
+					}
+				}
+			}
+		}
+		return factories;
+	}
+
+	@Override
+	public String getDescription() {
+		return "Reload IK Analyzer dictionaries without reloading the core";
+	}
+
+	@Override
+	public String getSource() {
+		return "$URL$";
+	}
+
+	@Override
+	public String getSourceId() {
+		return "$Id$";
+	}
+
+	@Override
+	public String getVersion() {
+		return "$Revision$";
+	}
+
+}
@@ -3,23 +3,79 @@
  */
 package org.wltea.analyzer.solr;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.lucene.analysis.Tokenizer;
 import org.apache.solr.analysis.BaseTokenizerFactory;
+import org.apache.solr.common.ResourceLoader;
+import org.apache.solr.core.CloseHook;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.core.SolrResourceLoader;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.request.SolrQueryResponse;
+import org.apache.solr.update.processor.UpdateRequestProcessor;
+import org.apache.solr.update.processor.UpdateRequestProcessorFactory;
+import org.apache.solr.util.plugin.ResourceLoaderAware;
+import org.apache.solr.util.plugin.SolrCoreAware;
+import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.dic.Dictionary;
+import org.wltea.analyzer.dic.DictionaryRegistry;
 import org.wltea.analyzer.lucene.IKTokenizer;
+import org.wltea.analyzer.seg.LetterSegmenter;
 
 /**
  * 实现Solr1.4分词器接口
  * 基于IKTokenizer的实现
  * 
+ * 可以通过core的ResourceLoader为每个core配置独立的词库
+ * <tokenizer class="org.wltea.analyzer.solr.IKTokenizerFactory" isMaxWordLength="false"
+ *            dict_image="ik/main.dic" ext_dict="ik/ext1.dic;ik/ext2.dic" ext_stopwords="ik/stop.dic"
+ *            letter_connectors="-_.@&amp;" letter_compound="both|compound|parts" cjk_automaton="false"/>
+ * 词库内容相同的core共享同一个词典实例，没有配置词库的core使用全局词典
+ * 词库可以通过reload在运行期重新加载，已创建的Tokenizer在下次reset时切换到新词典
+ * 共享的词典实例是可修改的，对其的修改对所有共享的core生效
+ * core关闭时自动释放对词典实例的引用
+ *
  * @author 林良益、李良杰
  *
  */
-public final class IKTokenizerFactory extends BaseTokenizerFactory{
+public final class IKTokenizerFactory extends BaseTokenizerFactory implements ResourceLoaderAware{
+
+	//配置属性——替换默认主词典的词库
+	public static final String DICT_IMAGE = "dict_image";
+	//配置属性——扩展字典
+	public static final String EXT_DICT = "ext_dict";
+	//配置属性——扩展停止词典
+	public static final String EXT_STOP = "ext_stopwords";
+	//配置属性——字母分词器的链接符号
+	public static final String LETTER_CONNECTORS = "letter_connectors";
+	//配置属性——字母分词器的组合词元输出方式
+	public static final String LETTER_COMPOUND = "letter_compound";
+	//配置属性——中文分词器是否使用Aho-Corasick自动机
+	public static final String CJK_AUTOMATON = "cjk_automaton";
 	
 	private boolean isMaxWordLength = false;
+	//主词典词库资源
+	private String dictImage;
+	//扩展词典资源列表
+	private List<String> extDicts;
+	//扩展停止词典资源列表
+	private List<String> extStopWords;
+	//字母分词器的链接符号，为null时使用默认的链接符号
+	private char[] letterConnectors;
+	//字母分词器的组合词元输出方式
+	private int letterCompoundMode;
+	//中文分词器是否使用Aho-Corasick自动机
+	private boolean cjkAutomaton;
+	//当前使用的词典实例，为空时使用全局词典
+	private final AtomicReference<Dictionary> dictionary = new AtomicReference<Dictionary>();
 	
 	/**
 	 * IK分词器Solr TokenizerFactory接口实现类
@@ -35,6 +91,90 @@ public final class IKTokenizerFactory extends BaseTokenizerFactory{
 	public void init(Map<String,String> args){
 		String _arg = args.get("isMaxWordLength");
 		isMaxWordLength = Boolean.parseBoolean(_arg);
+		String _dictImage = args.get(DICT_IMAGE);
+		if(_dictImage != null && !"".equals(_dictImage.trim())){
+			dictImage = _dictImage.trim();
+		}
+		extDicts = Configuration.splitDictionaryPaths(args.get(EXT_DICT));
+		extStopWords = Configuration.splitDictionaryPaths(args.get(EXT_STOP));
+		//没有配置时使用IKAnalyzer.cfg.xml中的配置
+		String _connectors = args.get(LETTER_CONNECTORS);
+		letterConnectors = _connectors != null ? Configuration.parseLetterConnectors(_connectors) : Configuration.getLetterConnectors();
+		String _compound = args.get(LETTER_COMPOUND);
+		letterCompoundMode = _compound != null ? LetterSegmenter.parseCompoundMode(_compound) : Configuration.getLetterCompoundMode();
+		String _automaton = args.get(CJK_AUTOMATON);
+		cjkAutomaton = _automaton != null ? Boolean.parseBoolean(_automaton.trim()) : Configuration.isCJKAutomaton();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.solr.util.plugin.ResourceLoaderAware#inform(org.apache.solr.common.ResourceLoader)
+	 */
+	public void inform(ResourceLoader loader){
+		if(loader instanceof SolrResourceLoader){
+			//在core关闭时释放词典引用
+			CoreCloseListener listener = (CoreCloseListener)((SolrResourceLoader)loader).newInstance(CoreCloseListener.class.getName());
+			listener.factory = this;
+		}
+		if(!hasDictionaryConfig()){
+			//没有配置词库，使用全局词典
+			return;
+		}
+		try {
+			reload(loader);
+		} catch (IOException e) {
+			throw new RuntimeException("IK dictionary loading exception." , e);
+		}
+	}
+	
+	/**
+	 * 重新加载词库，加载完成后原子替换当前的词典实例，并释放原有实例
+	 * 没有配置独立词库时，按IKAnalyzer.cfg.xml重新读取类路径下的扩展词库
+	 * 词库内容没有变化时，直接复用注册表中的词典实例
+	 * @param loader core的ResourceLoader
+	 * @return Dictionary 新的词典实例
+	 * @throws IOException
+	 */
+	public synchronized Dictionary reload(ResourceLoader loader) throws IOException{
+		byte[] mainDict = null;
+		List<byte[]> extDictContents = new ArrayList<byte[]>();
+		List<byte[]> extStopContents = new ArrayList<byte[]>();
+		if(hasDictionaryConfig()){
+			if(dictImage != null){
+				mainDict = readResource(loader.openResource(dictImage));
+			}
+			for(String extDict : extDicts){
+				extDictContents.add(readResource(loader.openResource(extDict)));
+			}
+			for(String extStopWord : extStopWords){
+				extStopContents.add(readResource(loader.openResource(extStopWord)));
+			}
+		}else{
+			//全局词典的扩展词库位于类路径下，找不到则忽略
+			for(String extDict : Configuration.getExtDictionarys()){
+				extDictContents.add(readResource(Dictionary.class.getResourceAsStream(extDict)));
+			}
+			for(String extStopWord : Configuration.getExtStopWordDictionarys()){
+				extStopContents.add(readResource(Dictionary.class.getResourceAsStream(extStopWord)));
+			}
+		}
+		Dictionary newDict = DictionaryRegistry.acquire(mainDict , extDictContents , extStopContents);
+		Dictionary old = this.dictionary.getAndSet(newDict);
+		if(old != null){
+			DictionaryRegistry.release(old);
+		}
+		return newDict;
+	}
+	
+	/**
+	 * 释放当前使用的词典实例，之后创建的Tokenizer使用全局词典
+	 * 在core关闭时由CoreCloseListener调用
+	 */
+	public synchronized void release(){
+		Dictionary old = this.dictionary.getAndSet(null);
+		if(old != null){
+			DictionaryRegistry.release(old);
+		}
 	}
 	
 	/*
@@ -42,7 +182,27 @@ public final class IKTokenizerFactory extends BaseTokenizerFactory{
 	 * @see org.apache.solr.analysis.TokenizerFactory#create(java.io.Reader)
 	 */
 	public Tokenizer create(Reader reader) {
-		return new IKTokenizer(reader , isMaxWordLength());
+		return new IKTokenizer(reader , isMaxWordLength() , dictionary 
+				, Configuration.loadSegmenter(letterConnectors , letterCompoundMode , cjkAutomaton));
+	}
+
+	/**
+	 * 获取当前使用的词典实例
+	 * @return Dictionary 没有配置词库时返回全局词典
+	 */
+	public Dictionary getDictionary() {
+		Dictionary dict = this.dictionary.get();
+		return dict == null ? Dictionary.getInstance() : dict;
+	}
+
+	/**
+	 * 是否配置了独立的词库
+	 * @return boolean
+	 */
+	public boolean hasDictionaryConfig(){
+		return dictImage != null
+				|| (extDicts != null && !extDicts.isEmpty())
+				|| (extStopWords != null && !extStopWords.isEmpty());
 	}
 
 	public void setMaxWordLength(boolean isMaxWordLength) {
@@ -53,4 +213,61 @@ public final class IKTokenizerFactory extends BaseTokenizerFactory{
 		return isMaxWordLength;
 	}
 
+	/**
+	 * 读取词库内容，读取完毕后关闭输入流
+	 * @param is 词库输入流，为null时返回null
+	 * @return byte[]
+	 * @throws IOException
+	 */
+	private static byte[] readResource(InputStream is) throws IOException{
+		if(is == null){
+			return null;
+		}
+		try {
+			ByteArrayOutputStream bos = new ByteArrayOutputStream(8192);
+			byte[] buf = new byte[8192];
+			int n = 0;
+			while((n = is.read(buf)) != -1){
+				bos.write(buf , 0 , n);
+			}
+			return bos.toByteArray();
+		} finally {
+			is.close();
+		}
+	}
+
+	/**
+	 * 在core关闭时释放IKTokenizerFactory的词典引用
+	 * Solr1.4只允许请求处理器、更新处理器等插件实现SolrCoreAware，TokenizerFactory无法直接获得core，
+	 * 因此由IKTokenizerFactory通过core的SolrResourceLoader创建本监听器，在core创建完成后注册CloseHook
+	 * 本监听器不参与更新处理，getInstance直接返回后续的处理器
+	 */
+	public static final class CoreCloseListener extends UpdateRequestProcessorFactory implements SolrCoreAware{
+
+		private volatile IKTokenizerFactory factory;
+
+		/*
+		 * (non-Javadoc)
+		 * @see org.apache.solr.util.plugin.SolrCoreAware#inform(org.apache.solr.core.SolrCore)
+		 */
+		public void inform(SolrCore core) {
+			core.addCloseHook(new CloseHook(){
+				public void close(SolrCore core) {
+					IKTokenizerFactory f = factory;
+					if(f != null){
+						f.release();
+					}
+				}
+			});
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see org.apache.solr.update.processor.UpdateRequestProcessorFactory#getInstance(org.apache.solr.request.SolrQueryRequest, org.apache.solr.request.SolrQueryResponse, org.apache.solr.update.processor.UpdateRequestProcessor)
+		 */
+		public UpdateRequestProcessor getInstance(SolrQueryRequest req , SolrQueryResponse rsp , UpdateRequestProcessor next) {
+			return next;
+		}
+	}
+
 }
@@ -0,0 +1,45 @@
+/**
+ * 
+ */
+package org.wltea.analyzer.stats;
+
+import java.util.Map;
+
+import org.wltea.analyzer.dic.Dictionary;
+
+/**
+ * IK Analyzer v3.2
+ * 分词事件监听器
+ * 通过IKEvents注册，用于将慢分词、词典加载、查询缓存未命中等事件
+ * 转发到应用的日志或诊断系统（如在新版本JDK上提交Flight Recorder事件）
+ * 回调在分词线程中同步执行，实现应当尽量轻量
+ * @author 林良益
+ *
+ */
+public interface IKEventListener {
+
+	/**
+	 * 单个Reader的分词耗时超过阈值
+	 * @param charCount 字符数
+	 * @param lexemeCount 词元数
+	 * @param elapsedNanos 从首次读取Reader到读取完毕的耗时（纳秒）
+	 */
+	void slowSegmentation(int charCount , int lexemeCount , long elapsedNanos);
+
+	/**
+	 * 词典实例加载完成（包括全局词典的首次加载及Solr中的重新加载）
+	 * @param dictionary 加载完成的词典实例
+	 * @param elapsedNanos 总耗时（纳秒）
+	 * @param phaseNanos 各词库的加载耗时（纳秒），按加载顺序排列
+	 */
+	void dictionaryLoaded(Dictionary dictionary , long elapsedNanos , Map<String , Long> phaseNanos);
+
+	/**
+	 * IKQueryParser解析未命中缓存
+	 * @param query 查询关键字
+	 * @param lexemeCount 切分出的词元数
+	 * @param elapsedNanos 分词及生成博弈树的耗时（纳秒）
+	 */
+	void queryCacheMissed(String query , int lexemeCount , long elapsedNanos);
+
+}
@@ -0,0 +1,108 @@
+/**
+ * 
+ */
+package org.wltea.analyzer.stats;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.wltea.analyzer.dic.Dictionary;
+
+/**
+ * IK Analyzer v3.2
+ * 分词事件分发
+ * 没有注册监听器时，事件发生处只做一次volatile读取，不计时也不创建任何对象
+ * @author 林良益
+ *
+ */
+public final class IKEvents {
+
+	//默认的慢分词阈值（毫秒）
+	public static final long DEFAULT_SLOW_SEGMENTATION_MILLIS = 100;
+
+	private static final CopyOnWriteArrayList<IKEventListener> listeners = new CopyOnWriteArrayList<IKEventListener>();
+	//是否有注册的监听器
+	private static volatile boolean enabled = false;
+	//慢分词阈值（纳秒）
+	private static volatile long slowSegmentationNanos = DEFAULT_SLOW_SEGMENTATION_MILLIS * 1000000L;
+
+	private IKEvents(){
+	}
+
+	public static synchronized void addListener(IKEventListener listener){
+		if(listener == null){
+			throw new IllegalArgumentException("parameter \"listener\" is null");
+		}
+		listeners.addIfAbsent(listener);
+		enabled = true;
+	}
+
+	public static synchronized void removeListener(IKEventListener listener){
+		listeners.remove(listener);
+		enabled = !listeners.isEmpty();
+	}
+
+	/**
+	 * 是否需要采集事件
+	 * @return boolean
+	 */
+	public static boolean isEnabled(){
+		return enabled;
+	}
+
+	/**
+	 * 设置慢分词阈值
+	 * @param millis 单个Reader的分词耗时超过该值时触发事件
+	 */
+	public static void setSlowSegmentationThreshold(long millis){
+		if(millis < 0){
+			throw new IllegalArgumentException("threshold < 0");
+		}
+		slowSegmentationNanos = millis * 1000000L;
+	}
+
+	public static long getSlowSegmentationThreshold(){
+		return slowSegmentationNanos / 1000000L;
+	}
+
+	/**
+	 * 单个Reader分词完成，耗时超过阈值时通知监听器
+	 * @param charCount
+	 * @param lexemeCount
+	 * @param elapsedNanos
+	 */
+	public static void segmentationFinished(int charCount , int lexemeCount , long elapsedNanos){
+		if(elapsedNanos < slowSegmentationNanos){
+			return;
+		}
+		for(IKEventListener listener : listeners){
+			listener.slowSegmentation(charCount, lexemeCount, elapsedNanos);
+		}
+	}
+
+	/**
+	 * 词典加载完成
+	 * @param dictionary
+	 * @param elapsedNanos
+	 * @param phaseNanos
+	 */
+	public static void dictionaryLoaded(Dictionary dictionary , long elapsedNanos , Map<String , Long> phaseNanos){
+		Map<String , Long> phases = Collections.unmodifiableMap(phaseNanos);
+		for(IKEventListener listener : listeners){
+			listener.dictionaryLoaded(dictionary, elapsedNanos, phases);
+		}
+	}
+
+	/**
+	 * IKQueryParser解析未命中缓存
+	 * @param query
+	 * @param lexemeCount
+	 * @param elapsedNanos
+	 */
+	public static void queryCacheMissed(String query , int lexemeCount , long elapsedNanos){
+		for(IKEventListener listener : listeners){
+			listener.queryCacheMissed(query, lexemeCount, elapsedNanos);
+		}
+	}
+}
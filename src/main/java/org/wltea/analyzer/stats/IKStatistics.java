@@ -0,0 +1,199 @@
+/**
+ * 
+ */
+package org.wltea.analyzer.stats;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.wltea.analyzer.seg.ISegmenter;
+
+/**
+ * IK Analyzer v3.2
+ * 分词运行统计
+ * 默认关闭，关闭时分词流程只做一次volatile读取，不做任何统计
+ * 开启后以缓冲区为单位批量累加分段计数器，子分词器耗时按缓冲区抽样计时
+ * 统计数据通过IKStatisticsMonitor以JMX发布
+ * @author 林良益
+ *
+ */
+public final class IKStatistics {
+
+	//子分词器计时的抽样间隔（缓冲区数），必须是2的幂
+	public static final int TIMING_SAMPLE_INTERVAL = 64;
+
+	//是否开启统计
+	private static volatile boolean enabled = false;
+	//统计开始时间
+	private static volatile long startTime = System.currentTimeMillis();
+
+	//完成分词的文档（Reader）数
+	private static final StripedCounter documents = new StripedCounter();
+	//完成分词的字符数
+	private static final StripedCounter characters = new StripedCounter();
+	//切分出的词元数
+	private static final StripedCounter lexemes = new StripedCounter();
+	//缓冲区续读次数
+	private static final StripedCounter bufferRefills = new StripedCounter();
+	//续读时移位拷贝的字符数
+	private static final StripedCounter arraycopyChars = new StripedCounter();
+	//IKQueryParser缓存命中数
+	private static final StripedCounter queryCacheHits = new StripedCounter();
+	//IKQueryParser缓存未命中数
+	private static final StripedCounter queryCacheMisses = new StripedCounter();
+	//子分词器类名 -> 抽样耗时（纳秒）
+	private static final ConcurrentMap<String , StripedCounter> segmenterNanos = new ConcurrentHashMap<String , StripedCounter>(4);
+	//单个缓冲区切分后，Context词元结果集的峰值大小
+	private static final AtomicInteger lexemeSetPeak = new AtomicInteger();
+
+	private IKStatistics(){
+	}
+
+	public static boolean isEnabled(){
+		return enabled;
+	}
+
+	/**
+	 * 开启或关闭统计
+	 * 由关闭切换到开启时，清空已有的统计数据
+	 * @param enabled
+	 */
+	public static synchronized void setEnabled(boolean enabled){
+		if(enabled && !IKStatistics.enabled){
+			reset();
+		}
+		IKStatistics.enabled = enabled;
+	}
+
+	/**
+	 * 清空统计数据
+	 */
+	public static synchronized void reset(){
+		documents.reset();
+		characters.reset();
+		lexemes.reset();
+		bufferRefills.reset();
+		arraycopyChars.reset();
+		queryCacheHits.reset();
+		queryCacheMisses.reset();
+		for(StripedCounter counter : segmenterNanos.values()){
+			counter.reset();
+		}
+		lexemeSetPeak.set(0);
+		startTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * 记录一个文档（Reader）分词完成
+	 */
+	public static void documentSegmented(){
+		documents.increment();
+	}
+
+	/**
+	 * 记录一个缓冲区切分完成
+	 * @param charCount 本次切分的字符数
+	 * @param lexemeCount 本次切分后词元结果集的大小
+	 */
+	public static void bufferSegmented(int charCount , int lexemeCount){
+		characters.add(charCount);
+		lexemes.add(lexemeCount);
+		int peak = lexemeSetPeak.get();
+		while(lexemeCount > peak && !lexemeSetPeak.compareAndSet(peak, lexemeCount)){
+			peak = lexemeSetPeak.get();
+		}
+	}
+
+	/**
+	 * 记录一次缓冲区续读
+	 * @param copiedChars 移位拷贝的字符数
+	 */
+	public static void bufferRefilled(int copiedChars){
+		bufferRefills.increment();
+		if(copiedChars > 0){
+			arraycopyChars.add(copiedChars);
+		}
+	}
+
+	/**
+	 * 记录子分词器在一个抽样缓冲区上的耗时
+	 * @param segmenter
+	 * @param nanos
+	 */
+	public static void segmenterTime(ISegmenter segmenter , long nanos){
+		String name = segmenter.getClass().getSimpleName();
+		StripedCounter counter = segmenterNanos.get(name);
+		if(counter == null){
+			StripedCounter newCounter = new StripedCounter();
+			counter = segmenterNanos.putIfAbsent(name, newCounter);
+			if(counter == null){
+				counter = newCounter;
+			}
+		}
+		counter.add(nanos);
+	}
+
+	public static void queryCacheHit(){
+		queryCacheHits.increment();
+	}
+
+	public static void queryCacheMiss(){
+		queryCacheMisses.increment();
+	}
+
+	public static long getStartTime(){
+		return startTime;
+	}
+
+	public static long getDocuments(){
+		return documents.sum();
+	}
+
+	public static long getCharacters(){
+		return characters.sum();
+	}
+
+	public static long getLexemes(){
+		return lexemes.sum();
+	}
+
+	public static long getBufferRefills(){
+		return bufferRefills.sum();
+	}
+
+	/**
+	 * 续读时System.arraycopy移位拷贝的字节数
+	 * @return long
+	 */
+	public static long getArraycopyBytes(){
+		return arraycopyChars.sum() * 2;
+	}
+
+	public static int getLexemeSetPeak(){
+		return lexemeSetPeak.get();
+	}
+
+	public static long getQueryCacheHits(){
+		return queryCacheHits.sum();
+	}
+
+	public static long getQueryCacheMisses(){
+		return queryCacheMisses.sum();
+	}
+
+	/**
+	 * 获取各子分词器的抽样耗时
+	 * @return Map<String , Long> 子分词器类名 : 纳秒
+	 */
+	public static Map<String , Long> getSegmenterNanos(){
+		Map<String , Long> result = new TreeMap<String , Long>();
+		for(Map.Entry<String , StripedCounter> entry : segmenterNanos.entrySet()){
+			result.put(entry.getKey(), entry.getValue().sum());
+		}
+		return Collections.unmodifiableMap(result);
+	}
+}
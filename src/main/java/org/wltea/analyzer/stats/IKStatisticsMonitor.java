@@ -0,0 +1,362 @@
+/**
+ * 
+ */
+package org.wltea.analyzer.stats;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.InvalidAttributeValueException;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanException;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.dic.Dictionary;
+import org.wltea.analyzer.dic.DictionaryRegistry;
+import org.wltea.analyzer.dic.DictionaryStats;
+import org.wltea.analyzer.seg.ISegmenter;
+
+/**
+ * IK Analyzer v3.2
+ * 分词运行统计的JMX发布
+ * 以DynamicMBean的形式发布IKStatistics的统计数据及全局词典的统计信息
+ * 子分词器的耗时占比按子分词器动态生成属性 SegmenterTimeShare.<类名>
+ *
+ * 使用：
+ * IKStatisticsMonitor.register();   开启统计并注册到平台MBeanServer
+ * IKStatisticsMonitor.unregister(); 注销并关闭统计
+ *
+ * @author 林良益
+ *
+ */
+public class IKStatisticsMonitor implements DynamicMBean {
+
+	//默认的MBean名称
+	public static final String OBJECT_NAME = "org.wltea.analyzer:type=IKStatistics";
+	//子分词器耗时占比属性前缀
+	private static final String SEGMENTER_TIME_SHARE = "SegmenterTimeShare.";
+	//速率的最小采样间隔（毫秒）
+	private static final long RATE_INTERVAL = 1000;
+
+	private static final String LONG = Long.class.getName();
+	private static final String INT = Integer.class.getName();
+	private static final String DOUBLE = Double.class.getName();
+	private static final String BOOLEAN = Boolean.class.getName();
+
+	//前后两次速率采样
+	private Sample previous;
+	private Sample current;
+	//MBean描述，首次调用时构建，出现新的子分词器计时后重新构建
+	private volatile MBeanInfo info;
+	//MBean描述中已包含的子分词器
+	private volatile Set<String> infoSegmenters;
+
+	public IKStatisticsMonitor(){
+		this.current = new Sample();
+		this.previous = current;
+	}
+
+	/**
+	 * 开启统计，并以默认名称注册到平台MBeanServer
+	 * @throws JMException
+	 */
+	public static void register() throws JMException{
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(OBJECT_NAME);
+		if(!server.isRegistered(name)){
+			server.registerMBean(new IKStatisticsMonitor(), name);
+		}
+		IKStatistics.setEnabled(true);
+	}
+
+	/**
+	 * 关闭统计，并从平台MBeanServer注销
+	 * @throws JMException
+	 */
+	public static void unregister() throws JMException{
+		IKStatistics.setEnabled(false);
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(OBJECT_NAME);
+		if(server.isRegistered(name)){
+			server.unregisterMBean(name);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see javax.management.DynamicMBean#getAttribute(java.lang.String)
+	 */
+	public Object getAttribute(String attribute) throws AttributeNotFoundException , MBeanException , ReflectionException {
+		if("Enabled".equals(attribute)){
+			return IKStatistics.isEnabled();
+		}else if("Documents".equals(attribute)){
+			return IKStatistics.getDocuments();
+		}else if("Characters".equals(attribute)){
+			return IKStatistics.getCharacters();
+		}else if("Lexemes".equals(attribute)){
+			return IKStatistics.getLexemes();
+		}else if("DocumentsPerSecond".equals(attribute)){
+			Sample[] samples = sample();
+			return rate(samples[1].documents - samples[0].documents , samples);
+		}else if("CharactersPerSecond".equals(attribute)){
+			Sample[] samples = sample();
+			return rate(samples[1].characters - samples[0].characters , samples);
+		}else if("LexemesPerSecond".equals(attribute)){
+			Sample[] samples = sample();
+			return rate(samples[1].lexemes - samples[0].lexemes , samples);
+		}else if("BufferRefills".equals(attribute)){
+			return IKStatistics.getBufferRefills();
+		}else if("ArraycopyBytes".equals(attribute)){
+			return IKStatistics.getArraycopyBytes();
+		}else if("LexemeSetPeakSize".equals(attribute)){
+			return IKStatistics.getLexemeSetPeak();
+		}else if("QueryCacheHits".equals(attribute)){
+			return IKStatistics.getQueryCacheHits();
+		}else if("QueryCacheMisses".equals(attribute)){
+			return IKStatistics.getQueryCacheMisses();
+		}else if("QueryCacheHitRatio".equals(attribute)){
+			long hits = IKStatistics.getQueryCacheHits();
+			long total = hits + IKStatistics.getQueryCacheMisses();
+			return total == 0 ? 0d : (double)hits / total;
+		}else if("DictionaryWords".equals(attribute)){
+			DictionaryStats stats = dictionaryStats();
+			return stats == null ? 0 : stats.getWordCount();
+		}else if("DictionaryNodes".equals(attribute)){
+			DictionaryStats stats = dictionaryStats();
+			return stats == null ? 0 : stats.getNodeCount();
+		}else if("DictionaryEstimatedBytes".equals(attribute)){
+			DictionaryStats stats = dictionaryStats();
+			return stats == null ? 0L : stats.getEstimatedBytes();
+		}else if("RegisteredDictionaries".equals(attribute)){
+			return DictionaryRegistry.size();
+		}else if(attribute != null && attribute.startsWith(SEGMENTER_TIME_SHARE)){
+			Map<String , Long> nanos = IKStatistics.getSegmenterNanos();
+			Long segmenterNanos = nanos.get(attribute.substring(SEGMENTER_TIME_SHARE.length()));
+			long total = 0;
+			for(Long n : nanos.values()){
+				total += n;
+			}
+			return segmenterNanos == null || total == 0 ? 0d : (double)segmenterNanos / total;
+		}
+		throw new AttributeNotFoundException(attribute);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see javax.management.DynamicMBean#setAttribute(javax.management.Attribute)
+	 */
+	public void setAttribute(Attribute attribute) throws AttributeNotFoundException , InvalidAttributeValueException , MBeanException , ReflectionException {
+		if(!"Enabled".equals(attribute.getName())){
+			throw new AttributeNotFoundException(attribute.getName() + " is not writable");
+		}
+		if(!(attribute.getValue() instanceof Boolean)){
+			throw new InvalidAttributeValueException("Enabled requires a boolean value");
+		}
+		IKStatistics.setEnabled((Boolean)attribute.getValue());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see javax.management.DynamicMBean#getAttributes(java.lang.String[])
+	 */
+	public AttributeList getAttributes(String[] attributes) {
+		AttributeList list = new AttributeList();
+		for(String attribute : attributes){
+			try {
+				list.add(new Attribute(attribute , getAttribute(attribute)));
+			} catch (JMException e) {
+				//忽略不存在的属性
+			}
+		}
+		return list;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see javax.management.DynamicMBean#setAttributes(javax.management.AttributeList)
+	 */
+	public AttributeList setAttributes(AttributeList attributes) {
+		AttributeList list = new AttributeList();
+		for(Object o : attributes){
+			Attribute attribute = (Attribute)o;
+			try {
+				setAttribute(attribute);
+				list.add(attribute);
+			} catch (JMException e) {
+				//忽略不可写的属性
+			}
+		}
+		return list;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see javax.management.DynamicMBean#invoke(java.lang.String, java.lang.Object[], java.lang.String[])
+	 */
+	public Object invoke(String actionName , Object[] params , String[] signature) throws MBeanException , ReflectionException {
+		if("reset".equals(actionName)){
+			IKStatistics.reset();
+			synchronized(this){
+				this.current = new Sample();
+				this.previous = current;
+			}
+			return null;
+		}
+		throw new ReflectionException(new NoSuchMethodException(actionName));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see javax.management.DynamicMBean#getMBeanInfo()
+	 */
+	public MBeanInfo getMBeanInfo() {
+		MBeanInfo mbeanInfo = this.info;
+		Set<String> timed = IKStatistics.getSegmenterNanos().keySet();
+		if(mbeanInfo == null || !infoSegmenters.containsAll(timed)){
+			synchronized(this){
+				mbeanInfo = this.info;
+				if(mbeanInfo == null || !infoSegmenters.containsAll(timed)){
+					//配置的子分词器只在首次构建时读取
+					TreeSet<String> segmenters = new TreeSet<String>(timed);
+					if(infoSegmenters == null){
+						segmenters.addAll(configuredSegmenters());
+					}else{
+						segmenters.addAll(infoSegmenters);
+					}
+					mbeanInfo = buildMBeanInfo(segmenters);
+					this.infoSegmenters = segmenters;
+					this.info = mbeanInfo;
+				}
+			}
+		}
+		return mbeanInfo;
+	}
+
+	/**
+	 * 构建MBean描述
+	 * @param segmenters 子分词器名称
+	 * @return MBeanInfo
+	 */
+	private MBeanInfo buildMBeanInfo(Set<String> segmenters){
+		List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+		attributes.add(new MBeanAttributeInfo("Enabled" , BOOLEAN , "Whether statistics are collected" , true , true , true));
+		attributes.add(attribute("Documents" , LONG , "Readers segmented to the end"));
+		attributes.add(attribute("Characters" , LONG , "Characters segmented"));
+		attributes.add(attribute("Lexemes" , LONG , "Lexemes produced"));
+		attributes.add(attribute("DocumentsPerSecond" , DOUBLE , "Documents segmented per second"));
+		attributes.add(attribute("CharactersPerSecond" , DOUBLE , "Characters segmented per second"));
+		attributes.add(attribute("LexemesPerSecond" , DOUBLE , "Lexemes produced per second"));
+		attributes.add(attribute("BufferRefills" , LONG , "Buffer refills in IKSegmentation.fillBuffer"));
+		attributes.add(attribute("ArraycopyBytes" , LONG , "Bytes moved by System.arraycopy in IKSegmentation.fillBuffer"));
+		attributes.add(attribute("LexemeSetPeakSize" , INT , "Peak size of the Context lexeme set after one buffer"));
+		attributes.add(attribute("QueryCacheHits" , LONG , "IKQueryParser cache hits"));
+		attributes.add(attribute("QueryCacheMisses" , LONG , "IKQueryParser cache misses"));
+		attributes.add(attribute("QueryCacheHitRatio" , DOUBLE , "IKQueryParser cache hit ratio"));
+		attributes.add(attribute("DictionaryWords" , INT , "Words in the global main dictionary, 0 before it is loaded"));
+		attributes.add(attribute("DictionaryNodes" , INT , "Trie nodes of the global main dictionary, 0 before it is loaded"));
+		attributes.add(attribute("DictionaryEstimatedBytes" , LONG , "Estimated heap bytes of the global main dictionary, 0 before it is loaded"));
+		attributes.add(attribute("RegisteredDictionaries" , INT , "Dictionary instances held by DictionaryRegistry"));
+		for(String segmenter : segmenters){
+			attributes.add(attribute(SEGMENTER_TIME_SHARE + segmenter , DOUBLE , "Sampled time share of " + segmenter));
+		}
+		MBeanOperationInfo reset = new MBeanOperationInfo("reset" , "Clear all statistics" ,
+				new MBeanParameterInfo[0] , "void" , MBeanOperationInfo.ACTION);
+		return new MBeanInfo(getClass().getName() , "IK Analyzer statistics" ,
+				attributes.toArray(new MBeanAttributeInfo[attributes.size()]) ,
+				null , new MBeanOperationInfo[]{reset} , null);
+	}
+
+	private static MBeanAttributeInfo attribute(String name , String type , String description){
+		return new MBeanAttributeInfo(name , type , description , true , false , false);
+	}
+
+	/**
+	 * 配置的子分词器名称
+	 */
+	private static Set<String> configuredSegmenters(){
+		Set<String> names = new TreeSet<String>();
+		for(ISegmenter segmenter : Configuration.loadSegmenter()){
+			names.add(segmenter.getClass().getSimpleName());
+		}
+		return names;
+	}
+
+	/**
+	 * 全局词典的统计信息
+	 * 不触发全局词典的加载，统计结果由词典缓存，词典修改前不重复遍历词典树
+	 * @return DictionaryStats 全局词典尚未加载时返回null
+	 */
+	private static DictionaryStats dictionaryStats(){
+		if(!Dictionary.isInstanceLoaded()){
+			return null;
+		}
+		return Dictionary.getInstance().getMainDictStats();
+	}
+
+	/**
+	 * 速率采样
+	 * 距上次采样超过RATE_INTERVAL时滚动采样，速率为前一次采样到当前时刻之间的平均值
+	 * @return Sample[]{起点采样 , 当前采样}
+	 */
+	private synchronized Sample[] sample(){
+		Sample now = new Sample();
+		if(now.time - current.time >= RATE_INTERVAL){
+			previous = current;
+			current = now;
+		}
+		if(previous == current){
+			//尚未形成采样区间，使用统计开始时刻作为起点
+			return new Sample[]{Sample.origin() , now};
+		}
+		return new Sample[]{previous , now};
+	}
+
+	private static double rate(long delta , Sample[] samples){
+		long millis = samples[1].time - samples[0].time;
+		return millis <= 0 ? 0d : delta * 1000d / millis;
+	}
+
+	/**
+	 * 计数器采样
+	 */
+	private static class Sample{
+		private long time;
+		private long documents;
+		private long characters;
+		private long lexemes;
+
+		private Sample(){
+			this.time = System.currentTimeMillis();
+			this.documents = IKStatistics.getDocuments();
+			this.characters = IKStatistics.getCharacters();
+			this.lexemes = IKStatistics.getLexemes();
+		}
+
+		/**
+		 * 统计开始时刻的采样
+		 */
+		private static Sample origin(){
+			Sample origin = new Sample();
+			origin.time = IKStatistics.getStartTime();
+			origin.documents = 0;
+			origin.characters = 0;
+			origin.lexemes = 0;
+			return origin;
+		}
+	}
+}
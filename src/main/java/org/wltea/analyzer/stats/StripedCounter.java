@@ -0,0 +1,78 @@
+/**
+ * 
+ */
+package org.wltea.analyzer.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * IK Analyzer v3.2
+ * 分段计数器
+ * 按线程将计数分散到多个槽位，避免多线程累加时在同一个AtomicLong上竞争
+ * 读取时汇总所有槽位，读取的是近似的快照值
+ * @author 林良益
+ *
+ */
+public final class StripedCounter {
+
+	//槽位间隔（以long计），使不同槽位落在不同的缓存行上
+	private static final int PADDING = 8;
+	//槽位数目，不小于CPU数目的2倍的2的幂
+	private static final int STRIPES;
+	static{
+		int n = 1;
+		while(n < Runtime.getRuntime().availableProcessors() * 2){
+			n <<= 1;
+		}
+		STRIPES = n;
+	}
+
+	private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+	/**
+	 * 累加计数
+	 * @param delta
+	 */
+	public void add(long delta){
+		cells.addAndGet(index() , delta);
+	}
+
+	public void increment(){
+		add(1L);
+	}
+
+	/**
+	 * 汇总计数
+	 * @return long
+	 */
+	public long sum(){
+		long sum = 0;
+		for(int i = 0 ; i < STRIPES ; i++){
+			sum += cells.get(i * PADDING);
+		}
+		return sum;
+	}
+
+	/**
+	 * 计数清零
+	 */
+	public void reset(){
+		for(int i = 0 ; i < STRIPES ; i++){
+			cells.set(i * PADDING , 0L);
+		}
+	}
+
+	/**
+	 * 当前线程使用的槽位
+	 */
+	private static int index(){
+		long id = Thread.currentThread().getId();
+		int h = (int)(id ^ (id >>> 32));
+		h ^= (h >>> 16);
+		return (h & (STRIPES - 1)) * PADDING;
+	}
+
+	public String toString(){
+		return String.valueOf(sum());
+	}
+}
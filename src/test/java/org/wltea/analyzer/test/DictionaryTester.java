@@ -4,12 +4,14 @@
 package org.wltea.analyzer.test;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 //import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-//import java.io.UnsupportedEncodingException;
+import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -18,8 +20,13 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
+import org.wltea.analyzer.dic.AhoCorasickAutomaton;
 import org.wltea.analyzer.dic.DictSegment;
 import org.wltea.analyzer.dic.Dictionary;
+import org.wltea.analyzer.dic.DictionaryChangeLog;
+import org.wltea.analyzer.dic.DictionaryCompressor;
+import org.wltea.analyzer.dic.DictionaryRegistry;
+import org.wltea.analyzer.dic.DictionaryStats;
 import org.wltea.analyzer.dic.Hit;
 
 import junit.framework.TestCase;
@@ -332,6 +339,64 @@ public class DictionaryTester extends TestCase {
 		System.out.println("Match words : " + mCount + " Unmatch words : " + umCount);
 	}
 	
+	/**
+	 * 子节点由数组切换为散列表，以及散列表扩容后，检索结果不变
+	 */
+	public void testWideDictSegment(){
+		DictSegment _root_ = new DictSegment((char)0);
+		for(char c = '\u4e00' ; c < '\u4e00' + 300 ; c += 3){
+			char[] word = new char[]{'甲' , c};
+			_root_.fillSegment(word);
+			Hit hit = _root_.match(word);
+			assertTrue(hit.isMatch());
+			assertFalse(hit.isPrefix());
+		}
+		for(char c = '\u4e00' ; c < '\u4e00' + 300 ; c++){
+			Hit hit = _root_.match(new char[]{'甲' , c});
+			assertEquals((c - '\u4e00') % 3 == 0 , hit.isMatch());
+			assertEquals(1 , hit.getEnd());
+		}
+		Hit hit = _root_.match("甲".toCharArray());
+		assertTrue(hit.isPrefix());
+		assertFalse(hit.isMatch());
+		hit = _root_.match("乙丁".toCharArray());
+		assertTrue(hit.isUnmatch());
+		assertEquals(0 , hit.getEnd());
+	}
+	
+	/**
+	 * 子节点由散列表切换为直接寻址的数组后，检索结果不变
+	 */
+	public void testDirectDictSegment(){
+		DictSegment _root_ = new DictSegment((char)0);
+		List<String> words = new ArrayList<String>();
+		for(char c = '\u4e00' ; c < '\u4e00' + 10000 ; c += 2){
+			_root_.fillSegment(new char[]{c , '子'});
+			words.add(new String(new char[]{c , '子'}));
+		}
+		_root_.fillSegment(new char[]{'\u4e00'});
+		DictionaryStats stats = Dictionary.getInstance().createOverlay(words , null).getMainDictStats();
+		assertEquals(1 , stats.getDirectNodeCount());
+		assertEquals(0 , stats.getHashNodeCount());
+		for(char c = '\u4e00' ; c < '\u4e00' + 10000 ; c++){
+			Hit hit = _root_.match(new char[]{c , '子'});
+			assertEquals((c - '\u4e00') % 2 == 0 , hit.isMatch());
+			hit = _root_.match(new char[]{c});
+			assertEquals((c - '\u4e00') % 2 == 0 , hit.isPrefix());
+			assertEquals(c == '\u4e00' , hit.isMatch());
+		}
+		assertTrue(_root_.match(new char[]{'a'}).isUnmatch());
+		//直接寻址后追加的新字符追加编码，超出数组长度时扩容
+		for(char c = '\ua000' ; c < '\ua000' + 300 ; c++){
+			_root_.fillSegment(new char[]{c , '子'});
+		}
+		for(char c = '\ua000' ; c < '\ua000' + 300 ; c++){
+			assertTrue(_root_.match(new char[]{c , '子'}).isMatch());
+		}
+		assertTrue(_root_.match(new char[]{'\u4e02' , '子'}).isMatch());
+		assertTrue(_root_.match(new char[]{'\ua200' , '子'}).isUnmatch());
+	}
+	
 	public void testDictionarySearch(){
 	     InputStream is = DictionaryTester.class.getResourceAsStream(Dictionary.PATH_DIC_MAIN);
 	     List<String> allWords = new ArrayList<String>();
@@ -386,6 +451,509 @@ public class DictionaryTester extends TestCase {
 			System.out.println("Match words : " + mCount + " Unmatch words : " + umCount);		
 	}
 	
+	/**
+	 * 词库相同的词典实例共享，引用计数归零后释放
+	 */
+	public void testDictionaryRegistry(){
+		List<byte[]> extDicts = new ArrayList<byte[]>();
+		List<byte[]> otherExtDicts = new ArrayList<byte[]>();
+		try {
+			extDicts.add("林良益\r\n".getBytes("UTF-8"));
+			otherExtDicts.add("李良杰\r\n".getBytes("UTF-8"));
+		} catch (UnsupportedEncodingException e) {
+			fail(e.getMessage());
+		}
+		
+		Dictionary dict1 = DictionaryRegistry.acquire(null, extDicts, null);
+		Dictionary dict2 = DictionaryRegistry.acquire(null, extDicts, null);
+		Dictionary dict3 = DictionaryRegistry.acquire(null, otherExtDicts, null);
+		assertSame(dict1 , dict2);
+		assertNotSame(dict1 , dict3);
+		assertNotSame(Dictionary.getInstance() , dict1);
+		assertEquals(2 , DictionaryRegistry.getReferenceCount(dict1));
+		
+		char[] word = "林良益".toCharArray();
+		assertTrue(dict1.matchMain(word, 0, word.length).isMatch());
+		assertFalse(dict3.matchMain(word, 0, word.length).isMatch());
+		
+		DictionaryRegistry.release(dict1);
+		DictionaryRegistry.release(dict2);
+		DictionaryRegistry.release(dict3);
+		assertEquals(0 , DictionaryRegistry.getReferenceCount(dict1));
+		assertEquals(0 , DictionaryRegistry.size());
+	}
+	
+	/**
+	 * 叠加词典同时检索基础词典和追加的词条，不影响基础词典
+	 */
+	public void testDictionaryOverlay(){
+		Dictionary base = Dictionary.getInstance();
+		List<String> words = new ArrayList<String>();
+		words.add("叠加词典测试");
+		words.add("中华人民币值");
+		List<String> stopWords = new ArrayList<String>();
+		stopWords.add("中国");
+		Dictionary overlay = base.createOverlay(words , stopWords);
+		assertSame(base , overlay.getBase());
+		
+		char[] word = "叠加词典测试".toCharArray();
+		assertTrue(overlay.matchMain(word, 0, word.length).isMatch());
+		assertFalse(base.matchMain(word, 0, word.length).isMatch());
+		char[] stopWord = "中国".toCharArray();
+		assertTrue(overlay.containsStopWord(stopWord, 0, stopWord.length));
+		assertFalse(base.containsStopWord(stopWord, 0, stopWord.length));
+		
+		//逐字继续检索时，两层词典的前缀分别推进
+		String[] texts = {"中华人民共和国" , "中华人民币值" , "叠加词典测试" , "叠加测试"};
+		for(String t : texts){
+			char[] text = t.toCharArray();
+			Hit hit = overlay.matchMain(text, 0, 1);
+			for(int i = 1 ; i < text.length ; i++){
+				Hit expected = overlay.matchMain(text, 0, i + 1);
+				hit = Dictionary.matchWithHit(text, i, hit);
+				assertEquals(t , expected.isMatch() , hit.isMatch());
+				assertEquals(t , expected.isPrefix() , hit.isPrefix());
+				assertEquals(t , expected.isUnmatch() , hit.isUnmatch());
+			}
+		}
+		assertTrue(Dictionary.matchWithHit("中华人民共和国".toCharArray(), 6 
+				, overlay.matchMain("中华人民共和国".toCharArray(), 0, 6)).isMatch());
+	}
+	
+	/**
+	 * 词典统计的节点、扇出及深度分布
+	 */
+	public void testDictionaryStats(){
+		List<String> words = new ArrayList<String>();
+		words.add("中国");
+		words.add("中国人");
+		words.add("中华");
+		//叠加词典只统计追加的词条
+		DictionaryStats stats = Dictionary.getInstance().createOverlay(words , null).getMainDictStats();
+		assertEquals(3 , stats.getWordCount());
+		assertEquals(5 , stats.getNodeCount());
+		assertEquals(2 , stats.getMaxFanOut());
+		assertEquals(3 , stats.getMaxDepth());
+		int[] fanOut = stats.getFanOutNodes();
+		assertEquals(2 , fanOut[0]);
+		assertEquals(2 , fanOut[1]);
+		assertEquals(1 , fanOut[2]);
+		assertEquals("[1, 1, 2, 1]" , java.util.Arrays.toString(stats.getDepthNodes()));
+		assertEquals("[0, 0, 2, 1]" , java.util.Arrays.toString(stats.getDepthWords()));
+		assertTrue(stats.getEstimatedBytes() > 0);
+		assertEquals(3 , stats.getArrayNodeCount());
+		assertEquals(0 , stats.getHashNodeCount());
+		
+		DictionaryStats mainStats = Dictionary.getInstance().getMainDictStats();
+		assertEquals(mainStats.getEstimatedBytes() 
+				, mainStats.getSegmentBytes() + mainStats.getArrayBytes() + mainStats.getHashBytes() + mainStats.getDirectBytes());
+		//主词典的根节点按字符编码直接寻址，长度与词典字符数目相当
+		assertEquals(1 , mainStats.getDirectNodeCount());
+		assertTrue(mainStats.getDirectBytes() > 4 * 4096 && mainStats.getDirectBytes() < 4 * 65536);
+		
+		//统计报告
+		String report = stats.report();
+		assertTrue(report.startsWith("words : 3\nnodes : 5 (array : 3 , hash : 0 , direct : 0 , leaf : 2 , shared : 0)\n"));
+		assertTrue(report.contains("estimated bytes : " + stats.getEstimatedBytes() + " (nodes : " + stats.getSegmentBytes() 
+				+ " , arrays : " + stats.getArrayBytes() + " , hashes : 0 , direct : 0)\n"));
+		assertTrue(report.contains("fan-out (max 2) :\n  0 : 2\n  1 : 2\n  2 : 1\n  3 : 0\n  4-7 : 0\n  8-15 : 0\n  16-63 : 0\n  64-255 : 0\n  256+ : 0\n"));
+		assertTrue(report.contains("depth : nodes , words\n  0 : 1 , 0\n  1 : 1 , 0\n  2 : 2 , 2\n  3 : 1 , 1\n"));
+		//子节点都不超过3个，有序数组结构与当前结构相同
+		assertEquals(stats.getEstimatedBytes() , stats.getSortedArrayBytes());
+		assertTrue(report.contains("alternative layouts (estimated bytes) :\n  sorted char[] children : " + stats.getSortedArrayBytes() + " (saves 0%)\n"
+				+ "  double array : " + stats.getDoubleArrayBytes() + " (saves "));
+		String mainReport = mainStats.report();
+		assertTrue(mainReport.startsWith("words : " + mainStats.getWordCount() + "\nnodes : " + mainStats.getNodeCount() + " ("));
+		assertTrue(mainReport.contains(" , direct : 1 , "));
+		//全局词典可能已被其他测试追加词条，只核对报告与统计值一致
+		int[] mainFanOut = mainStats.getFanOutNodes();
+		assertTrue(mainFanOut[mainFanOut.length - 1] >= 1);
+		assertTrue(mainReport.contains("  256+ : " + mainFanOut[mainFanOut.length - 1] + "\n"));
+		//根节点的直接寻址数组替换为有序数组
+		assertTrue(mainStats.getSortedArrayBytes() < mainStats.getEstimatedBytes());
+	}
+	
+	/**
+	 * 逐字继续检索的结果与从根节点整体检索的结果一致
+	 */
+	public void testMatchWithHit(){
+		Dictionary dictionary = Dictionary.getInstance();
+		String[] words = {"千克" , "千克拉" , "平方公里" , "立方厘米" , "公里数"};
+		for(String w : words){
+			char[] word = w.toCharArray();
+			Hit hit = dictionary.matchQuantifier(word, 0, 1);
+			for(int i = 1 ; i < word.length ; i++){
+				Hit expected = dictionary.matchQuantifier(word, 0, i + 1);
+				hit = Dictionary.matchWithHit(word, i, hit);
+				assertEquals(w , expected.isMatch() , hit.isMatch());
+				assertEquals(w , expected.isPrefix() , hit.isPrefix());
+				assertEquals(w , expected.isUnmatch() , hit.isUnmatch());
+			}
+		}
+	}
+	
+	/**
+	 * 停止词集合的检索结果与逐字比较一致
+	 */
+	public void testStopWords(){
+		Dictionary dictionary = new Dictionary(null , null , null);
+		List<String> stopWords = new ArrayList<String>();
+		stopWords.add("的");
+		stopWords.add("停止词");
+		stopWords.add(" the ");
+		dictionary.addStopWords(stopWords);
+		char[] text = "这是停止词的测试the".toCharArray();
+		assertTrue(dictionary.containsStopWord(text, 2, 3));
+		assertTrue(dictionary.containsStopWord(text, 5, 1));
+		assertTrue(dictionary.containsStopWord(text, 8, 3));
+		//前缀、超长及首字不同的字串都不是停止词
+		assertFalse(dictionary.containsStopWord(text, 2, 2));
+		assertFalse(dictionary.containsStopWord(text, 2, 4));
+		assertFalse(dictionary.containsStopWord(text, 0, 1));
+		assertFalse(dictionary.containsStopWord(text, 8, 2));
+		//不影响全局词典
+		assertFalse(Dictionary.getInstance().containsStopWord(text, 2, 3));
+	}
+	
+	/**
+	 * 批量构建的词典与逐个加入词条的词典检索结果一致
+	 * 包括首行乱序、重复、前缀在后以及扩展词典中乱序的词条
+	 */
+	public void testBulkBuild() throws IOException{
+		//文件开头的BOM、注释行、空行及\r\n换行
+		String mainWords = "\uFEFF中华\r\n一\n# 注释\n一一\n中\n中国\n中国人\n中国人\n\n 中国话 \r\n人民\n人\n中国人民";
+		String extWords = "乙\n中国\n中间\n一二\n\uD842\uDFB7野家\n";
+		List<InputStream> extDicts = new ArrayList<InputStream>();
+		extDicts.add(new ByteArrayInputStream(extWords.getBytes("UTF-8")));
+		Dictionary dictionary = new Dictionary(new ByteArrayInputStream(mainWords.getBytes("UTF-8")) , extDicts , null);
+		
+		DictSegment _root_ = new DictSegment((char)0);
+		Set<String> words = new TreeSet<String>();
+		for(String w : (mainWords.substring(1) + "\n" + extWords).split("\n")){
+			String word = w.trim();
+			if(word.length() > 0 && word.charAt(0) != '#'){
+				_root_.fillSegment(word.toCharArray());
+				words.add(word);
+			}
+		}
+		assertEquals(words.size() , dictionary.getMainDictStats().getWordCount());
+		String[] texts = {"\uFEFF中华" , "中华" , "一" , "一一" , "一二" , "中" , "中国" , "中国人" , "中国话" , "中国人民" 
+				, "人" , "人民" , "乙" , "中间" , "中国人民共和国" , "丙" , "# 注释" , "\uD842\uDFB7野家"};
+		for(String t : texts){
+			char[] text = t.toCharArray();
+			for(int length = 1 ; length <= text.length ; length++){
+				Hit expected = _root_.match(text , 0 , length);
+				Hit hit = dictionary.matchMain(text , 0 , length);
+				assertEquals(t , expected.isMatch() , hit.isMatch());
+				assertEquals(t , expected.isPrefix() , hit.isPrefix());
+				assertEquals(t , expected.getEnd() , hit.getEnd());
+			}
+		}
+		//随附的main.dic、stopword.dic同样以BOM开头，首个词条生效
+		assertTrue(Dictionary.matchInMainDict("一一列举".toCharArray()).isMatch());
+		assertTrue(Dictionary.isStopWord("a".toCharArray() , 0 , 1));
+	}
+	
+	/**
+	 * 批量构建时共享相同的后缀，追加词条时共享的节点复制后修改，不影响其他词条
+	 */
+	public void testSharedSuffix() throws IOException{
+		//按字符顺序排列
+		String mainWords = "丁大学\n丙大学\n乙公司\n乙公司法\n甲公司\n";
+		Dictionary dictionary = new Dictionary(new ByteArrayInputStream(mainWords.getBytes("UTF-8")) , null , null);
+		DictionaryStats stats = dictionary.getMainDictStats();
+		assertEquals(5 , stats.getWordCount());
+		//甲、乙下的"公司"不同（乙公司法），丙、丁下的"大学"共享
+		assertEquals(12 , stats.getNodeCount());
+		assertEquals(1 , stats.getSharedNodeCount());
+		
+		List<String> words = new ArrayList<String>();
+		words.add("丙大学生");
+		words.add("丁大");
+		dictionary.addWords(words);
+		assertTrue(dictionary.matchMain("丙大学生".toCharArray() , 0 , 4).isMatch());
+		assertTrue(dictionary.matchMain("丙大学".toCharArray() , 0 , 3).isPrefix());
+		assertFalse(dictionary.matchMain("丁大学生".toCharArray() , 0 , 4).isMatch());
+		assertFalse(dictionary.matchMain("丁大学".toCharArray() , 0 , 3).isPrefix());
+		assertTrue(dictionary.matchMain("丁大".toCharArray() , 0 , 2).isMatch());
+		assertFalse(dictionary.matchMain("丙大".toCharArray() , 0 , 2).isMatch());
+		assertTrue(dictionary.matchMain("丁大学".toCharArray() , 0 , 3).isMatch());
+		assertFalse(dictionary.matchMain("甲公司法".toCharArray() , 0 , 4).isMatch());
+		assertEquals(7 , dictionary.getMainDictStats().getWordCount());
+	}
+	
+	/**
+	 * 追加、删除词条时复制路径后整体发布，更新前取得的节点不受影响
+	 */
+	public void testPersistentUpdate() throws IOException{
+		Dictionary dictionary = new Dictionary(new ByteArrayInputStream("中国\n中国人\n".getBytes("UTF-8")) , null , null);
+		char[] text = "中国话".toCharArray();
+		Hit oldHit = dictionary.matchMain(text , 0 , 2);
+		assertTrue(oldHit.isPrefix());
+		DictionaryStats before = dictionary.getMainDictStats();
+		
+		List<String> words = new ArrayList<String>();
+		words.add("中国话");
+		words.add("中华");
+		words.add("中国");
+		words.add(" ");
+		dictionary.addWords(words);
+		//原有的词典树不变
+		assertFalse(Dictionary.matchWithHit(text , 2 , oldHit).isMatch());
+		assertTrue(dictionary.matchMain(text , 0 , 3).isMatch());
+		assertTrue(dictionary.matchMain("中华".toCharArray() , 0 , 2).isMatch());
+		assertEquals(before.getWordCount() + 2 , dictionary.getMainDictStats().getWordCount());
+		//从新的根节点继续检索
+		Hit hit = dictionary.matchMain(text , 0 , 2);
+		assertTrue(Dictionary.matchWithHit(text , 2 , hit).isMatch());
+		
+		char[] removedText = "中国人".toCharArray();
+		oldHit = dictionary.matchMain(removedText , 0 , 2);
+		words.clear();
+		words.add("中国人");
+		assertEquals(1 , dictionary.removeWords(words));
+		assertTrue(Dictionary.matchWithHit(removedText , 2 , oldHit).isMatch());
+		assertFalse(dictionary.matchMain(removedText , 0 , 3).isMatch());
+		assertTrue(dictionary.matchMain(text , 0 , 3).isMatch());
+		
+		//复制的节点与原节点共用子节点，子节点标记为共享
+		dictionary = new Dictionary(new ByteArrayInputStream("丁戊\n甲乙\n甲丙\n".getBytes("UTF-8")) , null , null);
+		assertEquals(0 , dictionary.getMainDictStats().getSharedNodeCount());
+		words.clear();
+		words.add("甲己");
+		dictionary.addWords(words);
+		//复制了根节点和甲，丁、乙、丙同时属于原有的和新的词典树
+		assertEquals(3 , dictionary.getMainDictStats().getSharedNodeCount());
+	}
+	
+	/**
+	 * 删除词条立即生效，压缩后删除不含词条的节点，子节点减少的节点改用较小的存储结构
+	 */
+	public void testRemoveWords() throws IOException{
+		StringBuilder sb = new StringBuilder("丁大学\n丙大学\n中国\n中国人\n中国人民\n");
+		//根节点和甲下的子节点均多于3个，使用散列表
+		for(int i = 0 ; i < 8 ; i++){
+			sb.append('甲').append((char)('\u5000' + i)).append('\n');
+		}
+		Dictionary dictionary = new Dictionary(new ByteArrayInputStream(sb.toString().getBytes("UTF-8")) , null , null);
+		DictionaryStats before = dictionary.getMainDictStats();
+		assertEquals(13 , before.getWordCount());
+		assertEquals(2 , before.getHashNodeCount());
+		assertEquals(1 , before.getSharedNodeCount());
+		AhoCorasickAutomaton automaton = dictionary.getMainAutomaton();
+		
+		List<String> words = new ArrayList<String>();
+		words.add("中国人");
+		words.add("中国人民");
+		//共享后缀的词条
+		words.add("丙大学");
+		//不存在的词条及前缀
+		words.add("中华");
+		words.add("中");
+		words.add("");
+		for(int i = 0 ; i < 6 ; i++){
+			words.add("甲" + (char)('\u5000' + i));
+		}
+		assertEquals(9 , dictionary.removeWords(words));
+		assertEquals(0 , dictionary.removeWords(words));
+		assertFalse(dictionary.matchMain("中国人".toCharArray() , 0 , 3).isMatch());
+		assertFalse(dictionary.matchMain("中国人民".toCharArray() , 0 , 4).isMatch());
+		assertFalse(dictionary.matchMain("丙大学".toCharArray() , 0 , 3).isMatch());
+		assertFalse(dictionary.matchMain("甲\u5000".toCharArray() , 0 , 2).isMatch());
+		assertTrue(dictionary.matchMain("中国".toCharArray() , 0 , 2).isMatch());
+		assertTrue(dictionary.matchMain("丁大学".toCharArray() , 0 , 3).isMatch());
+		assertTrue(dictionary.matchMain("甲\u5007".toCharArray() , 0 , 2).isMatch());
+		//删除后自动机重新构建
+		assertNotSame(automaton , dictionary.getMainAutomaton());
+		//压缩前节点仍然保留，丙下共享的"大学"复制后修改
+		assertTrue(dictionary.matchMain("中国".toCharArray() , 0 , 2).isPrefix());
+		assertEquals(4 , dictionary.getMainDictStats().getWordCount());
+		assertEquals(before.getNodeCount() + 2 , dictionary.getMainDictStats().getNodeCount());
+		
+		automaton = dictionary.getMainAutomaton();
+		dictionary.compactMainDict();
+		DictionaryStats after = dictionary.getMainDictStats();
+		assertEquals(4 , after.getWordCount());
+		//删除人、民、丙及复制的大学，甲下的6个子节点
+		assertEquals(before.getNodeCount() - 9 , after.getNodeCount());
+		assertEquals(0 , after.getHashNodeCount());
+		assertFalse(dictionary.matchMain("中国".toCharArray() , 0 , 2).isPrefix());
+		assertFalse(dictionary.matchMain("丙".toCharArray() , 0 , 1).isPrefix());
+		assertTrue(dictionary.matchMain("丁大学".toCharArray() , 0 , 3).isMatch());
+		assertTrue(dictionary.matchMain("甲\u5006".toCharArray() , 0 , 2).isMatch());
+		assertNotSame(automaton , dictionary.getMainAutomaton());
+		
+		//压缩后仍然可以追加、删除词条
+		words.clear();
+		words.add("中国人");
+		dictionary.addWords(words);
+		assertTrue(dictionary.matchMain("中国人".toCharArray() , 0 , 3).isMatch());
+		assertEquals(1 , dictionary.removeWords(words));
+		dictionary.compactMainDict();
+		assertEquals(after.getNodeCount() , dictionary.getMainDictStats().getNodeCount());
+		
+		//删除停止词
+		words.clear();
+		words.add("的");
+		words.add("了");
+		dictionary.addStopWords(words);
+		assertTrue(dictionary.containsStopWord("的".toCharArray() , 0 , 1));
+		words.remove("了");
+		dictionary.removeStopWords(words);
+		assertFalse(dictionary.containsStopWord("的".toCharArray() , 0 , 1));
+		assertTrue(dictionary.containsStopWord("了".toCharArray() , 0 , 1));
+	}
+	
+	/**
+	 * 变更日志按版本增量应用，校验失败或缺少中间版本时词典不变，合并后生成新的基础词典
+	 */
+	public void testChangeLog() throws IOException{
+		byte[] text = "中国\n人民\n".getBytes("UTF-8");
+		assertEquals(0 , new Dictionary(new ByteArrayInputStream(text) , null , null).getAppliedVersion());
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		DictionaryCompressor.compress(new ByteArrayInputStream(text) , out , false , 10);
+		byte[] image = out.toByteArray();
+		Dictionary dictionary = new Dictionary(new ByteArrayInputStream(image) , null , null);
+		assertEquals(10 , dictionary.getAppliedVersion());
+		
+		DictionaryChangeLog log = new DictionaryChangeLog(10);
+		log.add(11 , "中国人");
+		log.add(11 , "热词");
+		log.remove(12 , "人民");
+		log.remove(12 , "热词");
+		try{
+			log.add(11 , "中华");
+			fail();
+		}catch(IllegalArgumentException e){
+		}
+		out.reset();
+		log.write(out);
+		byte[] logBytes = out.toByteArray();
+		DictionaryChangeLog readLog = DictionaryChangeLog.read(new ByteArrayInputStream(logBytes));
+		assertEquals(10 , readLog.getBaseVersion());
+		assertEquals(12 , readLog.getVersion());
+		assertEquals(4 , readLog.size());
+		
+		assertEquals(12 , dictionary.applyChangeLog(new ByteArrayInputStream(logBytes)));
+		assertEquals(12 , dictionary.getAppliedVersion());
+		//换行转换为\r\n的日志校验和不变
+		byte[] crlfBytes = new String(logBytes , "UTF-8").replace("\n" , "\r\n").getBytes("UTF-8");
+		readLog = DictionaryChangeLog.read(new ByteArrayInputStream(crlfBytes));
+		assertEquals(12 , readLog.getVersion());
+		assertEquals(4 , readLog.size());
+		assertTrue(dictionary.matchMain("中国人".toCharArray() , 0 , 3).isMatch());
+		assertFalse(dictionary.matchMain("热词".toCharArray() , 0 , 2).isMatch());
+		assertFalse(dictionary.matchMain("人民".toCharArray() , 0 , 2).isMatch());
+		//重复应用时跳过已应用的记录
+		List<String> words = new ArrayList<String>();
+		words.add("人民");
+		dictionary.addWords(words);
+		assertEquals(12 , dictionary.applyChangeLog(new ByteArrayInputStream(logBytes)));
+		assertTrue(dictionary.matchMain("人民".toCharArray() , 0 , 2).isMatch());
+		dictionary.removeWords(words);
+		
+		//校验和不一致
+		byte[] corrupted = logBytes.clone();
+		corrupted[new String(logBytes , "UTF-8").indexOf("11 +") + 1] = '3';
+		try{
+			dictionary.applyChangeLog(new ByteArrayInputStream(corrupted));
+			fail();
+		}catch(IOException e){
+		}
+		//缺少中间的版本
+		DictionaryChangeLog later = new DictionaryChangeLog(20);
+		later.add(21 , "中华");
+		out.reset();
+		later.write(out);
+		byte[] laterBytes = out.toByteArray();
+		try{
+			dictionary.applyChangeLog(new ByteArrayInputStream(laterBytes));
+			fail();
+		}catch(IOException e){
+		}
+		assertEquals(12 , dictionary.getAppliedVersion());
+		assertFalse(dictionary.matchMain("中华".toCharArray() , 0 , 2).isMatch());
+		
+		//叠加词典继承基础词典的版本，不能删除基础词典中的词条，日志整体不应用
+		Dictionary base = new Dictionary(new ByteArrayInputStream(image) , null , null);
+		Dictionary overlay = base.createOverlay(null , null);
+		assertEquals(10 , overlay.getAppliedVersion());
+		try{
+			overlay.applyChangeLog(new ByteArrayInputStream(logBytes));
+			fail();
+		}catch(IOException e){
+		}
+		assertEquals(10 , overlay.getAppliedVersion());
+		assertFalse(overlay.matchMain("中国人".toCharArray() , 0 , 3).isMatch());
+		assertTrue(overlay.matchMain("人民".toCharArray() , 0 , 2).isMatch());
+		//基础词典应用日志后，叠加词典可以应用同一日志
+		assertEquals(12 , base.applyChangeLog(new ByteArrayInputStream(logBytes)));
+		assertEquals(12 , overlay.applyChangeLog(new ByteArrayInputStream(logBytes)));
+		assertTrue(overlay.matchMain("中国人".toCharArray() , 0 , 3).isMatch());
+		assertFalse(overlay.matchMain("人民".toCharArray() , 0 , 2).isMatch());
+		assertFalse(overlay.matchMain("热词".toCharArray() , 0 , 2).isMatch());
+		assertEquals(12 , base.createOverlay(null , null).getAppliedVersion());
+		
+		//合并到新的基础词典
+		out.reset();
+		assertEquals(12 , DictionaryChangeLog.compact(new ByteArrayInputStream(image) , new ByteArrayInputStream(logBytes) , out , true));
+		Dictionary compacted = new Dictionary(new ByteArrayInputStream(out.toByteArray()) , null , null);
+		assertEquals(12 , compacted.getAppliedVersion());
+		assertEquals(2 , compacted.getMainDictStats().getWordCount());
+		assertTrue(compacted.matchMain("中国人".toCharArray() , 0 , 3).isMatch());
+		assertFalse(compacted.matchMain("人民".toCharArray() , 0 , 2).isMatch());
+		assertEquals(12 , compacted.applyChangeLog(new ByteArrayInputStream(logBytes)));
+		assertEquals(2 , compacted.getMainDictStats().getWordCount());
+	}
+	
+	/**
+	 * 按前缀压缩及gzip压缩的词典与文本词典加载的结果一致
+	 */
+	public void testCompressedDict() throws IOException{
+		StringBuilder sb = new StringBuilder("\uFEFF中国人\n# 注释\n中国\n 人民 \r\n\uD842\uDFB7野家\n中国\n一\n");
+		//超过一个分块
+		for(int i = 0 ; i < 40 ; i++){
+			sb.append("中国").append((char)('\u5000' + i)).append('\n');
+		}
+		byte[] text = sb.toString().getBytes("UTF-8");
+		Dictionary expected = new Dictionary(new ByteArrayInputStream(text) , null , null);
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertEquals(45 , DictionaryCompressor.compress(new ByteArrayInputStream(text) , out , false));
+		byte[] compressed = out.toByteArray();
+		assertEquals("IKDC" , new String(compressed , 0 , 4 , "ISO-8859-1"));
+		assertTrue(compressed.length < text.length);
+		//压缩的词典可以再次压缩，结果不变
+		out.reset();
+		DictionaryCompressor.compress(new ByteArrayInputStream(compressed) , out , false);
+		assertTrue(java.util.Arrays.equals(compressed , out.toByteArray()));
+		out.reset();
+		DictionaryCompressor.compress(new ByteArrayInputStream(text) , out , true);
+		byte[] gzipped = out.toByteArray();
+		assertEquals(0x1F , gzipped[0] & 0xFF);
+		assertEquals(0x8B , gzipped[1] & 0xFF);
+		
+		String[] texts = {"中国人" , "中国" , "人民" , "一" , "中国\u5000" , "中国\u5027" , "中国\u5028" , "\uD842\uDFB7野家" , "# 注释" , "中间"};
+		for(byte[] bytes : new byte[][]{compressed , gzipped}){
+			List<InputStream> extStopWords = new ArrayList<InputStream>();
+			extStopWords.add(new ByteArrayInputStream(bytes));
+			Dictionary dictionary = new Dictionary(new ByteArrayInputStream(bytes) , null , extStopWords);
+			assertEquals(expected.getMainDictStats().getWordCount() , dictionary.getMainDictStats().getWordCount());
+			for(String t : texts){
+				char[] chars = t.toCharArray();
+				for(int length = 1 ; length <= chars.length ; length++){
+					Hit expectedHit = expected.matchMain(chars , 0 , length);
+					Hit hit = dictionary.matchMain(chars , 0 , length);
+					assertEquals(t , expectedHit.isMatch() , hit.isMatch());
+					assertEquals(t , expectedHit.isPrefix() , hit.isPrefix());
+				}
+			}
+			assertTrue(dictionary.containsStopWord("人民".toCharArray() , 0 , 2));
+			assertTrue(dictionary.containsStopWord("中国\u5027".toCharArray() , 0 , 3));
+			assertFalse(dictionary.containsStopWord("中间".toCharArray() , 0 , 2));
+		}
+	}
+	
 	/**
 	 * 量词排序
 	 */
@@ -3,11 +3,22 @@
  */
 package org.wltea.analyzer.test;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.lucene.analysis.tokenattributes.TermAttribute;
+import org.apache.solr.core.SolrResourceLoader;
+import org.wltea.analyzer.dic.Dictionary;
+import org.wltea.analyzer.dic.DictionaryRegistry;
 import org.wltea.analyzer.lucene.IKTokenizer;
+import org.wltea.analyzer.solr.IKTokenizerFactory;
 
 import junit.framework.TestCase;
 
@@ -35,4 +46,66 @@ public class IKTokenerTest extends TestCase {
 	
 	
 
+	public void testDictionarySwitchOnReset() throws IOException{
+		String t = "林良益的分词器";
+		List<byte[]> extDicts = new ArrayList<byte[]>();
+		extDicts.add("林良益\r\n".getBytes("UTF-8"));
+		Dictionary extended = DictionaryRegistry.acquire(null, extDicts, null);
+		
+		AtomicReference<Dictionary> dictionaryRef = new AtomicReference<Dictionary>();
+		IKTokenizer tokenizer = new IKTokenizer(new StringReader(t) , false , dictionaryRef);
+		assertFalse(collectTerms(tokenizer).contains("林良益"));
+		
+		//替换词典后，reset的Tokenizer使用新的词典
+		dictionaryRef.set(extended);
+		tokenizer.reset(new StringReader(t));
+		assertTrue(collectTerms(tokenizer).contains("林良益"));
+		
+		//引用清空后，reset的Tokenizer回到全局词典
+		dictionaryRef.set(null);
+		tokenizer.reset(new StringReader(t));
+		assertFalse(collectTerms(tokenizer).contains("林良益"));
+		DictionaryRegistry.release(extended);
+	}
+	
+	public void testFactoryWithSolrResourceLoader() throws IOException{
+		//core目录下的conf目录中放置扩展词典
+		File instanceDir = File.createTempFile("ik-core", "");
+		instanceDir.delete();
+		File confDir = new File(instanceDir , "conf");
+		confDir.mkdirs();
+		File extDict = new File(confDir , "ext.dic");
+		FileOutputStream fos = new FileOutputStream(extDict);
+		fos.write("林良益\r\n".getBytes("UTF-8"));
+		fos.close();
+		try{
+			Map<String,String> args = new HashMap<String,String>();
+			args.put(IKTokenizerFactory.EXT_DICT, "ext.dic");
+			IKTokenizerFactory factory = new IKTokenizerFactory();
+			factory.init(args);
+			//通过SolrResourceLoader注册core关闭监听器，Solr的插件类型检查不能失败
+			factory.inform(new SolrResourceLoader(instanceDir.getPath()));
+			Dictionary dictionary = factory.getDictionary();
+			assertEquals(1 , DictionaryRegistry.getReferenceCount(dictionary));
+			assertTrue(dictionary.matchMain("林良益".toCharArray() , 0 , 3).isMatch());
+			
+			factory.release();
+			assertEquals(0 , DictionaryRegistry.getReferenceCount(dictionary));
+			assertSame(Dictionary.getInstance() , factory.getDictionary());
+		}finally{
+			extDict.delete();
+			confDir.delete();
+			instanceDir.delete();
+		}
+	}
+	
+	private List<String> collectTerms(IKTokenizer tokenizer) throws IOException{
+		List<String> terms = new ArrayList<String>();
+		while(tokenizer.incrementToken()){
+			TermAttribute termAtt = tokenizer.getAttribute(TermAttribute.class);
+			terms.add(termAtt.term());
+		}
+		return terms;
+	}
+
 }
@@ -12,8 +12,14 @@ import java.util.List;
 import org.apache.lucene.search.Query;
 import org.wltea.analyzer.IKSegmentation;
 import org.wltea.analyzer.Lexeme;
+import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.dic.AhoCorasickAutomaton;
+import org.wltea.analyzer.dic.Dictionary;
 //import org.wltea.analyzer.help.CharacterHelper;
 import org.wltea.analyzer.lucene.IKQueryParser;
+import org.wltea.analyzer.seg.ISegmenter;
+import org.wltea.analyzer.seg.LetterSegmenter;
+import org.wltea.analyzer.seg.QuantifierSegmenter;
 
 import junit.framework.TestCase;
 
@@ -50,6 +56,215 @@ public class SegmentorTester extends TestCase{
 	}
 	
 	
+	public void testLetterCompoundMode() throws IOException{
+		String t = "SKU-12345-AB";
+		List<String> both = letterTerms(t , null , LetterSegmenter.COMPOUND_AND_PARTS);
+		assertTrue(both.contains("sku-12345-ab"));
+		assertTrue(both.contains("sku-12345"));
+		assertTrue(both.contains("sku"));
+		
+		List<String> compound = letterTerms(t , null , LetterSegmenter.COMPOUND_ONLY);
+		assertTrue(compound.contains("sku-12345-ab"));
+		assertFalse(compound.contains("sku-12345"));
+		assertFalse(compound.contains("sku"));
+		
+		List<String> parts = letterTerms(t , null , LetterSegmenter.PARTS_ONLY);
+		assertFalse(parts.contains("sku-12345-ab"));
+		assertTrue(parts.contains("sku"));
+		assertTrue(parts.contains("12345"));
+		assertTrue(parts.contains("ab"));
+		
+		//自定义链接符号
+		List<String> custom = letterTerms("a/b-c" , "/".toCharArray() , LetterSegmenter.COMPOUND_ONLY);
+		assertTrue(custom.contains("a/b"));
+		assertTrue(custom.contains("c"));
+		assertFalse(custom.contains("a/b-c"));
+		
+		assertEquals(LetterSegmenter.PARTS_ONLY , LetterSegmenter.parseCompoundMode("parts"));
+		try{
+			LetterSegmenter.parseCompoundMode("none");
+			fail();
+		}catch(IllegalArgumentException e){
+		}
+	}
+	
+	/**
+	 * 字母子分词器按ASCII类别表分类，段首一次扫描连续的字母（或数字）段
+	 * 期望结果与改用类别表之前的实现一致；测试词不使用停止词（如a）
+	 */
+	public void testLetterRuns() throws IOException{
+		assertEquals("0-9:abc123def 0-3:abc 6-9:def 10-17:2012abc 14-17:abc 18-21:xyz"
+				, segmenterLexemes(new LetterSegmenter() , "abc123def 2012ABC xyz" , 0 , Integer.MAX_VALUE));
+		//链接符号，以及连接符结尾、开头和连续的连接符
+		assertEquals("0-18:sku-12345_ab.c@d&e 0-16:sku-12345_ab.c@d 0-14:sku-12345_ab.c 0-12:sku-12345_ab 0-9:sku-12345 0-3:sku 10-12:ab 13-14:c 15-16:d 17-18:e 19-22:abc 25-28:abc 29-33:x--y 29-30:x 32-33:y"
+				, segmenterLexemes(new LetterSegmenter() , "SKU-12345_ab.c@d&e abc- -abc x--y" , 0 , Integer.MAX_VALUE));
+		//游标之后的全角字符尚未规格化，结束段内扫描，游标到达时逐字处理
+		assertEquals("0-9:hello2012 0-5:hello 10-14:abCd 15-19:1234 20-23:abc 24-27:def"
+				, segmenterLexemes(new LetterSegmenter() , "ｈｅｌｌｏ２０１２ ab\uFF23d 12３4 abc\u00E9def" , 0 , Integer.MAX_VALUE));
+		assertEquals("2-5:mp3 2-4:mp 9-17:iphone4s 9-15:iphone 16-17:s 18-24:ik2012 18-20:ik"
+				, segmenterLexemes(new LetterSegmenter() , "中文mp3播放器和iPhone4S的IK2012版" , 0 , Integer.MAX_VALUE));
+		
+		//字母段跨越缓冲区边界（缓冲区3072字符）
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0 ; i < 1532 ; i++){
+			sb.append("q ");
+		}
+		assertEquals("3062-3063:q 3064-3084:abcdefghij123456-xyz 3064-3080:abcdefghij123456 3064-3074:abcdefghij 3081-3084:xyz"
+				, segmenterLexemes(new LetterSegmenter() , sb + "abcdefghij123456-xyz" , 3062 , Integer.MAX_VALUE));
+		//字母段延续到输入末尾
+		sb.setLength(0);
+		for(int i = 0 ; i < 3060 ; i++){
+			sb.append('x');
+		}
+		assertEquals("0-3060:" + sb , segmenterLexemes(new LetterSegmenter() , sb.toString() , 0 , Integer.MAX_VALUE));
+	}
+	
+	private List<String> letterTerms(String t , char[] connectors , int compoundMode) throws IOException{
+		IKSegmentation ikSeg = new IKSegmentation(new StringReader(t) , false , Dictionary.getInstance() 
+				, Configuration.loadSegmenter(connectors , compoundMode));
+		List<String> terms = new ArrayList<String>();
+		for(Lexeme l = ikSeg.next() ; l != null ; l = ikSeg.next()){
+			terms.add(l.getLexemeText());
+		}
+		return terms;
+	}
+	
+	public void testSurrogatePair() throws IOException{
+		//CJK扩展B中的字，UTF-16中为代理对
+		String extB = new String(Character.toChars(0x20BB7));
+		List<Lexeme> lexemes = lexemes("姓" + extB + "的同学" , Dictionary.getInstance());
+		boolean found = false;
+		for(Lexeme l : lexemes){
+			assertSurrogatePaired(l.getLexemeText());
+			if(extB.equals(l.getLexemeText())){
+				assertEquals(1 , l.getBeginPosition());
+				found = true;
+			}
+		}
+		assertTrue(found);
+		
+		//包含代理对的词典词
+		Dictionary dictionary = new Dictionary(null , null , null);
+		List<String> words = new ArrayList<String>();
+		words.add(extB + "野家");
+		dictionary.addWords(words);
+		found = false;
+		for(Lexeme l : lexemes("去" + extB + "野家吃饭" , dictionary)){
+			assertSurrogatePaired(l.getLexemeText());
+			if((extB + "野家").equals(l.getLexemeText())){
+				found = true;
+			}
+		}
+		assertTrue(found);
+		
+		//代理对跨越缓冲区边界
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0 ; i < 3071 ; i++){
+			sb.append('a');
+		}
+		sb.append(extB).append("字");
+		found = false;
+		for(Lexeme l : lexemes(sb.toString() , Dictionary.getInstance())){
+			assertSurrogatePaired(l.getLexemeText());
+			if(extB.equals(l.getLexemeText())){
+				assertEquals(3071 , l.getBeginPosition());
+				found = true;
+			}
+		}
+		assertTrue(found);
+	}
+	
+	public void testDictionaryOverlay() throws IOException{
+		List<String> words = new ArrayList<String>();
+		words.add("租户专有词");
+		words.add("中华租户");
+		Dictionary overlay = Dictionary.getInstance().createOverlay(words , null);
+		String t = "这是租户专有词，中华人民共和国";
+		List<String> terms = new ArrayList<String>();
+		for(Lexeme l : lexemes(t , overlay)){
+			terms.add(l.getLexemeText());
+		}
+		assertTrue(terms.contains("租户专有词"));
+		assertTrue(terms.contains("中华人民共和国"));
+		for(Lexeme l : lexemes(t , Dictionary.getInstance())){
+			assertFalse("租户专有词".equals(l.getLexemeText()));
+		}
+	}
+	
+	public void testCJKAutomaton() throws IOException{
+		String extB = new String(Character.toChars(0x20BB7));
+		List<String> words = new ArrayList<String>();
+		words.add(extB + "野家");
+		words.add("租户专有词");
+		Dictionary overlay = Dictionary.getInstance().createOverlay(words , null);
+		String[] texts = {"中华人民共和国成立了，研究生命起源" , "张三说的确实在理 , 福州第一中学" 
+				, "去" + extB + "野家吃饭" + extB , "这是租户专有词，" + extB + "abc中文" , "一九九五年12月31日" 
+				, "中华租户在中华人民共和国"};
+		for(String t : texts){
+			for(boolean max : new boolean[]{false , true}){
+				assertEquals(t , lexemeStrings(t , max , Dictionary.getInstance() , false) 
+						, lexemeStrings(t , max , Dictionary.getInstance() , true));
+				assertEquals(t , lexemeStrings(t , max , overlay , false) 
+						, lexemeStrings(t , max , overlay , true));
+			}
+		}
+		
+		//追加词条后重新构建自动机
+		Dictionary dictionary = new Dictionary(null , null , null);
+		AhoCorasickAutomaton automaton = dictionary.getMainAutomaton();
+		assertSame(automaton , dictionary.getMainAutomaton());
+		//字符按词典中的字符紧凑编码，不在词典中的字符回到根状态
+		assertTrue(automaton.getAlphabetSize() > 0 && automaton.getAlphabetSize() < Character.MAX_VALUE);
+		int state = automaton.next(AhoCorasickAutomaton.ROOT , '中');
+		assertTrue(automaton.isPrefix(state));
+		assertEquals(AhoCorasickAutomaton.ROOT , automaton.next(state , '\u0001'));
+		assertNotSame(automaton , overlay.getMainAutomaton());
+		//叠加词典复用基础词典的自动机，自身的自动机只包含追加的词条
+		AhoCorasickAutomaton[] automata = overlay.getMainAutomata();
+		assertEquals(2 , automata.length);
+		assertSame(Dictionary.getInstance().getMainAutomaton() , automata[0]);
+		assertSame(automata , overlay.getMainAutomata());
+		assertTrue(automata[1].getStateCount() < 32);
+		assertEquals(1 , Dictionary.getInstance().createOverlay(null , null).getMainAutomata().length);
+		dictionary.addWords(words);
+		assertNotSame(automaton , dictionary.getMainAutomaton());
+		boolean found = false;
+		for(String l : lexemeStrings("这是租户专有词" , false , dictionary , true)){
+			found |= l.endsWith(" 租户专有词");
+		}
+		assertTrue(found);
+	}
+	
+	private List<String> lexemeStrings(String t , boolean max , Dictionary dictionary , boolean cjkAutomaton) throws IOException{
+		IKSegmentation ikSeg = new IKSegmentation(new StringReader(t) , max , dictionary 
+				, Configuration.loadSegmenter(null , LetterSegmenter.COMPOUND_AND_PARTS , cjkAutomaton));
+		List<String> lexemes = new ArrayList<String>();
+		for(Lexeme l = ikSeg.next() ; l != null ; l = ikSeg.next()){
+			lexemes.add(l.getBeginPosition() + "-" + l.getEndPosition() + " " + l.getLexemeType() + " " + l.getLexemeText());
+		}
+		return lexemes;
+	}
+	
+	private List<Lexeme> lexemes(String t , Dictionary dictionary) throws IOException{
+		IKSegmentation ikSeg = new IKSegmentation(new StringReader(t) , false , dictionary);
+		List<Lexeme> lexemes = new ArrayList<Lexeme>();
+		for(Lexeme l = ikSeg.next() ; l != null ; l = ikSeg.next()){
+			lexemes.add(l);
+		}
+		return lexemes;
+	}
+	
+	private void assertSurrogatePaired(String text){
+		for(int i = 0 ; i < text.length() ; i++){
+			char c = text.charAt(i);
+			if(Character.isHighSurrogate(c)){
+				assertTrue(i + 1 < text.length() && Character.isLowSurrogate(text.charAt(++i)));
+			}else{
+				assertFalse(Character.isLowSurrogate(c));
+			}
+		}
+	}
+	
 	public void testNumberCount(){
 		List<String> testStr = new ArrayList<String>();
 		testStr.add("12.第");
@@ -84,6 +299,91 @@ public class SegmentorTester extends TestCase{
 		
 	}
 	
+	/**
+	 * 数量词子分词器的回归测试
+	 * 期望结果由改用状态转移表之前的实现输出，包括全角数字、小数、中文数词及跨越缓冲区边界的数量词
+	 */
+	public void testQuantifierRegression() throws IOException{
+		assertEquals("0-4:2012 4-5:年 5-7:12 7-8:月 8-10:21 10-11:日 13-14:3 14-15:点 15-17:45 17-18:分"
+				, quantifierLexemes("2012年12月21日下午3点45分" , 0 , Integer.MAX_VALUE));
+		assertEquals("0-6:123456 6-7:个 8-12:3.14 12-13:米"
+				, quantifierLexemes("１２３４５６个，３．１４米" , 0 , Integer.MAX_VALUE));
+		assertEquals("0-9:3.1415926 10-16:-12.5% 17-21:$100 22-26:￥200 26-27:元 28-37:1,000,000 38-41:6.2 41-42:级 43-47:1e10 48-54:-2e-12"
+				, quantifierLexemes("3.1415926 -12.5% $100 ￥200元 1,000,000 6.2级 1e10 -2e-12" , 0 , Integer.MAX_VALUE));
+		assertEquals("0-1:第 1-4:三十五 4-5:章 6-10:二零一二 10-11:年 12-17:三千五百万 17-18:元 19-22:一百多 22-23:个 24-26:十几 26-27:岁 28-31:两点半 29-30:点 32-35:五点五 33-34:点 35-37:公斤"
+				, quantifierLexemes("第三十五章 二零一二年 三千五百万元 一百多个 十几岁 两点半 五点五公斤" , 0 , Integer.MAX_VALUE));
+		assertEquals("0-1:Ⅲ 1-2:期 3-5:ⅩⅡ 5-6:章 7-12:23.5% 13-17:零点零一 14-15:点 18-22:壹万贰仟 22-23:元 24-26:廿五 26-27:日 28-29:卅 29-30:个 31-33:6‰"
+				, quantifierLexemes("Ⅲ期 ⅩⅡ章 ２３．５％ 零点零一 壹万贰仟元 廿五日 卅个 6‰" , 0 , Integer.MAX_VALUE));
+		assertEquals("0-8:12:30:45 9-19:2012/12/21 20-23:3/4 23-24:杯 25-26:1 31-35:+400 36-38:12"
+				, quantifierLexemes("12:30:45 2012/12/21 3/4杯 1/++ ￥+400 12.第" , 0 , Integer.MAX_VALUE));
+		assertEquals("0-2:51 2-3:千 3-4:克 4-8:五十一千 8-9:克 9-13:五万一千 13-14:克 14-16:两千 16-18:克拉 16-17:克 19-22:五十一 23-27:十一点半 25-26:点 27-28:下"
+				, quantifierLexemes("51千克五十一千克五万一千克两千克拉 五十一 十一点半下班" , 0 , Integer.MAX_VALUE));
+		
+		//数量词跨越缓冲区边界（缓冲区3072字符）
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0 ; i < 1530 ; i++){
+			sb.append("7 ");
+		}
+		assertEquals("3056-3057:7 3058-3059:7 3060-3069:12345.678 3069-3070:个 3071-3076:三千五百万 3076-3077:元"
+				, quantifierLexemes(sb + "12345.678个 三千五百万元" , 3056 , Integer.MAX_VALUE));
+		assertEquals("3066-3067:7 3068-3069:7 3070-3071:第 3071-3076:一百二十三 3076-3077:个 3077-3079:12 3079-3080:个"
+				, quantifierLexemes(sb + "7 7 7 7 7 第一百二十三个１２个" , 3066 , Integer.MAX_VALUE));
+		//缓冲区边界处的小数被截断，与原有实现一致
+		sb.setLength(0);
+		for(int i = 0 ; i < 700 ; i++){
+			sb.append("12.5个");
+		}
+		assertEquals("3060-3064:12.5 3064-3065:个 3065-3069:12.5 3069-3070:个 3070-3072:12 3073-3074:5 3074-3075:个 3075-3079:12.5 3079-3080:个"
+				, quantifierLexemes(sb.toString() , 3060 , 3080));
+	}
+	
+	/**
+	 * 数量词子分词器空闲时跳过不可能开始数词的字符
+	 * 跳过的范围内不能漏掉全角数字、货币符号、序数词等可以开始数词的字符，跳到缓冲区末尾后在下一个缓冲区重新扫描
+	 */
+	public void testQuantifierSkip() throws IOException{
+		assertEquals("2-3:一 3-4:段 22-23:3 23-24:个 27-28:五 28-29:斤"
+				, quantifierLexemes("这是一段很长的没有任何数字的中文文字，然后是3个苹果和五斤梨" , 0 , Integer.MAX_VALUE));
+		//全角字符在游标到达时才规格化，E只能连接数字，不能开始数词
+		assertEquals("3-6:123 6-7:个 11-14:456 16-18:10 20-22:10 24-25:5"
+				, quantifierLexemes("ＡＢＣ１２３个和ａｂｃ４５６，Ｅ１０与E10、e5" , 0 , Integer.MAX_VALUE));
+		assertEquals("7-8:第 8-9:五 9-10:个 11-12:百 12-13:分 14-16:五十 18-20:$5 24-28:￥100 28-29:元"
+				, quantifierLexemes("没有数字的文字第五个，百分之五十，“$5”与……￥100元" , 0 , Integer.MAX_VALUE));
+		//跳过的字符一直延续到缓冲区末尾
+		StringBuilder sb = new StringBuilder("1个");
+		for(int i = 0 ; i < 3100 ; i++){
+			sb.append('中');
+		}
+		assertEquals("0-1:1 1-2:个 3102-3103:2 3103-3104:个"
+				, quantifierLexemes(sb + "2个" , 0 , Integer.MAX_VALUE));
+	}
+	
+	/**
+	 * 只使用数量词子分词器切分，输出起始位置在[from , to)之间的词元
+	 */
+	private String quantifierLexemes(String t , int from , int to) throws IOException{
+		return segmenterLexemes(new QuantifierSegmenter() , t , from , to);
+	}
+	
+	/**
+	 * 只使用给定的子分词器切分，输出起始位置在[from , to)之间的词元
+	 */
+	private String segmenterLexemes(ISegmenter segmenter , String t , int from , int to) throws IOException{
+		List<ISegmenter> segmenters = new ArrayList<ISegmenter>();
+		segmenters.add(segmenter);
+		IKSegmentation ikSeg = new IKSegmentation(new StringReader(t) , false , Dictionary.getInstance() , segmenters);
+		StringBuilder sb = new StringBuilder();
+		for(Lexeme l = ikSeg.next() ; l != null ; l = ikSeg.next()){
+			if(l.getBeginPosition() >= from && l.getBeginPosition() < to){
+				if(sb.length() > 0){
+					sb.append(' ');
+				}
+				sb.append(l.getBeginPosition()).append('-').append(l.getEndPosition()).append(':').append(l.getLexemeText());
+			}
+		}
+		return sb.toString();
+	}
+	
 	public void testChinese(){
 		List<String> testStr = new ArrayList<String>();
 		testStr.add("福州大学周边的必胜客");
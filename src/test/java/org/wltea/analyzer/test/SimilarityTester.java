@@ -0,0 +1,48 @@
+/**
+ * 
+ */
+package org.wltea.analyzer.test;
+
+import org.wltea.analyzer.lucene.IKSimilarity;
+
+import junit.framework.TestCase;
+
+/**
+ * IKSimilarity coord查找表测试
+ * @author 林良益
+ *
+ */
+public class SimilarityTester extends TestCase {
+
+	public void testExponentCoord(){
+		IKSimilarity similarity = new IKSimilarity();
+		for(int maxOverlap = 0 ; maxOverlap < 100 ; maxOverlap++){
+			for(int overlap = 0 ; overlap <= maxOverlap ; overlap++){
+				float expected = (float)Math.pow(2, overlap) / (float)Math.pow(2, maxOverlap);
+				assertEquals(expected , similarity.coord(overlap, maxOverlap) , 0f);
+			}
+		}
+	}
+
+	public void testCoordBase(){
+		IKSimilarity similarity = new IKSimilarity(3f);
+		assertEquals(1f , similarity.coord(4, 4) , 0f);
+		assertEquals(1f / 9f , similarity.coord(2, 4) , 1e-6f);
+		assertEquals((float)Math.pow(3 , -80) , similarity.coord(20, 100) , 1e-6f);
+	}
+
+	public void testLinearCoord(){
+		IKSimilarity similarity = new IKSimilarity(IKSimilarity.DEFAULT_COORD_BASE , true);
+		assertEquals(0.5f , similarity.coord(2, 4) , 0f);
+		assertEquals(0.25f , similarity.coord(25, 100) , 0f);
+		assertEquals(0f , similarity.coord(0, 0) , 0f);
+	}
+
+	public void testIllegalBase(){
+		try{
+			new IKSimilarity(0.5f);
+			fail("coordBase < 1 should be refused");
+		}catch(IllegalArgumentException e){
+		}
+	}
+}
@@ -0,0 +1,153 @@
+/**
+ * 
+ */
+package org.wltea.analyzer.test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.wltea.analyzer.IKSegmentation;
+import org.wltea.analyzer.Lexeme;
+import org.wltea.analyzer.dic.Dictionary;
+import org.wltea.analyzer.lucene.IKQueryParser;
+import org.wltea.analyzer.stats.IKEventListener;
+import org.wltea.analyzer.stats.IKEvents;
+import org.wltea.analyzer.stats.IKStatistics;
+import org.wltea.analyzer.stats.IKStatisticsMonitor;
+import org.wltea.analyzer.stats.StripedCounter;
+
+import junit.framework.TestCase;
+
+/**
+ * 分词运行统计测试
+ * @author 林良益
+ *
+ */
+public class StatisticsTester extends TestCase {
+
+	protected void tearDown() throws Exception {
+		IKStatisticsMonitor.unregister();
+	}
+
+	public void testStripedCounter() throws InterruptedException{
+		final StripedCounter counter = new StripedCounter();
+		Thread[] threads = new Thread[4];
+		for(int i = 0 ; i < threads.length ; i++){
+			threads[i] = new Thread(){
+				public void run(){
+					for(int j = 0 ; j < 10000 ; j++){
+						counter.increment();
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for(Thread t : threads){
+			t.join();
+		}
+		assertEquals(40000L , counter.sum());
+		counter.reset();
+		assertEquals(0L , counter.sum());
+	}
+
+	public void testDisabled() throws IOException{
+		IKStatistics.setEnabled(false);
+		IKStatistics.reset();
+		segment("中华人民共和国成立了" , 1);
+		assertEquals(0L , IKStatistics.getDocuments());
+		assertEquals(0L , IKStatistics.getCharacters());
+	}
+
+	public void testMonitor() throws Exception{
+		IKStatisticsMonitor.register();
+		String text = "据路透社报道，印度尼西亚社会事务部一官员星期二(29日)表示，日惹市附近当地时间27日晨5时53分发生的里氏6.2级地震";
+		//超过缓冲区大小，触发续读
+		int repeat = 200;
+		int lexemes = segment(text , repeat);
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(IKStatisticsMonitor.OBJECT_NAME);
+		assertEquals(Boolean.TRUE , server.getAttribute(name, "Enabled"));
+		assertEquals(1L , server.getAttribute(name, "Documents"));
+		assertEquals((long)text.length() * repeat , server.getAttribute(name, "Characters"));
+		assertEquals((long)lexemes , server.getAttribute(name, "Lexemes"));
+		assertTrue((Long)server.getAttribute(name, "BufferRefills") > 0);
+		assertTrue((Integer)server.getAttribute(name, "LexemeSetPeakSize") > 0);
+		assertTrue((Integer)server.getAttribute(name, "DictionaryWords") > 0);
+		assertTrue((Double)server.getAttribute(name, "CharactersPerSecond") > 0);
+
+		IKQueryParser.parse("content" , "统计查询缓存");
+		IKQueryParser.parse("content" , "统计查询缓存");
+		assertEquals(0.5d , server.getAttribute(name, "QueryCacheHitRatio"));
+
+		//MBean描述只构建一次，词典统计在词典修改前复用
+		IKStatisticsMonitor monitor = new IKStatisticsMonitor();
+		assertSame(monitor.getMBeanInfo() , monitor.getMBeanInfo());
+		assertSame(Dictionary.getInstance().getMainDictStats() , Dictionary.getInstance().getMainDictStats());
+
+		server.invoke(name, "reset", null, null);
+		assertEquals(0L , server.getAttribute(name, "Documents"));
+
+		//最大词长切分时，统计过滤交叠词元之后实际输出的词元
+		lexemes = segment(text , repeat , true);
+		assertEquals((long)lexemes , server.getAttribute(name, "Lexemes"));
+	}
+
+	public void testEvents() throws IOException{
+		final List<String> events = new ArrayList<String>();
+		IKEventListener listener = new IKEventListener(){
+			public void slowSegmentation(int charCount , int lexemeCount , long elapsedNanos) {
+				events.add("segmentation:" + charCount + ":" + lexemeCount);
+			}
+			public void dictionaryLoaded(Dictionary dictionary , long elapsedNanos , Map<String , Long> phaseNanos) {
+				events.add("dictionary:" + phaseNanos.keySet());
+			}
+			public void queryCacheMissed(String query , int lexemeCount , long elapsedNanos) {
+				events.add("query:" + query);
+			}
+		};
+		IKEvents.addListener(listener);
+		IKEvents.setSlowSegmentationThreshold(0);
+		try{
+			int lexemes = segment("中华人民共和国成立了" , 1);
+			assertEquals("segmentation:10:" + lexemes , events.get(0));
+
+			new Dictionary(null , null , null);
+			assertTrue(events.get(1).startsWith("dictionary:[Main Dictionary, Surname Dictionary"));
+
+			IKQueryParser.parse("content" , "慢查询事件");
+			IKQueryParser.parse("content" , "慢查询事件");
+			assertEquals("query:慢查询事件" , events.get(events.size() - 1));
+			//第二次解析命中缓存，不触发事件
+			assertEquals(events.indexOf("query:慢查询事件") , events.lastIndexOf("query:慢查询事件"));
+		}finally{
+			IKEvents.removeListener(listener);
+			IKEvents.setSlowSegmentationThreshold(IKEvents.DEFAULT_SLOW_SEGMENTATION_MILLIS);
+		}
+		assertFalse(IKEvents.isEnabled());
+	}
+
+	private int segment(String text , int repeat) throws IOException{
+		return segment(text , repeat , false);
+	}
+
+	private int segment(String text , int repeat , boolean isMaxWordLength) throws IOException{
+		StringBuilder sb = new StringBuilder(text.length() * repeat);
+		for(int i = 0 ; i < repeat ; i++){
+			sb.append(text);
+		}
+		IKSegmentation ikSeg = new IKSegmentation(new StringReader(sb.toString()) , isMaxWordLength);
+		int count = 0;
+		for(Lexeme l = ikSeg.next() ; l != null ; l = ikSeg.next()){
+			count++;
+		}
+		return count;
+	}
+}